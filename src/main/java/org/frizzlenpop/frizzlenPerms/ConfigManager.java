@@ -203,6 +203,42 @@ public class ConfigManager {
         return config.getInt("storage.mysql.pool-size", 10);
     }
     
+    /**
+     * Gets how long saved player data waits in the write queue, so repeated saves are written once.
+     *
+     * @return The flush delay in milliseconds
+     */
+    public long getWriteBehindFlushDelayMillis() {
+        return config.getLong("storage.write-behind.flush-delay-millis", 200L);
+    }
+    
+    /**
+     * Gets the maximum number of players written in one transaction.
+     *
+     * @return The batch size
+     */
+    public int getWriteBehindBatchSize() {
+        return config.getInt("storage.write-behind.batch-size", 100);
+    }
+    
+    /**
+     * Gets the number of queued players at which saves from other threads than the main thread wait.
+     *
+     * @return The maximum number of queued players
+     */
+    public int getWriteBehindMaxPending() {
+        return config.getInt("storage.write-behind.max-pending", 10000);
+    }
+    
+    /**
+     * Gets how long shutting down may spend writing the remaining queued players.
+     *
+     * @return The drain timeout in milliseconds
+     */
+    public long getWriteBehindDrainTimeoutMillis() {
+        return config.getLong("storage.write-behind.drain-timeout-millis", 10000L);
+    }
+    
     /**
      * Gets the SQLite database file path from the config.
      *
@@ -428,6 +464,54 @@ public class ConfigManager {
         return config.getStringList("ranks.admin-permissions");
     }
     
+    /**
+     * Checks if FrizzlenPerms should inject its own permissible into players.
+     *
+     * @return True if permissible injection is enabled
+     */
+    public boolean isPermissibleInjectionEnabled() {
+        return config.getBoolean("permissions.inject-permissible", false);
+    }
+    
+    /**
+     * Gets how much time per tick may be spent on queued permission recalculations.
+     *
+     * @return The per-tick budget in microseconds
+     */
+    public int getRecalculationBudgetMicros() {
+        return config.getInt("permissions.recalculation-budget-micros", 5000);
+    }
+    
+    /**
+     * Gets how long before a temporary rank or permission expires its holder is warned.
+     *
+     * @return The warning offsets as duration strings, such as "1h" or "10m"
+     */
+    public List<String> getExpiryWarnings() {
+        if (!config.isList("permissions.expiry-warnings")) {
+            return List.of("1h", "10m", "1m");
+        }
+        return config.getStringList("permissions.expiry-warnings");
+    }
+    
+    /**
+     * Gets the number of threads that resolve player permissions off the main thread.
+     *
+     * @return The number of resolver threads
+     */
+    public int getResolverThreads() {
+        return config.getInt("permissions.resolver-threads", 2);
+    }
+    
+    /**
+     * Gets how long resolved permissions of offline lookups are cached.
+     *
+     * @return The cache duration in milliseconds
+     */
+    public long getResolverCacheMillis() {
+        return config.getLong("permissions.resolver-cache-millis", 5000L);
+    }
+    
     /**
      * Gets the server name from the config.
      *
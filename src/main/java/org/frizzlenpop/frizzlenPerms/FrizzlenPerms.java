@@ -9,6 +9,7 @@ import org.frizzlenpop.frizzlenPerms.data.DataManager;
 import org.frizzlenpop.frizzlenPerms.discord.DiscordManager;
 import org.frizzlenpop.frizzlenPerms.gui.GuiManager;
 import org.frizzlenpop.frizzlenPerms.listeners.PlayerListener;
+import org.frizzlenpop.frizzlenPerms.listeners.PluginListener;
 import org.frizzlenpop.frizzlenPerms.permissions.PermissionManager;
 import org.frizzlenpop.frizzlenPerms.ranks.RankManager;
 import org.frizzlenpop.frizzlenPerms.sync.SyncManager;
@@ -134,6 +135,9 @@ public final class FrizzlenPerms extends JavaPlugin {
         PlayerListener playerListener = new PlayerListener(this, dataManager, permissionManager, rankManager);
         Bukkit.getPluginManager().registerEvents(playerListener, this);
         
+        // Register the plugin listener, to notice permissions registered by other plugins
+        Bukkit.getPluginManager().registerEvents(new PluginListener(permissionManager), this);
+        
         // Register GUI listeners if GUI is enabled
         if (configManager.isGuiEnabled() && guiManager != null) {
             Bukkit.getPluginManager().registerEvents(guiManager, this);
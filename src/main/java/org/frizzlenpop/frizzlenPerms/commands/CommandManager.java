@@ -56,6 +56,7 @@ public class CommandManager implements CommandExecutor, TabCompleter {
         registerCommand(new ExportCommand(plugin));
         registerCommand(new PurgeCommand(plugin));
         registerCommand(new CloneCommand(plugin));
+        registerCommand(new BenchmarkCommand(plugin));
         
         // Player commands
         registerCommand(new org.frizzlenpop.frizzlenPerms.commands.player.InfoCommand(plugin));
@@ -0,0 +1,598 @@
+package org.frizzlenpop.frizzlenPerms.commands.admin;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.PermissionAttachment;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+import org.frizzlenpop.frizzlenPerms.commands.SubCommand;
+import org.frizzlenpop.frizzlenPerms.data.DataManager;
+import org.frizzlenpop.frizzlenPerms.data.LegacyPlayerLoader;
+import org.frizzlenpop.frizzlenPerms.data.StorageProvider;
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+import org.frizzlenpop.frizzlenPerms.models.Rank;
+import org.frizzlenpop.frizzlenPerms.permissions.AttachmentAccessor;
+import org.frizzlenpop.frizzlenPerms.permissions.CompiledRank;
+import org.frizzlenpop.frizzlenPerms.permissions.CompiledRankRegistry;
+import org.frizzlenpop.frizzlenPerms.permissions.ContextSet;
+import org.frizzlenpop.frizzlenPerms.permissions.InheritanceGraph;
+import org.frizzlenpop.frizzlenPerms.permissions.NodeDictionary;
+import org.frizzlenpop.frizzlenPerms.permissions.NodeSet;
+import org.frizzlenpop.frizzlenPerms.permissions.PermissionManager;
+import org.frizzlenpop.frizzlenPerms.permissions.SetupTimings;
+import org.frizzlenpop.frizzlenPerms.utils.MessageUtils;
+
+import java.lang.ref.Reference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Command to run micro-benchmarks of the permission engine on the live server.
+ */
+public class BenchmarkCommand implements SubCommand {
+
+    private static final int[] ATTACH_NODE_COUNTS = {100, 500, 1000, 2000};
+    private static final int CONTENTION_THREADS = 8;
+    private static final int CONTENTION_PLAYERS = 400;
+    private static final int CONTENTION_NODES = 200;
+    private static final int HEAP_NODES = 10_000;
+    private static final int HEAP_RANKS = 50;
+    private static final int STORAGE_ROUNDS = 20;
+    private static final List<String> TYPES = List.of("attach", "setup", "contention", "heap", "storage");
+
+    private final FrizzlenPerms plugin;
+
+    /**
+     * Creates a new BenchmarkCommand.
+     *
+     * @param plugin The plugin instance
+     */
+    public BenchmarkCommand(FrizzlenPerms plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getName() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Benchmarks the permission engine.";
+    }
+
+    @Override
+    public String getUsage() {
+        return "/frizzlenperms benchmark <" + String.join("|", TYPES) + ">";
+    }
+
+    @Override
+    public String getPermission() {
+        return "frizzlenperms.admin.benchmark";
+    }
+
+    @Override
+    public int getMinArgs() {
+        return 1;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return List.of("bench");
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String[] args) {
+        switch (args[0].toLowerCase()) {
+            case "attach":
+                benchmarkAttach(sender);
+                return true;
+            case "contention":
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> benchmarkContention(sender));
+                return true;
+            case "heap":
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> benchmarkHeap(sender,
+                        args.length > 1 && args[1].equalsIgnoreCase("live")));
+                return true;
+            case "storage":
+                List<UUID> players = new ArrayList<>();
+                for (Player player : plugin.getServer().getOnlinePlayers()) {
+                    players.add(player.getUniqueId());
+                }
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> benchmarkStorage(sender, players));
+                return true;
+            case "setup":
+                reportSetup(sender, args.length > 1 && args[1].equalsIgnoreCase("reset"));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compares the join cost of filling an attachment node by node against the bulk path.
+     * Runs on the main thread, since recalculating permissions touches the plugin manager.
+     *
+     * @param sender The sender to report to
+     */
+    private void benchmarkAttach(CommandSender sender) {
+        MessageUtils.sendMessage(sender, "benchmark.header", Map.of("type", "attach"));
+
+        if (!AttachmentAccessor.isBulkSupported()) {
+            MessageUtils.sendMessage(sender, "benchmark.bulk-unsupported");
+        }
+
+        for (int nodeCount : ATTACH_NODE_COUNTS) {
+            Map<String, Boolean> nodes = new LinkedHashMap<>();
+            for (int i = 0; i < nodeCount; i++) {
+                nodes.put("frizzlenperms.benchmark.node" + i, i % 10 != 0);
+            }
+
+            // Per-node path: every setPermission recalculates the permissible
+            PermissibleBase legacy = new PermissibleBase(null);
+            long start = System.nanoTime();
+            PermissionAttachment legacyAttachment = legacy.addAttachment(plugin);
+            for (Map.Entry<String, Boolean> entry : nodes.entrySet()) {
+                legacyAttachment.setPermission(entry.getKey(), entry.getValue());
+            }
+            long legacyNanos = System.nanoTime() - start;
+            legacy.clearPermissions();
+
+            // Bulk path: fill the backing map, then recalculate once
+            PermissibleBase bulk = new PermissibleBase(null);
+            start = System.nanoTime();
+            PermissionAttachment bulkAttachment = bulk.addAttachment(plugin);
+            AttachmentAccessor.setPermissions(bulkAttachment, nodes);
+            bulk.recalculatePermissions();
+            long bulkNanos = System.nanoTime() - start;
+            bulk.clearPermissions();
+
+            MessageUtils.sendMessage(sender, "benchmark.attach-result", Map.of(
+                "nodes", String.valueOf(nodeCount),
+                "legacy", formatMillis(legacyNanos),
+                "bulk", formatMillis(bulkNanos),
+                "speedup", String.format("%.1f", (double) legacyNanos / Math.max(1L, bulkNanos))
+            ));
+        }
+    }
+
+    /**
+     * Compares many threads resolving distinct players through the permission manager's
+     * resolve path, the part of a recalculation that runs on the resolver threads, first
+     * serialized under one global lock as every setup used to be, then without a lock as the
+     * resolver threads run it now. Each simulated player holds one of the server's ranks and
+     * personal permissions of their own, so every resolve layers them over the shared set.
+     * Applying stays on the main thread and is not part of this benchmark.
+     * Runs asynchronously, since it keeps several threads busy.
+     *
+     * @param sender The sender to report to
+     */
+    private void benchmarkContention(CommandSender sender) {
+        List<String> rankNames = new ArrayList<>(plugin.getDataManager().getAllRanks().keySet());
+        List<PlayerData> players = new ArrayList<>(CONTENTION_PLAYERS);
+        for (int i = 0; i < CONTENTION_PLAYERS; i++) {
+            PlayerData playerData = new PlayerData(UUID.randomUUID(), "benchmark" + i);
+            if (!rankNames.isEmpty()) {
+                playerData.setPrimaryRank(rankNames.get(i % rankNames.size()));
+            }
+            for (int node = 0; node < CONTENTION_NODES; node++) {
+                playerData.addPermission("frizzlenperms.benchmark.player" + i + ".node" + node);
+            }
+            playerData.addPermission("frizzlenperms.benchmark.group" + (i % 10) + ".*");
+            players.add(playerData);
+        }
+        ContextSet contexts = plugin.getPermissionManager().getContextManager().getStaticContexts(null);
+
+        long globalNanos = runContention(players, contexts, new Object());
+        long concurrentNanos = runContention(players, contexts, null);
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            MessageUtils.sendMessage(sender, "benchmark.header", Map.of("type", "contention"));
+            MessageUtils.sendMessage(sender, "benchmark.contention-result", Map.of(
+                "threads", String.valueOf(CONTENTION_THREADS),
+                "players", String.valueOf(CONTENTION_PLAYERS),
+                "global", formatMillis(globalNanos),
+                "concurrent", formatMillis(concurrentNanos),
+                "speedup", String.format("%.1f", (double) globalNanos / Math.max(1L, concurrentNanos))
+            ));
+        });
+    }
+
+    /**
+     * Resolves every player once per thread, with each thread starting at a different
+     * offset so threads work on distinct players at any moment.
+     *
+     * @param players The simulated players
+     * @param contexts The contexts to resolve for
+     * @param globalLock The lock every resolve is serialized on, or null to resolve without one
+     * @return The wall time taken by all threads, in nanoseconds
+     */
+    private long runContention(List<PlayerData> players, ContextSet contexts, Object globalLock) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        ExecutorService executor = Executors.newFixedThreadPool(CONTENTION_THREADS);
+        CountDownLatch ready = new CountDownLatch(CONTENTION_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < CONTENTION_THREADS; t++) {
+            int offset = t * (players.size() / CONTENTION_THREADS);
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                for (int i = 0; i < players.size(); i++) {
+                    PlayerData playerData = players.get((offset + i) % players.size());
+                    if (globalLock != null) {
+                        synchronized (globalLock) {
+                            permissionManager.resolvePermissions(playerData, contexts);
+                        }
+                    } else {
+                        permissionManager.resolvePermissions(playerData, contexts);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            ready.await();
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - begin;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Contention benchmark failed", e);
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compares the retained heap of ranks compiled the way they were before node interning,
+     * as inheritance-flattened string maps that share their keys through {@code putAll},
+     * against the same ranks compiled into interned bitsets by a fresh
+     * {@link CompiledRankRegistry}. Uses a generated inheritance chain of {@value #HEAP_RANKS}
+     * ranks over {@value #HEAP_NODES} nodes, or the server's own ranks when {@code live} is set.
+     * The node strings of the rank models are retained by both and not counted.
+     * Runs asynchronously, since it forces garbage collections.
+     *
+     * @param sender The sender to report to
+     * @param live Whether to measure the server's ranks instead of the generated ones
+     */
+    private void benchmarkHeap(CommandSender sender, boolean live) {
+        Map<String, Rank> fixture = live ? loadHeapRanks() : generateHeapRanks();
+        Function<String, Rank> rankLookup = rankName -> fixture.get(rankName.toLowerCase());
+        AtomicInteger nodeCount = new AtomicInteger();
+
+        long legacyBytes = measureRetained(() -> {
+            Map<String, Map<String, Boolean>> compiled = new HashMap<>();
+            for (String rankName : fixture.keySet()) {
+                compileFlattened(rankLookup, rankName, compiled, new HashSet<>());
+            }
+            Set<String> distinct = new HashSet<>();
+            compiled.values().forEach(permissions -> distinct.addAll(permissions.keySet()));
+            nodeCount.set(distinct.size());
+            return compiled;
+        });
+
+        long internedBytes = measureRetained(() -> {
+            NodeDictionary dictionary = new NodeDictionary();
+            CompiledRankRegistry registry = new CompiledRankRegistry(rankLookup, dictionary,
+                    new InheritanceGraph(fixture::values));
+            List<NodeSet> compiled = new ArrayList<>(fixture.size());
+            for (String rankName : fixture.keySet()) {
+                CompiledRank compiledRank = registry.get(rankName);
+                if (compiledRank != null) {
+                    compiled.add(compiledRank.getNodes());
+                }
+            }
+            return List.of(dictionary, compiled);
+        });
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            MessageUtils.sendMessage(sender, "benchmark.header", Map.of("type", live ? "heap live" : "heap"));
+            MessageUtils.sendMessage(sender, "benchmark.heap-result", Map.of(
+                "nodes", String.valueOf(nodeCount.get()),
+                "ranks", String.valueOf(fixture.size()),
+                "legacy", formatKilobytes(legacyBytes),
+                "interned", formatKilobytes(internedBytes),
+                "ratio", String.format("%.1f", (double) legacyBytes / Math.max(1L, internedBytes))
+            ));
+        });
+    }
+
+    /**
+     * Gets read-only snapshots of the server's ranks for the heap benchmark.
+     *
+     * @return The ranks, by lowercase name
+     */
+    private Map<String, Rank> loadHeapRanks() {
+        DataManager dataManager = plugin.getDataManager();
+        Map<String, Rank> ranks = new HashMap<>();
+        for (String rankName : dataManager.getAllRanks().keySet()) {
+            Rank rank = dataManager.getRankSnapshot(rankName);
+            if (rank != null) {
+                ranks.put(rankName.toLowerCase(), rank);
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Generates the ranks measured by the heap benchmark: an inheritance chain in which each
+     * rank adds its own share of the nodes, every tenth of them negated, so every rank
+     * flattens to the nodes of all ranks below it.
+     *
+     * @return The generated ranks, by lowercase name
+     */
+    private static Map<String, Rank> generateHeapRanks() {
+        int nodesPerRank = HEAP_NODES / HEAP_RANKS;
+        Map<String, Rank> ranks = new HashMap<>();
+        for (int i = 0; i < HEAP_RANKS; i++) {
+            Rank rank = new Rank("benchmark" + i);
+            rank.setWeight(i);
+            if (i > 0) {
+                rank.addInheritance("benchmark" + (i - 1));
+            }
+            for (int node = i * nodesPerRank; node < (i + 1) * nodesPerRank; node++) {
+                String permission = "frizzlenperms.benchmark.group" + i + ".node" + node;
+                rank.addPermission(node % 10 != 0 ? permission : "-" + permission);
+            }
+            ranks.put(rank.getName(), rank);
+        }
+        return ranks;
+    }
+
+    /**
+     * Flattens a rank's permissions into a string map the way ranks were compiled before
+     * node interning: parent maps copied in with {@code putAll}, lowest weight first, then
+     * the rank's own nodes with negations last.
+     *
+     * @param rankLookup Looks up a rank by name
+     * @param rankName The name of the rank
+     * @param compiled The ranks flattened so far, by lowercase name
+     * @param visiting The ranks on the current inheritance path, used to break cycles
+     * @return The flattened permissions, or null if the rank does not exist or is part of a cycle
+     */
+    private static Map<String, Boolean> compileFlattened(Function<String, Rank> rankLookup, String rankName,
+                                                         Map<String, Map<String, Boolean>> compiled, Set<String> visiting) {
+        String key = rankName.toLowerCase();
+        Map<String, Boolean> cached = compiled.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Rank rank = rankLookup.apply(rankName);
+        if (rank == null || !visiting.add(key)) {
+            return null;
+        }
+
+        // Inherited ranks lowest weight first, so heavier ranks win conflicts
+        List<Map.Entry<Integer, Map<String, Boolean>>> parents = new ArrayList<>();
+        for (String inheritedRankName : rank.getInheritance()) {
+            Map<String, Boolean> inherited = compileFlattened(rankLookup, inheritedRankName, compiled, visiting);
+            if (inherited != null) {
+                int weight = rankLookup.apply(inheritedRankName).getWeight();
+                parents.add(new AbstractMap.SimpleImmutableEntry<>(weight, inherited));
+            }
+        }
+        parents.sort(Map.Entry.comparingByKey());
+
+        Map<String, Boolean> permissions = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, Boolean>> parent : parents) {
+            permissions.putAll(parent.getValue());
+        }
+        List<String> negated = new ArrayList<>();
+        for (String permission : rank.getPermissions()) {
+            if (permission.startsWith("-")) {
+                negated.add(permission.substring(1));
+            } else {
+                permissions.put(permission, true);
+            }
+        }
+        for (String permission : negated) {
+            permissions.put(permission, false);
+        }
+
+        visiting.remove(key);
+        compiled.put(key, permissions);
+        return permissions;
+    }
+
+    /**
+     * Estimates the heap retained by a structure from the used heap before and after building it.
+     * The result is approximate, since other threads allocate at the same time.
+     *
+     * @param builder Builds the structure to measure
+     * @return The retained size in bytes
+     */
+    private static long measureRetained(Supplier<Object> builder) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object retained = builder.get();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        // Keep the structure reachable until after the second measurement
+        Reference.reachabilityFence(retained);
+        return Math.max(0L, after - before);
+    }
+
+    /**
+     * Compares loading players straight from the configured SQL storage, bypassing the player data
+     * cache, with the {@link LegacyPlayerLoader} that used a query and connection per section against
+     * the current loader. Each online player is loaded several times by both after a warm-up,
+     * alternating rounds so both see the same load. Only the configured backend is measured.
+     * Runs asynchronously, since it blocks on storage.
+     *
+     * @param sender The sender to report to
+     * @param players The players to load
+     */
+    private void benchmarkStorage(CommandSender sender, List<UUID> players) {
+        StorageProvider storage = plugin.getDataManager().getStorageProvider();
+        if (storage == null || players.isEmpty()) {
+            plugin.getServer().getScheduler().runTask(plugin, () ->
+                MessageUtils.sendMessage(sender, "benchmark.storage-no-players"));
+            return;
+        }
+        LegacyPlayerLoader legacyLoader = LegacyPlayerLoader.forStorage(storage, plugin.getLogger());
+        if (legacyLoader == null) {
+            plugin.getServer().getScheduler().runTask(plugin, () ->
+                MessageUtils.sendMessage(sender, "benchmark.storage-no-legacy"));
+            return;
+        }
+
+        // Warm up the connection pool and statement caches
+        for (UUID uuid : players) {
+            legacyLoader.apply(uuid);
+            storage.getPlayerData(uuid);
+        }
+
+        long[] legacy = new long[players.size() * STORAGE_ROUNDS];
+        long[] current = new long[legacy.length];
+        for (int round = 0; round < STORAGE_ROUNDS; round++) {
+            timeLoads(players, legacyLoader, legacy, round * players.size());
+            timeLoads(players, storage::getPlayerData, current, round * players.size());
+        }
+        long legacyAverage = average(legacy);
+        long currentAverage = average(current);
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            MessageUtils.sendMessage(sender, "benchmark.header", Map.of("type", "storage"));
+            MessageUtils.sendMessage(sender, "benchmark.storage-result", Map.of(
+                "storage", plugin.getConfigManager().getStorageType(),
+                "players", String.valueOf(players.size()),
+                "loads", String.valueOf(current.length),
+                "legacy", formatMillis(legacyAverage),
+                "current", formatMillis(currentAverage),
+                "speedup", String.format("%.1f", (double) legacyAverage / Math.max(1L, currentAverage))
+            ));
+            MessageUtils.sendMessage(sender, "benchmark.storage-detail", Map.of(
+                "legacy-p95", formatMillis(percentile95(legacy)),
+                "current-p95", formatMillis(percentile95(current)),
+                "legacy-rate", String.format("%.0f", 1_000_000_000.0 / Math.max(1L, legacyAverage)),
+                "current-rate", String.format("%.0f", 1_000_000_000.0 / Math.max(1L, currentAverage))
+            ));
+        });
+    }
+
+    /**
+     * Loads every player once and records how long each load took.
+     *
+     * @param players The players to load
+     * @param loader The loader to time
+     * @param samples The array to record the load times in, in nanoseconds
+     * @param offset The index of the first sample to record
+     */
+    private static void timeLoads(List<UUID> players, Function<UUID, PlayerData> loader, long[] samples, int offset) {
+        for (int i = 0; i < players.size(); i++) {
+            long start = System.nanoTime();
+            loader.apply(players.get(i));
+            samples[offset + i] = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Gets the average of recorded load times.
+     *
+     * @param samples The load times in nanoseconds
+     * @return The average in nanoseconds
+     */
+    private static long average(long[] samples) {
+        return samples.length == 0 ? 0L : Arrays.stream(samples).sum() / samples.length;
+    }
+
+    /**
+     * Gets the 95th percentile of recorded load times. Sorts the samples.
+     *
+     * @param samples The load times in nanoseconds
+     * @return The 95th percentile in nanoseconds
+     */
+    private static long percentile95(long[] samples) {
+        if (samples.length == 0) {
+            return 0L;
+        }
+        Arrays.sort(samples);
+        return samples[Math.max(0, (int) Math.ceil(samples.length * 0.95) - 1)];
+    }
+
+    /**
+     * Reports the timing breakdown of permission setups since startup or the last reset,
+     * showing how much of each setup runs off the main thread.
+     *
+     * @param sender The sender to report to
+     * @param reset Whether to reset the timings after reporting
+     */
+    private void reportSetup(CommandSender sender, boolean reset) {
+        SetupTimings timings = plugin.getPermissionManager().getSetupTimings();
+        MessageUtils.sendMessage(sender, "benchmark.header", Map.of("type", "setup"));
+        MessageUtils.sendMessage(sender, "benchmark.setup-result", Map.of(
+            "count", String.valueOf(timings.getCount()),
+            "resolve", formatMillis(timings.getAverageResolveNanos()),
+            "apply", formatMillis(timings.getAverageApplyNanos()),
+            "max", formatMillis(timings.getMaxApplyNanos()),
+            "refresh", formatMillis(timings.getAverageRefreshNanos()),
+            "refresh-max", formatMillis(timings.getMaxRefreshNanos())
+        ));
+
+        if (reset) {
+            timings.reset();
+        }
+    }
+
+    /**
+     * Formats a duration in nanoseconds as milliseconds.
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The formatted duration
+     */
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Formats a size in bytes as kilobytes.
+     *
+     * @param bytes The size in bytes
+     * @return The formatted size
+     */
+    private static String formatKilobytes(long bytes) {
+        return String.format("%.0f", bytes / 1024.0);
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        if (args.length == 1) {
+            String partial = args[0].toLowerCase();
+            return TYPES.stream()
+                .filter(type -> type.startsWith(partial))
+                .collect(Collectors.toList());
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("heap") && "live".startsWith(args[1].toLowerCase())) {
+            return List.of("live");
+        }
+        return List.of();
+    }
+}
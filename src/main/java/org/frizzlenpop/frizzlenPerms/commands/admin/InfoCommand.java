@@ -3,7 +3,10 @@ package org.frizzlenpop.frizzlenPerms.commands.admin;
 import org.bukkit.command.CommandSender;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.commands.SubCommand;
+import org.frizzlenpop.frizzlenPerms.data.PlayerDataWriter;
+import org.frizzlenpop.frizzlenPerms.data.PlayerStatistics;
 import org.frizzlenpop.frizzlenPerms.models.Rank;
+import org.frizzlenpop.frizzlenPerms.permissions.RecalculationScheduler;
 import org.frizzlenpop.frizzlenPerms.utils.MessageUtils;
 
 import java.util.List;
@@ -73,7 +76,9 @@ public class InfoCommand implements SubCommand {
                 });
                 
                 // Count players with data
-                int playerCount = plugin.getDataManager().getAllPlayerData().size();
+                PlayerStatistics statistics = plugin.getDataManager().getPlayerStatistics();
+                int playerCount = statistics.getTotalPlayers();
+                int linkedCount = statistics.getDiscordLinkedPlayers();
                 
                 // Get default rank
                 String defaultRankName = "None";
@@ -112,6 +117,9 @@ public class InfoCommand implements SubCommand {
                         MessageUtils.sendMessage(sender, "admin.info-players", Map.of(
                             "count", String.valueOf(playerCount)
                         ));
+                        MessageUtils.sendMessage(sender, "admin.info-discord-links", Map.of(
+                            "count", String.valueOf(linkedCount)
+                        ));
                         
                         // Default rank
                         MessageUtils.sendMessage(sender, "admin.info-default-rank", Map.of(
@@ -123,6 +131,24 @@ public class InfoCommand implements SubCommand {
                             "type", finalStorageType,
                             "sync", syncEnabled ? "Enabled" : "Disabled"
                         ));
+                        
+                        // Recalculation queue
+                        RecalculationScheduler scheduler = plugin.getPermissionManager().getRecalculationScheduler();
+                        MessageUtils.sendMessage(sender, "admin.info-recalculation", Map.of(
+                            "queued", String.valueOf(scheduler.getQueueDepth()),
+                            "requested", String.valueOf(scheduler.getRequestedCount()),
+                            "executed", String.valueOf(scheduler.getExecutedCount())
+                        ));
+                        
+                        // Write-behind queue
+                        PlayerDataWriter writer = plugin.getDataManager().getPlayerDataWriter();
+                        MessageUtils.sendMessage(sender, "admin.info-write-queue", Map.of(
+                            "queued", String.valueOf(writer.getQueueDepth()),
+                            "written", String.valueOf(writer.getWrittenCount()),
+                            "batches", String.valueOf(writer.getBatchCount()),
+                            "last", String.format("%.2f", writer.getLastFlushMillis()),
+                            "average", String.format("%.2f", writer.getAverageFlushMillis())
+                        ));
                     } catch (Exception e) {
                         plugin.getLogger().severe("Error sending info messages: " + e.getMessage());
                         MessageUtils.sendMessage(sender, "error.internal-error");
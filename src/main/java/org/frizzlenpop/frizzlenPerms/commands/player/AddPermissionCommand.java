@@ -114,12 +114,10 @@ public class AddPermissionCommand implements SubCommand {
             // Add the permission
             if (world == null) {
                 // Add global permission
-                playerData.getPermissions().add(permission);
+                playerData.addPermission(permission);
             } else {
                 // Add world-specific permission
-                Map<String, Set<String>> worldPerms = playerData.getWorldPermissions();
-                Set<String> perms = worldPerms.computeIfAbsent(world, k -> new HashSet<>());
-                perms.add(permission);
+                playerData.addWorldPermission(world, permission);
             }
             
             // Save the changes
@@ -80,7 +80,7 @@ public class AddRankCommand implements SubCommand {
         }
         
         // Get rank
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -109,7 +109,7 @@ public class AddRankCommand implements SubCommand {
         // Add the secondary rank
         try {
             // Add the rank to the player's data
-            playerData.getSecondaryRanks().add(rank.getName());
+            playerData.addSecondaryRank(rank.getName());
             plugin.getDataManager().savePlayerData(playerData);
             
             // Update permissions if player is online
@@ -91,7 +91,7 @@ public class AddTempRankCommand implements SubCommand {
         }
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -1,6 +1,7 @@
 package org.frizzlenpop.frizzlenPerms.commands.player;
 
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
@@ -9,6 +10,7 @@ import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import org.frizzlenpop.frizzlenPerms.utils.MessageUtils;
 
 import java.util.*;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +41,7 @@ public class CheckPermissionCommand implements SubCommand {
     
     @Override
     public String getUsage() {
-        return "/frizzlenperms checkpermission <player> <permission>";
+        return "/frizzlenperms checkpermission <player> <permission> [world]";
     }
     
     @Override
@@ -68,66 +70,27 @@ public class CheckPermissionCommand implements SubCommand {
         
         String playerName = args[0];
         String permission = args[1];
+        String worldName = args.length > 2 ? args[2] : null;
         
         // Check if player is online
         Player targetPlayer = Bukkit.getPlayer(playerName);
+        if (targetPlayer != null && worldName != null) {
+            // Resolve another world from the player's data and the compiled ranks
+            checkResolved(sender, targetPlayer.getUniqueId(), targetPlayer.getName(), permission, worldName);
+            return true;
+        }
         if (targetPlayer == null) {
-            // Try to check in the player data (offline)
-            PlayerData playerData = plugin.getDataManager().getPlayerDataByName(playerName);
-            if (playerData == null) {
-                MessageUtils.sendMessage(sender, "error.player-not-found", Map.of(
-                    "player", playerName
-                ));
-                return false;
-            }
-            
-            // Check directly in player data (rough estimate, not accounting for inheritance)
-            boolean hasDirectPerm = playerData.getPermissions().contains(permission);
-            boolean hasNegatedPerm = playerData.getPermissions().contains("-" + permission);
-            
-            if (hasNegatedPerm) {
-                MessageUtils.sendMessage(sender, "admin.checkperm-offline-negated", Map.of(
-                    "player", playerName,
-                    "permission", permission
-                ));
-            } else if (hasDirectPerm) {
-                MessageUtils.sendMessage(sender, "admin.checkperm-offline-has", Map.of(
-                    "player", playerName,
-                    "permission", permission
-                ));
-            } else {
-                // Check if any of the player's ranks grant this permission
-                boolean hasRankPerm = false;
-                String primaryRank = playerData.getPrimaryRank();
-                
-                // Check primary rank
-                if (primaryRank != null) {
-                    hasRankPerm = checkRankPermission(primaryRank, permission);
+            // Look up offline players without caching them, then resolve from their data
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                PlayerData playerData = plugin.getDataManager().getPlayerDataByNameUncached(playerName);
+                if (playerData == null) {
+                    Bukkit.getScheduler().runTask(plugin, () -> MessageUtils.sendMessage(sender, "error.player-not-found", Map.of(
+                        "player", playerName
+                    )));
+                    return;
                 }
-                
-                // Check secondary ranks if needed
-                if (!hasRankPerm) {
-                    for (String rankName : playerData.getSecondaryRanks()) {
-                        if (checkRankPermission(rankName, permission)) {
-                            hasRankPerm = true;
-                            break;
-                        }
-                    }
-                }
-                
-                if (hasRankPerm) {
-                    MessageUtils.sendMessage(sender, "admin.checkperm-offline-has-rank", Map.of(
-                        "player", playerName,
-                        "permission", permission
-                    ));
-                } else {
-                    MessageUtils.sendMessage(sender, "admin.checkperm-offline-doesnt-have", Map.of(
-                        "player", playerName,
-                        "permission", permission
-                    ));
-                }
-            }
-            
+                checkResolved(sender, playerData.getUuid(), playerData.getPlayerName(), permission, worldName);
+            });
             return true;
         }
         
@@ -150,41 +113,34 @@ public class CheckPermissionCommand implements SubCommand {
     }
     
     /**
-     * Checks if a rank grants a permission.
+     * Resolves a player's permissions and reports whether they have a permission.
+     * The result is reported on the main thread.
      *
-     * @param rankName The rank name
+     * @param sender The sender to report to
+     * @param uuid The UUID of the player
+     * @param playerName The name of the player
      * @param permission The permission to check
-     * @return True if the rank grants the permission, false otherwise
+     * @param worldName The world to check in, or null to ignore world-specific permissions
      */
-    private boolean checkRankPermission(String rankName, String permission) {
-        // Get the rank
-        org.frizzlenpop.frizzlenPerms.models.Rank rank = plugin.getRankManager().getRank(rankName);
-        if (rank == null) {
-            return false;
-        }
-        
-        // Check if the rank grants the permission
-        if (rank.getPermissions().contains(permission)) {
-            return true;
-        }
-        
-        // Check for wildcard permissions
-        String permBase = permission;
-        while (permBase.contains(".")) {
-            permBase = permBase.substring(0, permBase.lastIndexOf('.'));
-            if (rank.getPermissions().contains(permBase + ".*")) {
-                return true;
-            }
-        }
-        
-        // Check inherited ranks (recursive)
-        for (String inheritedRank : rank.getInheritance()) {
-            if (!inheritedRank.equals(rankName) && checkRankPermission(inheritedRank, permission)) {
-                return true;
-            }
-        }
-        
-        return false;
+    private void checkResolved(CommandSender sender, UUID uuid, String playerName, String permission, String worldName) {
+        plugin.getPermissionManager().getPermissionResolver().resolve(uuid, worldName)
+            .whenComplete((resolved, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to resolve permissions of " + playerName, error);
+                    MessageUtils.sendMessage(sender, "error.internal-error", Map.of(
+                        "error", String.valueOf(error.getMessage())
+                    ));
+                    return;
+                }
+                
+                Boolean value = resolved != null ? resolved.resolve(permission) : null;
+                String message = value == null ? "admin.checkperm-offline-doesnt-have"
+                        : value ? "admin.checkperm-offline-has" : "admin.checkperm-offline-negated";
+                MessageUtils.sendMessage(sender, message, Map.of(
+                    "player", playerName,
+                    "permission", permission
+                ));
+            }));
     }
     
     @Override
@@ -208,6 +164,13 @@ public class CheckPermissionCommand implements SubCommand {
             return commonPerms.stream()
                 .filter(perm -> perm.toLowerCase().startsWith(partial))
                 .collect(Collectors.toList());
+        } else if (args.length == 3) {
+            // Suggest world names
+            String partial = args[2].toLowerCase();
+            return Bukkit.getWorlds().stream()
+                .map(World::getName)
+                .filter(name -> name.toLowerCase().startsWith(partial))
+                .collect(Collectors.toList());
         }
         
         return Collections.emptyList();
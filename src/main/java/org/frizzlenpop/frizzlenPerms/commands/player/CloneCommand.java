@@ -139,20 +139,18 @@ public class CloneCommand implements SubCommand {
                 
                 // Clone data
                 targetPlayerData.setPrimaryRank(sourcePlayerData.getPrimaryRank());
-                targetPlayerData.getSecondaryRanks().clear();
-                targetPlayerData.getSecondaryRanks().addAll(sourcePlayerData.getSecondaryRanks());
-                targetPlayerData.getPermissions().clear();
-                targetPlayerData.getPermissions().addAll(sourcePlayerData.getPermissions());
+                targetPlayerData.setSecondaryRanks(sourcePlayerData.getSecondaryRanks());
+                targetPlayerData.setPermissions(sourcePlayerData.getPermissions());
                 
                 // Clone temporary ranks and permissions
-                targetPlayerData.getTemporaryRanks().clear();
-                targetPlayerData.getTemporaryRanks().putAll(sourcePlayerData.getTemporaryRanks());
-                targetPlayerData.getTemporaryPermissions().clear();
-                targetPlayerData.getTemporaryPermissions().putAll(sourcePlayerData.getTemporaryPermissions());
+                targetPlayerData.clearTemporaryRanks();
+                sourcePlayerData.getTemporaryRanks().forEach(targetPlayerData::addTemporaryRank);
+                targetPlayerData.clearTemporaryPermissions();
+                sourcePlayerData.getTemporaryPermissions().forEach(targetPlayerData::addTemporaryPermission);
                 
                 // Clone world-specific permissions
-                targetPlayerData.getWorldPermissions().clear();
-                targetPlayerData.getWorldPermissions().putAll(sourcePlayerData.getWorldPermissions());
+                targetPlayerData.clearWorldPermissions();
+                sourcePlayerData.getWorldPermissions().forEach(targetPlayerData::setWorldPermissions);
                 
                 // Save target player data
                 plugin.getDataManager().savePlayerData(targetPlayerData);
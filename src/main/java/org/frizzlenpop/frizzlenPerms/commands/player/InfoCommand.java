@@ -101,7 +101,7 @@ public class InfoCommand implements SubCommand {
         // Primary rank
         Rank primaryRank = null;
         if (playerData.getPrimaryRank() != null) {
-            primaryRank = plugin.getRankManager().getRank(playerData.getPrimaryRank());
+            primaryRank = plugin.getRankManager().getRankSnapshot(playerData.getPrimaryRank());
         }
         
         MessageUtils.sendMessage(sender, "player.info-primary-rank", Map.of(
@@ -115,7 +115,7 @@ public class InfoCommand implements SubCommand {
         } else {
             List<String> rankNames = new ArrayList<>();
             for (String rankName : secondaryRanks) {
-                Rank rank = plugin.getRankManager().getRank(rankName);
+                Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
                 if (rank != null) {
                     rankNames.add(rank.getDisplayName());
                 }
@@ -148,7 +148,7 @@ public class InfoCommand implements SubCommand {
             if (!tempRanks.isEmpty()) {
                 MessageUtils.sendMessage(sender, "player.info-temp-ranks-header");
                 for (Map.Entry<String, Long> entry : tempRanks.entrySet()) {
-                    Rank rank = plugin.getRankManager().getRank(entry.getKey());
+                    Rank rank = plugin.getRankManager().getRankSnapshot(entry.getKey());
                     String rankName = rank != null ? rank.getDisplayName() : entry.getKey();
                     long expiry = entry.getValue();
                     long remaining = expiry - System.currentTimeMillis();
@@ -5,6 +5,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.commands.SubCommand;
+import org.frizzlenpop.frizzlenPerms.data.PlayerStatistics;
 import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import org.frizzlenpop.frizzlenPerms.models.Rank;
 import org.frizzlenpop.frizzlenPerms.utils.MessageUtils;
@@ -68,27 +69,40 @@ public class ListCommand implements SubCommand {
         
         // Get the specified rank
         String rankName = args[0];
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of("rank", rankName));
             return true;
         }
         
-        // Get all players with this rank
-        List<PlayerData> allPlayers = plugin.getDataManager().getAllPlayerData();
-        List<PlayerData> playersWithRank = new ArrayList<>();
-        
-        for (PlayerData playerData : allPlayers) {
-            if (rankName.equals(playerData.getPrimaryRank()) || 
-                playerData.getSecondaryRanks().contains(rankName)) {
-                playersWithRank.add(playerData);
-            }
-        }
-        
-        // Sort by name
-        playersWithRank.sort(Comparator.comparing(PlayerData::getPlayerName));
+        // Scan the stored players off the main thread, then show them on it
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<PlayerData> playersWithRank = new ArrayList<>();
+            plugin.getDataManager().forEachPlayer(EnumSet.noneOf(PlayerData.Section.class), playerData -> {
+                if (holdsRank(playerData, rank.getName())) {
+                    playersWithRank.add(playerData);
+                }
+            });
+            
+            // Sort by name
+            playersWithRank.sort(Comparator.comparing(PlayerData::getPlayerName));
+            
+            plugin.getServer().getScheduler().runTask(plugin, () -> listPlayers(sender, rank, playersWithRank));
+        });
         
+        return true;
+    }
+    
+    /**
+     * Shows the players with a rank, split into online and offline players.
+     * Runs on the main thread.
+     *
+     * @param sender The command sender
+     * @param rank The rank
+     * @param playersWithRank The players with the rank, sorted by name
+     */
+    private void listPlayers(CommandSender sender, Rank rank, List<PlayerData> playersWithRank) {
         // Display results
         MessageUtils.sendMessage(sender, "player.list-header", Map.of(
             "rank", rank.getDisplayName(),
@@ -97,7 +111,7 @@ public class ListCommand implements SubCommand {
         
         if (playersWithRank.isEmpty()) {
             MessageUtils.sendMessage(sender, "player.list-empty");
-            return true;
+            return;
         }
         
         // Split into online and offline players
@@ -138,8 +152,25 @@ public class ListCommand implements SubCommand {
                 "players", offlineList
             ));
         }
-        
-        return true;
+    }
+    
+    /**
+     * Checks if a player holds a rank as primary or secondary rank, ignoring case.
+     *
+     * @param playerData The player data
+     * @param rankName The name of the rank
+     * @return Whether the player holds the rank
+     */
+    private static boolean holdsRank(PlayerData playerData, String rankName) {
+        if (rankName.equalsIgnoreCase(playerData.getPrimaryRank())) {
+            return true;
+        }
+        for (String secondaryRank : playerData.getSecondaryRanks()) {
+            if (rankName.equalsIgnoreCase(secondaryRank)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -149,34 +180,43 @@ public class ListCommand implements SubCommand {
      */
     private void listAllRanks(CommandSender sender) {
         List<Rank> ranks = plugin.getRankManager().getAllRanks();
-        List<PlayerData> allPlayers = plugin.getDataManager().getAllPlayerData();
         
-        MessageUtils.sendMessage(sender, "player.list-all-ranks-header");
+        // Online members are counted from the loaded data of online players
+        Map<String, Integer> online = new HashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            PlayerData playerData = plugin.getDataManager().getPlayerData(player.getUniqueId());
+            if (playerData == null) {
+                continue;
+            }
+            
+            Set<String> playerRanks = new HashSet<>();
+            for (String rankName : playerData.getSecondaryRanks()) {
+                playerRanks.add(rankName.toLowerCase(Locale.ROOT));
+            }
+            if (playerData.getPrimaryRank() != null) {
+                playerRanks.add(playerData.getPrimaryRank().toLowerCase(Locale.ROOT));
+            }
+            for (String rankName : playerRanks) {
+                online.merge(rankName, 1, Integer::sum);
+            }
+        }
         
-        for (Rank rank : ranks) {
-            int count = 0;
-            int online = 0;
+        // Stored members are counted by the storage, off the main thread
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            PlayerStatistics statistics = plugin.getDataManager().getPlayerStatistics();
             
-            for (PlayerData playerData : allPlayers) {
-                boolean hasRank = rank.getName().equals(playerData.getPrimaryRank()) || 
-                                 playerData.getSecondaryRanks().contains(rank.getName());
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                MessageUtils.sendMessage(sender, "player.list-all-ranks-header");
                 
-                if (hasRank) {
-                    count++;
-                    
-                    Player player = Bukkit.getPlayer(playerData.getUuid());
-                    if (player != null && player.isOnline()) {
-                        online++;
-                    }
+                for (Rank rank : ranks) {
+                    MessageUtils.sendMessage(sender, "player.list-rank-entry", Map.of(
+                        "rank", rank.getDisplayName(),
+                        "count", String.valueOf(statistics.getRankMembers(rank.getName())),
+                        "online", String.valueOf(online.getOrDefault(rank.getName().toLowerCase(Locale.ROOT), 0))
+                    ));
                 }
-            }
-            
-            MessageUtils.sendMessage(sender, "player.list-rank-entry", Map.of(
-                "rank", rank.getDisplayName(),
-                "count", String.valueOf(count),
-                "online", String.valueOf(online)
-            ));
-        }
+            });
+        });
     }
     
     @Override
@@ -189,4 +229,4 @@ public class ListCommand implements SubCommand {
         }
         return Collections.emptyList();
     }
-} 
\ No newline at end of file
+} 
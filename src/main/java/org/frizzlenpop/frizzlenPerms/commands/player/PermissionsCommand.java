@@ -94,7 +94,7 @@ public class PermissionsCommand implements SubCommand {
         }
         
         // Check if target is a rank
-        Rank rank = plugin.getRankManager().getRank(target);
+        Rank rank = plugin.getRankManager().getRankSnapshot(target);
         if (rank != null) {
             return showRankPermissions(sender, rank, page);
         }
@@ -136,14 +136,14 @@ public class PermissionsCommand implements SubCommand {
         // Add rank permissions
         String primaryRank = playerData.getPrimaryRank();
         if (primaryRank != null) {
-            Rank rank = plugin.getRankManager().getRank(primaryRank);
+            Rank rank = plugin.getRankManager().getRankSnapshot(primaryRank);
             if (rank != null) {
                 permissions.addAll(rank.getPermissions());
             }
         }
         
         for (String rankName : playerData.getSecondaryRanks()) {
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             if (rank != null) {
                 permissions.addAll(rank.getPermissions());
             }
@@ -175,14 +175,14 @@ public class PermissionsCommand implements SubCommand {
         // Add rank permissions
         String primaryRank = playerData.getPrimaryRank();
         if (primaryRank != null) {
-            Rank rank = plugin.getRankManager().getRank(primaryRank);
+            Rank rank = plugin.getRankManager().getRankSnapshot(primaryRank);
             if (rank != null) {
                 permissions.addAll(rank.getPermissions());
             }
         }
         
         for (String rankName : playerData.getSecondaryRanks()) {
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             if (rank != null) {
                 permissions.addAll(rank.getPermissions());
             }
@@ -206,7 +206,7 @@ public class PermissionsCommand implements SubCommand {
         
         // Add inherited permissions
         for (String inheritedRankName : rank.getInheritance()) {
-            Rank inheritedRank = plugin.getRankManager().getRank(inheritedRankName);
+            Rank inheritedRank = plugin.getRankManager().getRankSnapshot(inheritedRankName);
             if (inheritedRank != null) {
                 permissions.addAll(inheritedRank.getPermissions());
             }
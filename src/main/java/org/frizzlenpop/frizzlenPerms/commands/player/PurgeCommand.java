@@ -108,13 +108,13 @@ public class PurgeCommand implements SubCommand {
                 if (playerData != null) {
                     // Clear ranks
                     playerData.setPrimaryRank(null);
-                    playerData.getSecondaryRanks().clear();
-                    playerData.getTemporaryRanks().clear();
+                    playerData.setSecondaryRanks(null);
+                    playerData.clearTemporaryRanks();
                     
                     // Clear permissions
-                    playerData.getPermissions().clear();
-                    playerData.getTemporaryPermissions().clear();
-                    playerData.getWorldPermissions().clear();
+                    playerData.setPermissions(null);
+                    playerData.clearTemporaryPermissions();
+                    playerData.clearWorldPermissions();
                     
                     // Save cleared data before purging
                     plugin.getDataManager().savePlayerData(playerData);
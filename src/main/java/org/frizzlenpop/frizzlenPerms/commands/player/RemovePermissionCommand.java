@@ -117,17 +117,10 @@ public class RemovePermissionCommand implements SubCommand {
             // Remove the permission
             if (world == null) {
                 // Remove global permission
-                playerData.getPermissions().remove(permission);
+                playerData.removePermission(permission);
             } else {
-                // Remove world-specific permission
-                Map<String, Set<String>> worldPerms = playerData.getWorldPermissions();
-                if (worldPerms.containsKey(world)) {
-                    worldPerms.get(world).remove(permission);
-                    // Remove empty set if no more permissions for this world
-                    if (worldPerms.get(world).isEmpty()) {
-                        worldPerms.remove(world);
-                    }
-                }
+                // Remove world-specific permission, and the world once it has none left
+                playerData.removeWorldPermission(world, permission);
             }
             
             // Save the changes
@@ -81,7 +81,7 @@ public class RemoveRankCommand implements SubCommand {
         }
         
         // Get rank
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -110,7 +110,7 @@ public class RemoveRankCommand implements SubCommand {
         // Remove the secondary rank
         try {
             // Remove the rank from the player's data
-            playerData.getSecondaryRanks().remove(rank.getName());
+            playerData.removeSecondaryRank(rank.getName());
             plugin.getDataManager().savePlayerData(playerData);
             
             // Update permissions if player is online
@@ -72,7 +72,7 @@ public class RemoveTempRankCommand implements SubCommand {
         String rankName = args[1];
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -128,7 +128,8 @@ public class RemoveTempRankCommand implements SubCommand {
                 }
                 
                 // Remove temp rank
-                playerData.removeTemporaryRank(rankName);
+                Rank defaultRank = plugin.getDataManager().getDefaultRankSnapshot();
+                playerData.revokeTemporaryRank(rankName, defaultRank != null ? defaultRank.getName() : null);
                 plugin.getDataManager().savePlayerData(playerData);
                 
                 // Log action
@@ -80,7 +80,7 @@ public class SetRankCommand implements SubCommand {
         }
         
         // Get rank
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
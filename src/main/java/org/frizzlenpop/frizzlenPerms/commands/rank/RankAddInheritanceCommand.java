@@ -79,7 +79,7 @@ public class RankAddInheritanceCommand implements SubCommand {
         }
         
         // Check if parent rank exists
-        Rank parent = plugin.getRankManager().getRank(parentName);
+        Rank parent = plugin.getRankManager().getRankSnapshot(parentName);
         if (parent == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", parentName
@@ -118,6 +118,7 @@ public class RankAddInheritanceCommand implements SubCommand {
             try {
                 // Add inheritance
                 rank.addInheritance(parentName);
+                plugin.getDataManager().saveRank(rank);
                 plugin.getRankManager().addRankPermission(rankName, "inherit." + parentName, sender instanceof Player ? (Player) sender : null);
                 
                 // Log to audit log
@@ -149,11 +150,7 @@ public class RankAddInheritanceCommand implements SubCommand {
                 ));
                 
                 // Update permissions for all online players with this rank
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    plugin.getServer().getOnlinePlayers().stream()
-                        .filter(player -> plugin.getPermissionManager().hasRank(player, rank.getName()))
-                        .forEach(player -> plugin.getPermissionManager().calculateAndApplyPermissions(player));
-                });
+                plugin.getPermissionManager().scheduleRankHolders(rank.getName());
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Error adding rank inheritance: " + e.getMessage());
@@ -173,36 +170,7 @@ public class RankAddInheritanceCommand implements SubCommand {
      * @return True if it would create a circular inheritance
      */
     private boolean hasCircularInheritance(String rankName, String parentName) {
-        Set<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-        
-        // Start with the parent rank
-        queue.add(parentName);
-        
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
-            
-            if (visited.contains(current)) {
-                continue;
-            }
-            
-            visited.add(current);
-            
-            // If we find the original rank in the inheritance chain, it's circular
-            if (current.equals(rankName)) {
-                return true;
-            }
-            
-            // Add all inheritances of the current rank to the queue
-            Rank currentRank = plugin.getRankManager().getRank(current);
-            if (currentRank != null) {
-                for (String inheritance : currentRank.getInheritance()) {
-                    queue.add(inheritance);
-                }
-            }
-        }
-        
-        return false;
+        return plugin.getPermissionManager().getInheritanceGraph().wouldCreateCycle(rankName, parentName);
     }
     
     @Override
@@ -220,7 +188,7 @@ public class RankAddInheritanceCommand implements SubCommand {
         } else if (args.length == 2) {
             // Suggest parent rank names (excluding the selected rank and ranks that already inherit from it)
             String rankName = args[0];
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             
             if (rank != null) {
                 List<String> possibleParents = plugin.getRankManager().getAllRanks().stream()
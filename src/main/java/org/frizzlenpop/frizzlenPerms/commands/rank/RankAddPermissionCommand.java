@@ -70,7 +70,7 @@ public class RankAddPermissionCommand implements SubCommand {
         final boolean value = args.length < 3 || !args[2].equalsIgnoreCase("false");
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -125,17 +125,7 @@ public class RankAddPermissionCommand implements SubCommand {
                 ));
                 
                 // Recalculate permissions for all online players with this rank
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    plugin.getServer().getOnlinePlayers().stream()
-                        .filter(player -> {
-                            try {
-                                return plugin.getPermissionManager().hasRank(player, rank.getName());
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .forEach(player -> plugin.getPermissionManager().calculateAndApplyPermissions(player));
-                });
+                plugin.getPermissionManager().scheduleRankHolders(rank.getName());
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Error adding permission to rank: " + e.getMessage());
@@ -75,7 +75,7 @@ public class RankCreateCommand implements SubCommand {
         }
         
         // Check if rank already exists
-        if (plugin.getRankManager().getRank(rankName) != null) {
+        if (plugin.getRankManager().getRankSnapshot(rankName) != null) {
             MessageUtils.sendMessage(sender, "ranks.rank-exists", Map.of("rank", rankName));
             return true;
         }
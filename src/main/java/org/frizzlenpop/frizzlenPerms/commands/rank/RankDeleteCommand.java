@@ -70,7 +70,7 @@ public class RankDeleteCommand implements SubCommand {
         final String rankName = args[0];
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
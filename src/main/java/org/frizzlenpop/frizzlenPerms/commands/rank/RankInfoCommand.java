@@ -65,7 +65,7 @@ public class RankInfoCommand implements SubCommand {
         }
         
         String rankName = args[0];
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
@@ -113,7 +113,7 @@ public class RankInfoCommand implements SubCommand {
             MessageUtils.sendMessage(sender, "ranks.info-inheritance", Map.of(
                 "inheritance", inheritance.stream()
                     .map(name -> {
-                        Rank parent = plugin.getRankManager().getRank(name);
+                        Rank parent = plugin.getRankManager().getRankSnapshot(name);
                         return parent != null ? parent.getDisplayName() : name;
                     })
                     .collect(Collectors.joining(", "))
@@ -191,7 +191,7 @@ public class RankInfoCommand implements SubCommand {
             // If rank and "world" are specified, suggest world names
             String partial = args[2].toLowerCase();
             String rankName = args[0];
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             
             if (rank != null) {
                 // Suggest worlds from the rank's world permissions
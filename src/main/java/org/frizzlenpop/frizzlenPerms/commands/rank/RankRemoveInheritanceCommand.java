@@ -79,7 +79,7 @@ public class RankRemoveInheritanceCommand implements SubCommand {
         }
         
         // Check if parent rank exists
-        Rank parent = plugin.getRankManager().getRank(parentName);
+        Rank parent = plugin.getRankManager().getRankSnapshot(parentName);
         if (parent == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", parentName
@@ -101,6 +101,7 @@ public class RankRemoveInheritanceCommand implements SubCommand {
             try {
                 // Remove inheritance
                 rank.removeInheritance(parentName);
+                plugin.getDataManager().saveRank(rank);
                 plugin.getRankManager().removePermissionFromRank(rankName, "inherit." + parentName, sender instanceof Player ? (Player) sender : null);
                 
                 // Log to audit log
@@ -134,17 +135,7 @@ public class RankRemoveInheritanceCommand implements SubCommand {
                 });
                 
                 // Update permissions for all online players with this rank
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    plugin.getServer().getOnlinePlayers().stream()
-                        .filter(player -> {
-                            try {
-                                return plugin.getPermissionManager().hasRank(player, rank.getName());
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .forEach(player -> plugin.getPermissionManager().calculateAndApplyPermissions(player));
-                });
+                plugin.getPermissionManager().scheduleRankHolders(rank.getName());
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Error removing rank inheritance: " + e.getMessage());
@@ -171,7 +162,7 @@ public class RankRemoveInheritanceCommand implements SubCommand {
         } else if (args.length == 2) {
             // Suggest parent rank names that the rank inherits from
             String rankName = args[0];
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             
             if (rank != null && !rank.getInheritance().isEmpty()) {
                 List<String> inheritances = new ArrayList<>(rank.getInheritance());
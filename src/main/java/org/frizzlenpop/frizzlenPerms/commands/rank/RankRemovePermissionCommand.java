@@ -70,7 +70,7 @@ public class RankRemovePermissionCommand implements SubCommand {
         final String permission = args[1];
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -124,17 +124,7 @@ public class RankRemovePermissionCommand implements SubCommand {
                 });
                 
                 // Recalculate permissions for all online players with this rank
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    plugin.getServer().getOnlinePlayers().stream()
-                        .filter(player -> {
-                            try {
-                                return plugin.getPermissionManager().hasRank(player, rank.getName());
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .forEach(player -> plugin.getPermissionManager().calculateAndApplyPermissions(player));
-                });
+                plugin.getPermissionManager().scheduleRankHolders(rank.getName());
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Error removing permission from rank: " + e.getMessage());
@@ -161,7 +151,7 @@ public class RankRemovePermissionCommand implements SubCommand {
         } else if (args.length == 2) {
             // Suggest permissions from the selected rank
             String rankName = args[0];
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             
             if (rank != null) {
                 List<String> permissions = new ArrayList<>(rank.getPermissions());
@@ -78,7 +78,7 @@ public class RankSetDisplayNameCommand implements SubCommand {
         final String displayName = displayNameBuilder.toString();
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -169,7 +169,7 @@ public class RankSetDisplayNameCommand implements SubCommand {
         } else if (args.length == 2) {
             // Suggest display name based on current rank name
             String rankName = args[0];
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             
             if (rank != null) {
                 String currentName = rank.getName();
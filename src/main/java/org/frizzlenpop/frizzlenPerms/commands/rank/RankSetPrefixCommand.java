@@ -78,7 +78,7 @@ public class RankSetPrefixCommand implements SubCommand {
         final String prefix = prefixBuilder.toString();
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -79,7 +79,7 @@ public class RankSetWeightCommand implements SubCommand {
         }
         
         // Check if rank exists
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             MessageUtils.sendMessage(sender, "error.rank-not-found", Map.of(
                 "rank", rankName
@@ -133,17 +133,7 @@ public class RankSetWeightCommand implements SubCommand {
                 ));
                 
                 // Recalculate permissions for all online players with this rank
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    plugin.getServer().getOnlinePlayers().stream()
-                        .filter(player -> {
-                            try {
-                                return plugin.getPermissionManager().hasRank(player, rank.getName());
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .forEach(player -> plugin.getPermissionManager().calculateAndApplyPermissions(player));
-                });
+                plugin.getPermissionManager().scheduleRankHolders(rank.getName());
                 
             } catch (Exception e) {
                 plugin.getLogger().severe("Error setting rank weight: " + e.getMessage());
@@ -169,7 +159,7 @@ public class RankSetWeightCommand implements SubCommand {
                 .collect(Collectors.toList());
         } else if (args.length == 2) {
             // Suggest common weights
-            Rank rank = plugin.getRankManager().getRank(args[0]);
+            Rank rank = plugin.getRankManager().getRankSnapshot(args[0]);
             if (rank != null) {
                 int currentWeight = rank.getWeight();
                 List<String> suggestions = new ArrayList<>();
@@ -4,14 +4,18 @@ import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.models.AuditLog;
 import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import org.frizzlenpop.frizzlenPerms.models.Rank;
+import org.frizzlenpop.frizzlenPerms.permissions.PermissionManager;
 import org.frizzlenpop.frizzlenPerms.utils.LogManager;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Manager for data storage and retrieval.
@@ -24,8 +28,10 @@ public class DataManager {
     
     // Cache for player data
     private final Map<UUID, PlayerData> playerDataCache = new ConcurrentHashMap<>();
-    // Cache for ranks
-    private final Map<String, Rank> rankCache = new ConcurrentHashMap<>();
+    // Published rank snapshots
+    private final RankRegistry rankRegistry = new RankRegistry();
+    // Background writes of player data
+    private final PlayerDataWriter playerDataWriter;
     
     /**
      * Creates a new DataManager with the specified plugin instance.
@@ -34,6 +40,7 @@ public class DataManager {
      */
     public DataManager(FrizzlenPerms plugin) {
         this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+        this.playerDataWriter = new PlayerDataWriter(plugin, () -> storageProvider);
     }
     
     /**
@@ -59,10 +66,10 @@ public class DataManager {
                 
                 storageProvider.initialize();
                 
-                // Load all ranks into cache
+                // Load all ranks into the registry
                 Map<String, Rank> ranks = storageProvider.getAllRanks();
                 if (ranks != null) {
-                    rankCache.putAll(ranks);
+                    rankRegistry.load(ranks.values());
                 }
                 
                 plugin.getLogger().info("Data manager initialized with " + storageType + " storage.");
@@ -83,18 +90,24 @@ public class DataManager {
     }
     
     /**
-     * Saves all data to storage.
+     * Saves all data to storage, waiting a bounded time for queued player data to be written.
      */
     public void saveAll() {
         if (storageProvider != null) {
             try {
-                // Save player data cache
+                // Queue the player data cache and drain the queue
                 for (PlayerData playerData : playerDataCache.values()) {
-                    storageProvider.savePlayerData(playerData);
+                    playerDataWriter.enqueue(playerData);
+                }
+                long timeoutMillis = plugin.getConfigManager().getWriteBehindDrainTimeoutMillis();
+                int remaining = playerDataWriter.drain(timeoutMillis);
+                if (remaining > 0) {
+                    plugin.getLogger().warning(remaining + " players are still queued for saving after "
+                            + timeoutMillis + "ms.");
                 }
                 
-                // Save rank cache
-                for (Rank rank : rankCache.values()) {
+                // Save published ranks
+                for (Rank rank : rankRegistry.current().getRanks().values()) {
                     storageProvider.saveRank(rank);
                 }
                 
@@ -106,9 +119,10 @@ public class DataManager {
     }
     
     /**
-     * Closes all database connections.
+     * Stops the background writer and closes all database connections.
      */
     public void closeConnections() {
+        playerDataWriter.shutdown(plugin.getConfigManager().getWriteBehindDrainTimeoutMillis());
         if (storageProvider != null) {
             storageProvider.closeConnections();
         }
@@ -128,12 +142,21 @@ public class DataManager {
         // Check cache first
         PlayerData data = playerDataCache.get(uuid);
         
+        // A save that has not reached storage yet is the latest data
+        if (data == null) {
+            data = playerDataWriter.getPending(uuid);
+            if (data != null) {
+                playerDataCache.put(uuid, data);
+            }
+        }
+        
         // If not in cache, load from storage
         if (data == null && storageProvider != null) {
             try {
                 data = storageProvider.getPlayerData(uuid);
                 if (data != null) {
                     playerDataCache.put(uuid, data);
+                    scheduleExpiries(data);
                 }
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to load player data for " + uuid, e);
@@ -143,6 +166,68 @@ public class DataManager {
         return data;
     }
     
+    /**
+     * Gets a player's data only if it is cached, without loading it.
+     *
+     * @param uuid The UUID of the player
+     * @return The cached player data, or null if the player is not cached
+     */
+    public PlayerData getCachedPlayerData(UUID uuid) {
+        return uuid != null ? playerDataCache.get(uuid) : null;
+    }
+    
+    /**
+     * Gets a player's data from the cache, the write-behind queue or storage, without
+     * caching it. For lookups of offline players, which would otherwise stay cached.
+     *
+     * @param uuid The UUID of the player
+     * @return The player data, or null if not found
+     */
+    public PlayerData getPlayerDataUncached(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        
+        PlayerData data = playerDataCache.get(uuid);
+        if (data == null) {
+            data = playerDataWriter.getPending(uuid);
+        }
+        
+        if (data == null && storageProvider != null) {
+            try {
+                data = storageProvider.getPlayerData(uuid);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load player data for " + uuid, e);
+            }
+        }
+        
+        return data;
+    }
+    
+    /**
+     * Gets a player's data from the write-behind queue or storage, never from the cache.
+     * The result is not shared with the main thread, so it is safe to read on any thread.
+     *
+     * @param uuid The UUID of the player
+     * @return The player data, or null if not found
+     */
+    public PlayerData getStoredPlayerData(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        
+        PlayerData data = playerDataWriter.getPending(uuid);
+        if (data == null && storageProvider != null) {
+            try {
+                data = storageProvider.getPlayerData(uuid);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load player data for " + uuid, e);
+            }
+        }
+        
+        return data;
+    }
+    
     /**
      * Gets a player's data from storage by name.
      *
@@ -170,7 +255,61 @@ public class DataManager {
     }
     
     /**
-     * Saves a player's data to storage and updates cache.
+     * Gets a player's data from the cache or storage by name, without caching it.
+     * For lookups of offline players, which would otherwise stay cached.
+     *
+     * @param name The name of the player
+     * @return The player data, or null if not found
+     */
+    public PlayerData getPlayerDataByNameUncached(String name) {
+        for (PlayerData data : playerDataCache.values()) {
+            if (data.getPlayerName().equalsIgnoreCase(name)) {
+                return data;
+            }
+        }
+        
+        if (storageProvider != null) {
+            try {
+                return storageProvider.getPlayerDataByName(name);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load player data for " + name, e);
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Gets the data of the player linked to a Discord account from the cache or storage,
+     * without caching it.
+     *
+     * @param discordId The Discord user ID
+     * @return The player data, or null if no player is linked to the account
+     */
+    public PlayerData getPlayerDataByDiscordId(String discordId) {
+        if (discordId == null) {
+            return null;
+        }
+        
+        for (PlayerData data : playerDataCache.values()) {
+            if (discordId.equals(data.getDiscordId())) {
+                return data;
+            }
+        }
+        
+        if (storageProvider != null) {
+            try {
+                return storageProvider.getPlayerDataByDiscordId(discordId);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load player data for Discord user " + discordId, e);
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Updates the cache and queues a player's data to be written to storage in the background.
      *
      * @param playerData The player data to save
      */
@@ -178,36 +317,68 @@ public class DataManager {
         if (playerData != null) {
             // Update cache
             playerDataCache.put(playerData.getUuid(), playerData);
+            scheduleExpiries(playerData);
+            invalidateResolvedPermissions(playerData.getUuid());
             
-            // Save to storage
-            if (storageProvider != null) {
-                storageProvider.savePlayerData(playerData);
-            }
+            // Queue the write
+            playerDataWriter.enqueue(playerData);
         }
     }
     
     /**
-     * Gets a rank from cache or storage.
+     * Queues a player's data to be written to storage without adding it to the cache.
+     * Data of a player that is cached already is saved as usual. For changes to offline
+     * players that were loaded with {@link #getPlayerDataUncached(UUID)}.
+     *
+     * @param playerData The player data to save
+     */
+    public void savePlayerDataUncached(PlayerData playerData) {
+        if (playerData == null) {
+            return;
+        }
+        if (playerDataCache.containsKey(playerData.getUuid())) {
+            savePlayerData(playerData);
+            return;
+        }
+        
+        scheduleExpiries(playerData);
+        invalidateResolvedPermissions(playerData.getUuid());
+        playerDataWriter.enqueue(playerData);
+    }
+    
+    /**
+     * Gets an editable copy of a rank from the registry or storage.
+     * Changes to the copy take effect once it is passed to {@link #saveRank(Rank)}.
      *
      * @param name The name of the rank
-     * @return The rank, or null if not found
+     * @return A copy of the rank, or null if not found
      */
     public Rank getRank(String name) {
+        Rank rank = getRankSnapshot(name);
+        return rank != null ? rank.copy() : null;
+    }
+    
+    /**
+     * Gets the published read-only snapshot of a rank, loading it from storage if necessary.
+     * Snapshots are safe to read from any thread without locking.
+     *
+     * @param name The name of the rank
+     * @return The read-only rank, or null if not found
+     */
+    public Rank getRankSnapshot(String name) {
         if (name == null) {
             return null;
         }
 
-        String lowercaseName = name.toLowerCase();
-        
-        // Check cache first
-        Rank rank = rankCache.get(lowercaseName);
+        // Check the registry first
+        Rank rank = rankRegistry.get(name);
         
-        // If not in cache, load from storage
+        // If not published, load from storage
         if (rank == null && storageProvider != null) {
             try {
-                rank = storageProvider.getRank(name);
-                if (rank != null) {
-                    rankCache.put(lowercaseName, rank);
+                Rank stored = storageProvider.getRank(name);
+                if (stored != null) {
+                    rank = rankRegistry.load(List.of(stored)).get(name);
                 }
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to load rank: " + name, e);
@@ -218,21 +389,50 @@ public class DataManager {
     }
     
     /**
-     * Gets all ranks from cache or storage.
+     * Gets all ranks from the registry or storage.
      *
-     * @return A map of rank names to ranks
+     * @return An unmodifiable map of lowercase rank names to read-only ranks
      */
     public Map<String, Rank> getAllRanks() {
-        // If cache is empty, load from storage
-        if (rankCache.isEmpty() && storageProvider != null) {
-            rankCache.putAll(storageProvider.getAllRanks());
+        RankRegistry.Snapshot snapshot = rankRegistry.current();
+        
+        // If nothing is published, load from storage
+        if (snapshot.isEmpty() && storageProvider != null) {
+            snapshot = rankRegistry.load(storageProvider.getAllRanks().values());
         }
         
-        return rankCache;
+        return snapshot.getRanks();
+    }
+    
+    /**
+     * Gets the active storage provider.
+     *
+     * @return The storage provider, or null if storage failed to initialize
+     */
+    public StorageProvider getStorageProvider() {
+        return storageProvider;
+    }
+    
+    /**
+     * Gets the background writer of player data.
+     *
+     * @return The player data writer
+     */
+    public PlayerDataWriter getPlayerDataWriter() {
+        return playerDataWriter;
     }
     
     /**
-     * Saves a rank to storage and updates cache.
+     * Gets the registry of published rank snapshots.
+     *
+     * @return The rank registry
+     */
+    public RankRegistry getRankRegistry() {
+        return rankRegistry;
+    }
+    
+    /**
+     * Saves a rank to storage and publishes a snapshot of it.
      *
      * @param rank The rank to save
      */
@@ -244,8 +444,10 @@ public class DataManager {
         String lowercaseName = rank.getName().toLowerCase();
         
         try {
-            // Update cache
-            rankCache.put(lowercaseName, rank);
+            // Publish the new version
+            rankRegistry.publish(rank);
+            updateInheritance(rank);
+            invalidateCompiledRank(lowercaseName);
             
             // Save to storage
             if (storageProvider != null) {
@@ -253,8 +455,10 @@ public class DataManager {
             }
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to save rank: " + rank.getName(), e);
-            // Remove from cache if save failed
-            rankCache.remove(lowercaseName);
+            // Unpublish if save failed
+            rankRegistry.remove(lowercaseName);
+            removeInheritance(lowercaseName);
+            invalidateCompiledRank(lowercaseName);
         }
     }
     
@@ -271,8 +475,10 @@ public class DataManager {
         String lowercaseName = name.toLowerCase();
         
         try {
-            // Remove from cache
-            rankCache.remove(lowercaseName);
+            // Unpublish
+            rankRegistry.remove(lowercaseName);
+            removeInheritance(lowercaseName);
+            invalidateCompiledRank(lowercaseName);
             
             // Delete from storage
             if (storageProvider != null) {
@@ -322,25 +528,34 @@ public class DataManager {
     }
     
     /**
-     * Gets the default rank from cache or storage.
+     * Gets an editable copy of the default rank from the registry or storage.
      *
-     * @return The default rank, or null if not found
+     * @return A copy of the default rank, or null if not found
      */
     public Rank getDefaultRank() {
-        // Check cache first
-        for (Rank rank : rankCache.values()) {
+        Rank rank = getDefaultRankSnapshot();
+        return rank != null ? rank.copy() : null;
+    }
+    
+    /**
+     * Gets the published read-only snapshot of the default rank, loading it from storage if necessary.
+     *
+     * @return The read-only default rank, or null if not found
+     */
+    public Rank getDefaultRankSnapshot() {
+        // Check the registry first
+        for (Rank rank : rankRegistry.current().getRanks().values()) {
             if (rank.isDefault()) {
                 return rank;
             }
         }
         
-        // If not found in cache, check storage
+        // If not published, check storage
         if (storageProvider != null) {
             Rank defaultRank = storageProvider.getDefaultRank();
             if (defaultRank != null) {
-                rankCache.put(defaultRank.getName().toLowerCase(), defaultRank);
+                return rankRegistry.load(List.of(defaultRank)).get(defaultRank.getName());
             }
-            return defaultRank;
         }
         
         return null;
@@ -352,12 +567,139 @@ public class DataManager {
     public void clearCaches() {
         synchronized (storageLock) {
             playerDataCache.clear();
-            rankCache.clear();
+            rankRegistry.clear();
+        }
+        
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.invalidateAllRanks();
+        }
+    }
+    
+    /**
+     * Invalidates the compiled permission snapshot of a rank and its descendants.
+     *
+     * @param rankName The name of the changed rank
+     */
+    private void invalidateCompiledRank(String rankName) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.invalidateRank(rankName);
+        }
+    }
+    
+    /**
+     * Records a saved rank's parents in the inheritance graph.
+     *
+     * @param rank The saved rank
+     */
+    private void updateInheritance(Rank rank) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.updateInheritance(rank);
+        }
+    }
+    
+    /**
+     * Removes a rank's own edges from the inheritance graph.
+     *
+     * @param rankName The name of the rank
+     */
+    private void removeInheritance(String rankName) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.removeInheritance(rankName);
+        }
+    }
+    
+    /**
+     * Schedules the removal of a player's temporary ranks and permissions when they expire.
+     *
+     * @param playerData The player data
+     */
+    private void scheduleExpiries(PlayerData playerData) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.getExpiryScheduler().register(playerData);
+        }
+    }
+    
+    /**
+     * Drops the cached permission lookups of a player whose data changed.
+     *
+     * @param uuid The UUID of the player
+     */
+    private void invalidateResolvedPermissions(UUID uuid) {
+        PermissionManager permissionManager = plugin.getPermissionManager();
+        if (permissionManager != null) {
+            permissionManager.getPermissionResolver().invalidate(uuid);
+        }
+    }
+    
+    /**
+     * Streams every stored player, reading them from storage as the stream is consumed.
+     * Players with a save that has not reached storage yet are streamed with their queued data.
+     * The stream must be closed.
+     *
+     * @param sections The sections to load, see {@link StorageProvider#streamPlayers(Set)}
+     * @return A sequential stream of the stored players
+     */
+    public Stream<PlayerData> streamPlayers(Set<PlayerData.Section> sections) {
+        if (storageProvider == null) {
+            return Stream.empty();
+        }
+        return storageProvider.streamPlayers(sections).map(playerData -> {
+            PlayerData pending = playerDataWriter.getPending(playerData.getUuid());
+            return pending != null ? pending : playerData;
+        });
+    }
+    
+    /**
+     * Runs an action for every stored player, one at a time, without holding them all in memory.
+     *
+     * @param sections The sections to load, see {@link StorageProvider#streamPlayers(Set)}
+     * @param action The action to run for each player
+     */
+    public void forEachPlayer(Set<PlayerData.Section> sections, Consumer<PlayerData> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        try (Stream<PlayerData> players = streamPlayers(sections)) {
+            players.forEach(action);
+        }
+    }
+    
+    /**
+     * Runs an action for every temporary rank and permission in storage, then for those of
+     * every cached player, whose data may be newer than what storage holds yet.
+     * An entry can therefore be passed more than once.
+     *
+     * @param action The action to run for each entry
+     */
+    public void forEachTemporaryEntry(Consumer<TemporaryEntry> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        if (storageProvider != null) {
+            storageProvider.forEachTemporaryEntry(action);
+        }
+        for (PlayerData playerData : playerDataCache.values()) {
+            TemporaryEntry.of(playerData).forEach(action);
+        }
+    }
+    
+    /**
+     * Gets aggregate counts over every stored player, without loading the players.
+     * Saves still waiting in the write-behind queue are not counted yet.
+     *
+     * @return The player statistics
+     */
+    public PlayerStatistics getPlayerStatistics() {
+        if (storageProvider != null) {
+            return storageProvider.getPlayerStatistics();
         }
+        return PlayerStatistics.EMPTY;
     }
     
     /**
-     * Gets all player data from storage.
+     * Gets all player data from storage. This holds every player in memory at once;
+     * prefer {@link #streamPlayers(Set)} to scan the players.
      *
      * @return A list of all player data
      */
@@ -395,8 +737,10 @@ public class DataManager {
         }
 
         try {
-            // Remove from cache
+            // Remove from cache and drop queued writes
             playerDataCache.remove(uuid);
+            playerDataWriter.cancel(uuid);
+            invalidateResolvedPermissions(uuid);
             
             // Delete from storage
             if (storageProvider != null) {
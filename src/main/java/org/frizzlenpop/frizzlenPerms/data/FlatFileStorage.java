@@ -2,6 +2,7 @@ package org.frizzlenpop.frizzlenPerms.data;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.models.AuditLog;
@@ -10,10 +11,16 @@ import org.frizzlenpop.frizzlenPerms.models.Rank;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * FlatFile implementation of the StorageProvider interface using JSON files.
@@ -29,6 +36,9 @@ public class FlatFileStorage implements StorageProvider {
     
     private Map<String, Rank> ranks = new ConcurrentHashMap<>();
     private List<AuditLog> auditLogs = Collections.synchronizedList(new ArrayList<>());
+    // Counted from the player files on first use, then kept current by saves and deletes
+    private final PlayerStatisticsCounter statistics = new PlayerStatisticsCounter();
+    private boolean statisticsLoaded;
     
     /**
      * Creates a new FlatFileStorage with the specified plugin instance.
@@ -87,7 +97,11 @@ public class FlatFileStorage implements StorageProvider {
         }
         
         try (FileReader reader = new FileReader(playerFile)) {
-            return gson.fromJson(reader, PlayerData.class);
+            PlayerData playerData = gson.fromJson(reader, PlayerData.class);
+            if (playerData != null) {
+                playerData.markSaved();
+            }
+            return playerData;
         } catch (IOException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load player data for " + uuid, e);
             return null;
@@ -106,6 +120,7 @@ public class FlatFileStorage implements StorageProvider {
             try (FileReader reader = new FileReader(playerFile)) {
                 PlayerData playerData = gson.fromJson(reader, PlayerData.class);
                 if (playerData != null && playerData.getPlayerName().equalsIgnoreCase(name)) {
+                    playerData.markSaved();
                     return playerData;
                 }
             } catch (IOException e) {
@@ -122,11 +137,32 @@ public class FlatFileStorage implements StorageProvider {
             return;
         }
         
+        // Each player is one file, so any change rewrites it, and no change skips it
+        PlayerData.Changes changes = playerData.getChanges();
         File playerFile = getPlayerFile(playerData.getUuid());
+        if (changes.isEmpty() && playerFile.exists()) {
+            return;
+        }
+        
         try (FileWriter writer = new FileWriter(playerFile)) {
             gson.toJson(playerData, writer);
+            playerData.markSaved(changes);
         } catch (IOException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to save player data for " + playerData.getUuid(), e);
+            return;
+        }
+        statistics.update(playerData);
+    }
+    
+    @Override
+    public PlayerStatistics getPlayerStatistics() {
+        // Saves and deletes wait for the first count, so none of them is missed or counted twice
+        synchronized (statistics) {
+            if (!statisticsLoaded) {
+                forEachPlayer(EnumSet.noneOf(PlayerData.Section.class), statistics::update);
+                statisticsLoaded = true;
+            }
+            return statistics.snapshot();
         }
     }
     
@@ -278,30 +314,59 @@ public class FlatFileStorage implements StorageProvider {
         if (playerFile.exists()) {
             if (!playerFile.delete()) {
                 plugin.getLogger().warning("Failed to delete player data file for " + uuid);
+                return;
             }
         }
+        statistics.remove(uuid);
     }
 
     @Override
-    public List<PlayerData> getAllPlayerData() {
-        List<PlayerData> allPlayers = new ArrayList<>();
-        
-        File[] playerFiles = playersDir.listFiles((dir, fileName) -> fileName.endsWith(".json"));
-        if (playerFiles == null) {
-            return allPlayers;
+    public void forEachTemporaryEntry(Consumer<TemporaryEntry> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        // Temporary entries live in the player files, so every file is still read
+        forEachPlayer(EnumSet.of(PlayerData.Section.TEMPORARY_RANKS, PlayerData.Section.TEMPORARY_PERMISSIONS),
+                playerData -> TemporaryEntry.of(playerData).forEach(action));
+    }
+
+    @Override
+    public Stream<PlayerData> streamPlayers(Set<PlayerData.Section> sections) {
+        // Each file holds the whole player, so every section is loaded regardless of the projection
+        DirectoryStream<Path> playerFiles;
+        try {
+            playerFiles = Files.newDirectoryStream(playersDir.toPath(), "*.json");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to list player files", e);
+            return Stream.empty();
         }
         
-        for (File playerFile : playerFiles) {
-            try (FileReader reader = new FileReader(playerFile)) {
-                PlayerData playerData = gson.fromJson(reader, PlayerData.class);
-                if (playerData != null) {
-                    allPlayers.add(playerData);
-                }
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to read player file: " + playerFile.getName(), e);
+        return StreamSupport.stream(playerFiles.spliterator(), false)
+                .map(this::readPlayerFile)
+                .filter(Objects::nonNull)
+                .onClose(() -> {
+                    try {
+                        playerFiles.close();
+                    } catch (IOException e) {
+                        plugin.getLogger().log(Level.WARNING, "Failed to close the player file listing", e);
+                    }
+                });
+    }
+    
+    /**
+     * Reads a player file.
+     *
+     * @param playerFile The path of the file
+     * @return The player data, or null if the file could not be read
+     */
+    private PlayerData readPlayerFile(Path playerFile) {
+        try (FileReader reader = new FileReader(playerFile.toFile())) {
+            PlayerData playerData = gson.fromJson(reader, PlayerData.class);
+            if (playerData != null) {
+                playerData.markSaved();
             }
+            return playerData;
+        } catch (IOException | JsonParseException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to read player file: " + playerFile.getFileName(), e);
+            return null;
         }
-        
-        return allPlayers;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,161 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads players from the SQL backends the way they were loaded before the child sections were
+ * read in one round trip: the player row, then each section with its own query and its own
+ * pooled connection while the first one is still held. Only used by the storage benchmark as
+ * the baseline for the current loader; nothing else in the plugin reads players through it.
+ */
+public final class LegacyPlayerLoader implements Function<UUID, PlayerData> {
+
+    private static final String PLAYER_QUERY = "SELECT * FROM players WHERE uuid = ?";
+    private static final String[] SECTION_QUERIES = {
+            "SELECT world, permissions FROM player_world_permissions WHERE player_uuid = ?",
+            "SELECT rank_name, expiration FROM temporary_ranks WHERE player_uuid = ?",
+            "SELECT permission, expiration FROM temporary_permissions WHERE player_uuid = ?"
+    };
+
+    private final DataSource dataSource;
+    private final Logger logger;
+
+    private LegacyPlayerLoader(DataSource dataSource, Logger logger) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+    }
+
+    /**
+     * Creates a legacy loader reading from the same pool as a storage provider.
+     *
+     * @param storage The storage provider
+     * @param logger The logger to report failed loads to
+     * @return The loader, or null if the storage is not backed by SQL
+     */
+    public static LegacyPlayerLoader forStorage(StorageProvider storage, Logger logger) {
+        if (storage instanceof SQLiteStorage) {
+            return new LegacyPlayerLoader(((SQLiteStorage) storage).getDataSource(), logger);
+        }
+        if (storage instanceof MySQLStorage) {
+            return new LegacyPlayerLoader(((MySQLStorage) storage).getDataSource(), logger);
+        }
+        return null;
+    }
+
+    /**
+     * Loads a player.
+     *
+     * @param uuid The UUID of the player
+     * @return The player data, or null if not found or the load failed
+     */
+    @Override
+    public PlayerData apply(UUID uuid) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PLAYER_QUERY)) {
+
+            stmt.setString(1, uuid.toString());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                PlayerData playerData = readPlayerRow(rs);
+                for (int section = 0; section < SECTION_QUERIES.length; section++) {
+                    loadSection(section, playerData);
+                }
+                playerData.markSaved();
+                return playerData;
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to load player data for " + uuid + " with the legacy loader", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a player row.
+     *
+     * @param rs The result set, positioned on a player row
+     * @return The player data
+     * @throws SQLException If an error occurs
+     */
+    private static PlayerData readPlayerRow(ResultSet rs) throws SQLException {
+        PlayerData playerData = new PlayerData(UUID.fromString(rs.getString("uuid")), rs.getString("player_name"));
+        playerData.setPrimaryRank(rs.getString("primary_rank"));
+
+        String secondaryRanksStr = rs.getString("secondary_ranks");
+        if (secondaryRanksStr != null && !secondaryRanksStr.isEmpty()) {
+            playerData.setSecondaryRanks(Arrays.asList(secondaryRanksStr.split(",")));
+        }
+
+        String permissionsStr = rs.getString("permissions");
+        if (permissionsStr != null && !permissionsStr.isEmpty()) {
+            for (String permission : permissionsStr.split(",")) {
+                playerData.addPermission(permission);
+            }
+        }
+
+        playerData.setDiscordId(rs.getString("discord_id"));
+        playerData.setLastSeen(rs.getLong("last_seen"));
+        playerData.setLastLogin(rs.getLong("last_login"));
+
+        String metadataStr = rs.getString("metadata");
+        if (metadataStr != null && !metadataStr.isEmpty()) {
+            for (String entry : metadataStr.split(",")) {
+                String[] keyValue = entry.split("=", 2);
+                if (keyValue.length == 2) {
+                    playerData.setMetadata(keyValue[0], keyValue[1]);
+                }
+            }
+        }
+        return playerData;
+    }
+
+    /**
+     * Loads one child section of a player on its own connection.
+     *
+     * @param section The index of the section query
+     * @param playerData The player data to load the section into
+     * @throws SQLException If an error occurs
+     */
+    private void loadSection(int section, PlayerData playerData) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SECTION_QUERIES[section])) {
+
+            stmt.setString(1, playerData.getUuid().toString());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String key = rs.getString(1);
+                    switch (section) {
+                        case 0:
+                            String permissionsStr = rs.getString(2);
+                            if (permissionsStr != null && !permissionsStr.isEmpty()) {
+                                for (String permission : permissionsStr.split(",")) {
+                                    playerData.addWorldPermission(key, permission);
+                                }
+                            }
+                            break;
+                        case 1:
+                            playerData.addTemporaryRank(key, rs.getLong(2));
+                            break;
+                        default:
+                            playerData.addTemporaryPermission(key, rs.getLong(2));
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -11,13 +11,38 @@ import org.frizzlenpop.frizzlenPerms.utils.LogManager;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  * MySQL implementation of the StorageProvider interface.
  */
 public class MySQLStorage implements StorageProvider {
 
+    // World permissions, temporary ranks and temporary permissions of one player in one round trip
+    private static final String PLAYER_SECTIONS_QUERY =
+            "SELECT 'world' AS kind, world AS entry_key, permissions AS entry_value, 0 AS expiration " +
+                    "FROM player_world_permissions WHERE player_uuid = ? " +
+            "UNION ALL SELECT 'rank', rank_name, NULL, expiration FROM temporary_ranks WHERE player_uuid = ? " +
+            "UNION ALL SELECT 'permission', permission, NULL, expiration FROM temporary_permissions WHERE player_uuid = ?";
+
+    // Members per secondary rank, splitting the comma-separated column on the server
+    private static final String SECONDARY_RANK_MEMBERS_QUERY =
+            "WITH RECURSIVE split (rank_name, rest, primary_rank) AS (" +
+                    "SELECT SUBSTRING(secondary_ranks, 1, 0), CONCAT(secondary_ranks, ','), COALESCE(primary_rank, '') FROM players WHERE secondary_ranks <> '' " +
+                    "UNION ALL SELECT SUBSTRING_INDEX(rest, ',', 1), SUBSTRING(rest, LOCATE(',', rest) + 1), primary_rank FROM split WHERE rest <> ''" +
+            ") SELECT rank_name, COUNT(*) AS members FROM split WHERE rank_name <> '' AND LOWER(rank_name) <> LOWER(primary_rank) GROUP BY rank_name";
+
+    // Every temporary rank and permission, without loading the players they belong to
+    private static final String TEMPORARY_ENTRIES_QUERY =
+            "SELECT 'rank' AS kind, player_uuid, rank_name AS name, expiration FROM temporary_ranks " +
+            "UNION ALL SELECT 'permission', player_uuid, permission, expiration FROM temporary_permissions";
+
+    // Rows fetched per round trip while scanning every player
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final Set<PlayerData.Section> ALL_SECTIONS = Collections.unmodifiableSet(EnumSet.allOf(PlayerData.Section.class));
+
     private final FrizzlenPerms plugin;
     private HikariDataSource dataSource;
     private boolean initialized = false;
@@ -59,6 +84,8 @@ public class MySQLStorage implements StorageProvider {
             config.setMaximumPoolSize(poolSize);
             config.setConnectionTimeout(30000);
             config.setPoolName("FrizzlenPerms-MySQL");
+            // Honour the fetch size with a server-side cursor, so player scans stream instead of buffering
+            config.addDataSourceProperty("useCursorFetch", "true");
             
             dataSource = new HikariDataSource(config);
             createTables();
@@ -137,6 +164,8 @@ public class MySQLStorage implements StorageProvider {
             
             // Create indexes
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_name ON players (player_name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_primary_rank ON players (primary_rank)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_discord_id ON players (discord_id)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_audit_logs_timestamp ON audit_logs (timestamp)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_audit_logs_target ON audit_logs (target_uuid)");
             
@@ -150,6 +179,18 @@ public class MySQLStorage implements StorageProvider {
         }
     }
 
+    /**
+     * Gets the pool the storage reads and writes through, initializing it if necessary.
+     *
+     * @return The data source
+     */
+    HikariDataSource getDataSource() {
+        if (!initialized) {
+            initialize();
+        }
+        return dataSource;
+    }
+
     @Override
     public PlayerData getPlayerData(UUID uuid) {
         if (!initialized) {
@@ -163,7 +204,7 @@ public class MySQLStorage implements StorageProvider {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return loadPlayerDataFromResultSet(rs);
+                    return loadPlayerDataFromResultSet(conn, rs);
                 }
             }
         } catch (SQLException e) {
@@ -186,7 +227,7 @@ public class MySQLStorage implements StorageProvider {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return loadPlayerDataFromResultSet(rs);
+                    return loadPlayerDataFromResultSet(conn, rs);
                 }
             }
         } catch (SQLException e) {
@@ -196,7 +237,40 @@ public class MySQLStorage implements StorageProvider {
         return null;
     }
 
-    private PlayerData loadPlayerDataFromResultSet(ResultSet rs) throws SQLException {
+    @Override
+    public PlayerData getPlayerDataByDiscordId(String discordId) {
+        if (!initialized) {
+            initialize();
+        }
+        
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM players WHERE discord_id = ?")) {
+            
+            stmt.setString(1, discordId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return loadPlayerDataFromResultSet(conn, rs);
+                }
+            }
+        } catch (SQLException e) {
+            LogManager.getLogger().log(Level.SEVERE, "Failed to get player data for Discord user " + discordId, e);
+        }
+        
+        return null;
+    }
+
+    private PlayerData loadPlayerDataFromResultSet(Connection conn, ResultSet rs) throws SQLException {
+        PlayerData playerData = readPlayerRow(rs, ALL_SECTIONS);
+        
+        // Load world permissions, temporary ranks and temporary permissions
+        loadPlayerSections(conn, playerData);
+        
+        playerData.markSaved();
+        return playerData;
+    }
+
+    private PlayerData readPlayerRow(ResultSet rs, Set<PlayerData.Section> sections) throws SQLException {
         UUID uuid = UUID.fromString(rs.getString("uuid"));
         String playerName = rs.getString("player_name");
         
@@ -221,11 +295,15 @@ public class MySQLStorage implements StorageProvider {
         playerData.setDiscordId(rs.getString("discord_id"));
         
         // Set last seen and last login
-        playerData.setLastSeen(rs.getLong("last_seen"));
-        playerData.setLastLogin(rs.getLong("last_login"));
+        if (sections.contains(PlayerData.Section.LAST_SEEN)) {
+            playerData.setLastSeen(rs.getLong("last_seen"));
+        }
+        if (sections.contains(PlayerData.Section.LAST_LOGIN)) {
+            playerData.setLastLogin(rs.getLong("last_login"));
+        }
         
         // Set metadata
-        String metadataStr = rs.getString("metadata");
+        String metadataStr = sections.contains(PlayerData.Section.METADATA) ? rs.getString("metadata") : null;
         if (metadataStr != null && !metadataStr.isEmpty()) {
             Map<String, String> metadata = new HashMap<>();
             for (String entry : metadataStr.split(",")) {
@@ -239,79 +317,49 @@ public class MySQLStorage implements StorageProvider {
             }
         }
         
-        // Load world permissions
-        loadWorldPermissions(playerData);
-        
-        // Load temporary ranks
-        loadTemporaryRanks(playerData);
-        
-        // Load temporary permissions
-        loadTemporaryPermissions(playerData);
-        
         return playerData;
     }
 
-    private void loadWorldPermissions(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM player_world_permissions WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String world = rs.getString("world");
-                    String permissionsStr = rs.getString("permissions");
-                    
-                    if (permissionsStr != null && !permissionsStr.isEmpty()) {
-                        for (String permission : permissionsStr.split(",")) {
-                            playerData.addWorldPermission(world, permission);
-                        }
-                    }
-                }
-            }
+    private void loadPlayerSections(Connection conn, PlayerData playerData) {
+        try (PreparedStatement stmt = conn.prepareStatement(PLAYER_SECTIONS_QUERY)) {
+            readPlayerSections(stmt, playerData);
         } catch (SQLException e) {
-            LogManager.getLogger().log(Level.SEVERE, "Failed to load world permissions for " + playerData.getUuid(), e);
+            LogManager.getLogger().log(Level.SEVERE, "Failed to load world permissions and temporary entries for " + playerData.getUuid(), e);
         }
     }
 
-    private void loadTemporaryRanks(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM temporary_ranks WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String rankName = rs.getString("rank_name");
-                    long expiration = rs.getLong("expiration");
-                    
-                    playerData.addTemporaryRank(rankName, expiration);
-                }
+    private void readPlayerSections(PreparedStatement stmt, PlayerData playerData) throws SQLException {
+        String uuid = playerData.getUuid().toString();
+        stmt.setString(1, uuid);
+        stmt.setString(2, uuid);
+        stmt.setString(3, uuid);
+        
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                readSectionRow(rs, playerData);
             }
-        } catch (SQLException e) {
-            LogManager.getLogger().log(Level.SEVERE, "Failed to load temporary ranks for " + playerData.getUuid(), e);
         }
     }
 
-    private void loadTemporaryPermissions(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM temporary_permissions WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String permission = rs.getString("permission");
-                    long expiration = rs.getLong("expiration");
-                    
-                    playerData.addTemporaryPermission(permission, expiration);
+    private static void readSectionRow(ResultSet rs, PlayerData playerData) throws SQLException {
+        String key = rs.getString("entry_key");
+        switch (rs.getString("kind")) {
+            case "world":
+                String permissionsStr = rs.getString("entry_value");
+                if (permissionsStr != null && !permissionsStr.isEmpty()) {
+                    for (String permission : permissionsStr.split(",")) {
+                        playerData.addWorldPermission(key, permission);
+                    }
                 }
-            }
-        } catch (SQLException e) {
-            LogManager.getLogger().log(Level.SEVERE, "Failed to load temporary permissions for " + playerData.getUuid(), e);
+                break;
+            case "rank":
+                playerData.addTemporaryRank(key, rs.getLong("expiration"));
+                break;
+            case "permission":
+                playerData.addTemporaryPermission(key, rs.getLong("expiration"));
+                break;
+            default:
+                break;
         }
     }
 
@@ -321,25 +369,23 @@ public class MySQLStorage implements StorageProvider {
             initialize();
         }
         
+        // Only write what changed since the last load or save
+        PlayerData.Changes changes = playerData.getChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        
         try (Connection conn = dataSource.getConnection()) {
             // Start transaction
             conn.setAutoCommit(false);
             
             try {
-                // Save player data
-                savePlayerDataBase(conn, playerData);
-                
-                // Save world permissions
-                savePlayerWorldPermissions(conn, playerData);
-                
-                // Save temporary ranks
-                saveTemporaryRanks(conn, playerData);
-                
-                // Save temporary permissions
-                saveTemporaryPermissions(conn, playerData);
+                // Save the dirty sections
+                savePlayerSections(conn, playerData, changes);
                 
                 // Commit transaction
                 conn.commit();
+                playerData.markSaved(changes);
             } catch (SQLException e) {
                 // Rollback transaction
                 conn.rollback();
@@ -352,6 +398,142 @@ public class MySQLStorage implements StorageProvider {
             LogManager.getLogger().log(Level.SEVERE, "Failed to save player data for " + playerData.getUuid(), e);
         }
     }
+    
+    @Override
+    public void savePlayerDataBatch(Collection<PlayerData> players) {
+        if (!initialized) {
+            initialize();
+        }
+        
+        // Only write what changed since the last load or save
+        Map<PlayerData, PlayerData.Changes> dirty = new LinkedHashMap<>();
+        for (PlayerData playerData : players) {
+            PlayerData.Changes changes = playerData.getChanges();
+            if (!changes.isEmpty()) {
+                dirty.put(playerData, changes);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = dataSource.getConnection()) {
+            // Save the whole batch in one transaction
+            conn.setAutoCommit(false);
+            
+            try {
+                for (Map.Entry<PlayerData, PlayerData.Changes> entry : dirty.entrySet()) {
+                    savePlayerSections(conn, entry.getKey(), entry.getValue());
+                }
+                
+                conn.commit();
+                dirty.forEach(PlayerData::markSaved);
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LogManager.getLogger().log(Level.WARNING, "Failed to save a batch of " + dirty.size() + " players, saving them one by one", e);
+        }
+        
+        // One bad row should not lose the rest of the batch
+        for (PlayerData playerData : dirty.keySet()) {
+            savePlayerData(playerData);
+        }
+    }
+    
+    /**
+     * Saves the sections of a player's data that changed. Data that was never stored is
+     * written in full, as is a player whose row has disappeared from the table.
+     *
+     * @param conn The database connection
+     * @param playerData The player data
+     * @param changes The changes to write
+     * @throws SQLException If an error occurs
+     */
+    private void savePlayerSections(Connection conn, PlayerData playerData, PlayerData.Changes changes) throws SQLException {
+        boolean full = changes.isUnsaved() || !updatePlayerColumns(conn, playerData, changes);
+        if (full) {
+            savePlayerDataBase(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.WORLD_PERMISSIONS)) {
+            savePlayerWorldPermissions(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.TEMPORARY_RANKS)) {
+            saveTemporaryRanks(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.TEMPORARY_PERMISSIONS)) {
+            saveTemporaryPermissions(conn, playerData);
+        }
+    }
+    
+    /**
+     * Updates only the changed columns of a player's row, such as just last_seen.
+     *
+     * @param conn The database connection
+     * @param playerData The player data
+     * @param changes The changes to write
+     * @return False if the player has no row to update
+     * @throws SQLException If an error occurs
+     */
+    private boolean updatePlayerColumns(Connection conn, PlayerData playerData, PlayerData.Changes changes) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (changes.isDirty(PlayerData.Section.BASE)) {
+            columns.addAll(List.of("player_name", "primary_rank", "secondary_ranks", "permissions", "discord_id"));
+            values.add(playerData.getPlayerName());
+            values.add(playerData.getPrimaryRank());
+            values.add(String.join(",", playerData.getSecondaryRanks()));
+            values.add(String.join(",", playerData.getPermissions()));
+            values.add(playerData.getDiscordId());
+        }
+        if (changes.isDirty(PlayerData.Section.LAST_SEEN)) {
+            columns.add("last_seen");
+            values.add(playerData.getLastSeen());
+        }
+        if (changes.isDirty(PlayerData.Section.LAST_LOGIN)) {
+            columns.add("last_login");
+            values.add(playerData.getLastLogin());
+        }
+        if (changes.isDirty(PlayerData.Section.METADATA)) {
+            columns.add("metadata");
+            values.add(formatMetadata(playerData.getMetadata()));
+        }
+        if (columns.isEmpty()) {
+            return true;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE players SET " + String.join(" = ?, ", columns) + " = ? WHERE uuid = ?")) {
+            
+            for (int i = 0; i < values.size(); i++) {
+                stmt.setObject(i + 1, values.get(i));
+            }
+            stmt.setString(values.size() + 1, playerData.getUuid().toString());
+            
+            return stmt.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Formats player metadata for the metadata column.
+     *
+     * @param metadata The metadata
+     * @return The metadata as comma separated key=value pairs
+     */
+    private String formatMetadata(Map<String, String> metadata) {
+        StringBuilder metadataBuilder = new StringBuilder();
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            if (metadataBuilder.length() > 0) {
+                metadataBuilder.append(",");
+            }
+            metadataBuilder.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        return metadataBuilder.toString();
+    }
 
     private void savePlayerDataBase(Connection conn, PlayerData playerData) throws SQLException {
         try (PreparedStatement stmt = conn.prepareStatement(
@@ -378,14 +560,8 @@ public class MySQLStorage implements StorageProvider {
             stmt.setLong(8, playerData.getLastLogin());
             
             // Convert metadata to string
-            StringBuilder metadataBuilder = new StringBuilder();
-            for (Map.Entry<String, String> entry : playerData.getMetadata().entrySet()) {
-                if (metadataBuilder.length() > 0) {
-                    metadataBuilder.append(",");
-                }
-                metadataBuilder.append(entry.getKey()).append("=").append(entry.getValue());
-            }
-            stmt.setString(9, metadataBuilder.toString());
+            String metadata = formatMetadata(playerData.getMetadata());
+            stmt.setString(9, metadata);
             
             // Parameters for UPDATE
             stmt.setString(10, playerData.getPlayerName());
@@ -395,7 +571,7 @@ public class MySQLStorage implements StorageProvider {
             stmt.setString(14, playerData.getDiscordId());
             stmt.setLong(15, playerData.getLastSeen());
             stmt.setLong(16, playerData.getLastLogin());
-            stmt.setString(17, metadataBuilder.toString());
+            stmt.setString(17, metadata);
             
             stmt.executeUpdate();
         }
@@ -837,24 +1013,153 @@ public class MySQLStorage implements StorageProvider {
     }
 
     @Override
-    public List<PlayerData> getAllPlayerData() {
-        List<PlayerData> allPlayers = new ArrayList<>();
+    public PlayerStatistics getPlayerStatistics() {
+        if (!initialized) {
+            initialize();
+        }
+        
+        int totalPlayers = 0;
+        int discordLinkedPlayers = 0;
+        Map<String, Integer> primaryRankMembers = new HashMap<>();
+        Map<String, Integer> secondaryRankMembers = new HashMap<>();
         
         try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM players")) {
+             Statement stmt = conn.createStatement()) {
+            
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*) AS total, COUNT(NULLIF(discord_id, '')) AS linked FROM players")) {
+                if (rs.next()) {
+                    totalPlayers = rs.getInt("total");
+                    discordLinkedPlayers = rs.getInt("linked");
+                }
+            }
             
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT primary_rank AS rank_name, COUNT(*) AS members FROM players WHERE primary_rank <> '' GROUP BY primary_rank")) {
+                readRankMembers(rs, primaryRankMembers);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery(SECONDARY_RANK_MEMBERS_QUERY)) {
+                readRankMembers(rs, secondaryRankMembers);
+            } catch (SQLException e) {
+                // MySQL before 8.0 has no recursive CTEs, split the column here instead
+                secondaryRankMembers.clear();
+                countSecondaryRankMembers(stmt, secondaryRankMembers);
+            }
+        } catch (SQLException e) {
+            LogManager.getLogger().log(Level.SEVERE, "Failed to get player statistics", e);
+        }
+        
+        return new PlayerStatistics(totalPlayers, discordLinkedPlayers, primaryRankMembers, secondaryRankMembers);
+    }
+
+    private static void readRankMembers(ResultSet rs, Map<String, Integer> counts) throws SQLException {
+        while (rs.next()) {
+            counts.merge(rs.getString("rank_name").toLowerCase(Locale.ROOT), rs.getInt("members"), Integer::sum);
+        }
+    }
+
+    private static void countSecondaryRankMembers(Statement stmt, Map<String, Integer> counts) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT primary_rank, secondary_ranks FROM players WHERE secondary_ranks <> ''")) {
             while (rs.next()) {
-                PlayerData playerData = loadPlayerDataFromResultSet(rs);
-                if (playerData != null) {
-                    allPlayers.add(playerData);
+                String primaryRank = rs.getString("primary_rank");
+                for (String rankName : rs.getString("secondary_ranks").split(",")) {
+                    if (!rankName.isEmpty() && !rankName.equalsIgnoreCase(primaryRank)) {
+                        counts.merge(rankName.toLowerCase(Locale.ROOT), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachTemporaryEntry(Consumer<TemporaryEntry> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        if (!initialized) {
+            initialize();
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(TEMPORARY_ENTRIES_QUERY,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String uuid = rs.getString("player_uuid");
+                    String name = rs.getString("name");
+                    if (uuid == null || name == null) {
+                        continue;
+                    }
+                    TemporaryEntry.Type type = "rank".equals(rs.getString("kind"))
+                            ? TemporaryEntry.Type.RANK : TemporaryEntry.Type.PERMISSION;
+                    try {
+                        action.accept(new TemporaryEntry(UUID.fromString(uuid), type, name, rs.getLong("expiration")));
+                    } catch (IllegalArgumentException e) {
+                        LogManager.getLogger().warning("Skipping temporary entry of invalid UUID: " + uuid);
+                    }
                 }
             }
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get all player data", e);
+            LogManager.getLogger().log(Level.SEVERE, "Failed to scan temporary ranks and permissions", e);
+        }
+    }
+
+    @Override
+    public Stream<PlayerData> streamPlayers(Set<PlayerData.Section> sections) {
+        Objects.requireNonNull(sections, "Sections cannot be null");
+        if (!initialized) {
+            initialize();
         }
         
-        return allPlayers;
+        boolean childSections = sections.contains(PlayerData.Section.WORLD_PERMISSIONS)
+                || sections.contains(PlayerData.Section.TEMPORARY_RANKS)
+                || sections.contains(PlayerData.Section.TEMPORARY_PERMISSIONS);
+        
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            PreparedStatement sectionStmt = childSections ? conn.prepareStatement(PLAYER_SECTIONS_QUERY) : null;
+            PreparedStatement stmt = conn.prepareStatement("SELECT " + playerColumns(sections) + " FROM players",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            
+            return PlayerCursor.stream(rs, row -> {
+                PlayerData playerData = readPlayerRow(row, sections);
+                if (sectionStmt != null) {
+                    try {
+                        readPlayerSections(sectionStmt, playerData);
+                    } catch (SQLException e) {
+                        LogManager.getLogger().log(Level.SEVERE, "Failed to load world permissions and temporary entries for " + playerData.getUuid(), e);
+                    }
+                }
+                playerData.markSaved();
+                return playerData;
+            }, LogManager.getLogger(), sectionStmt, stmt, conn);
+        } catch (SQLException e) {
+            LogManager.getLogger().log(Level.SEVERE, "Failed to scan stored players", e);
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closeError) {
+                    LogManager.getLogger().log(Level.WARNING, "Failed to close connection", closeError);
+                }
+            }
+            return Stream.empty();
+        }
+    }
+
+    private static String playerColumns(Set<PlayerData.Section> sections) {
+        StringBuilder columns = new StringBuilder("uuid, player_name, primary_rank, secondary_ranks, permissions, discord_id");
+        if (sections.contains(PlayerData.Section.LAST_SEEN)) {
+            columns.append(", last_seen");
+        }
+        if (sections.contains(PlayerData.Section.LAST_LOGIN)) {
+            columns.append(", last_login");
+        }
+        if (sections.contains(PlayerData.Section.METADATA)) {
+            columns.append(", metadata");
+        }
+        return columns.toString();
     }
 
     @Override
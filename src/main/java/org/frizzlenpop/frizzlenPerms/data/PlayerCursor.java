@@ -0,0 +1,119 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the rows of an open JDBC result set as player data, reading the next row only when
+ * the stream asks for it. The result set and the resources behind it are released when the
+ * stream is closed or runs out of rows, whichever comes first.
+ */
+final class PlayerCursor extends Spliterators.AbstractSpliterator<PlayerData> {
+
+    /**
+     * Reads the player on the current row of a result set.
+     */
+    @FunctionalInterface
+    interface RowReader {
+        /**
+         * Reads the current row.
+         *
+         * @param rs The result set, positioned on a row
+         * @return The player data, or null to skip the row
+         * @throws SQLException If the row cannot be read
+         */
+        PlayerData read(ResultSet rs) throws SQLException;
+    }
+
+    private final ResultSet rs;
+    private final RowReader reader;
+    private final Logger logger;
+    private final AutoCloseable[] resources;
+    private boolean closed;
+
+    private PlayerCursor(ResultSet rs, RowReader reader, Logger logger, AutoCloseable[] resources) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.rs = rs;
+        this.reader = reader;
+        this.logger = logger;
+        this.resources = resources;
+    }
+
+    /**
+     * Creates a stream over the rows of a result set. The stream must be closed.
+     *
+     * @param rs The result set to read
+     * @param reader Reads a player from a row
+     * @param logger The logger to report read failures to
+     * @param resources What to close after the result set, in order, such as the statement and connection
+     * @return A sequential stream of the players
+     */
+    static Stream<PlayerData> stream(ResultSet rs, RowReader reader, Logger logger, AutoCloseable... resources) {
+        PlayerCursor cursor = new PlayerCursor(
+                Objects.requireNonNull(rs, "ResultSet cannot be null"),
+                Objects.requireNonNull(reader, "Reader cannot be null"),
+                Objects.requireNonNull(logger, "Logger cannot be null"),
+                resources);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PlayerData> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            while (rs.next()) {
+                PlayerData playerData = reader.read(rs);
+                if (playerData != null) {
+                    action.accept(playerData);
+                    return true;
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to read the next stored player, stopping the scan", e);
+        }
+        close();
+        return false;
+    }
+
+    /**
+     * Closes the result set and the resources behind it. Safe to call more than once.
+     */
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeQuietly(rs);
+        for (AutoCloseable resource : resources) {
+            closeQuietly(resource);
+        }
+    }
+
+    /**
+     * Closes a resource, logging instead of throwing on failure.
+     *
+     * @param resource The resource, may be null
+     */
+    private void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to close a player scan", e);
+        }
+    }
+}
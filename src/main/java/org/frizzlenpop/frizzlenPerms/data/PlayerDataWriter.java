@@ -0,0 +1,436 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.bukkit.Bukkit;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Writes player data to storage in the background. Saves are queued per player, so a player
+ * saved several times before the next flush is written once, with their latest data. Queued
+ * players are written in batches, one transaction per batch, on a dedicated thread.
+ * Each save queues a copy taken on the saving thread, and players whose write fails are
+ * queued again and retried with a growing delay.
+ * <p>
+ * The queue limit only applies to saves off the main thread, which wait for room while the
+ * queue is full. The main thread never waits: its saves are always queued, and a save that
+ * finds the queue full starts a flush if none is scheduled yet. As saves of the same player
+ * replace each other, main-thread saves add at most one entry per player.
+ */
+public class PlayerDataWriter {
+
+    private static final long BACKPRESSURE_TIMEOUT_MILLIS = 5_000L;
+    private static final long RETRY_DELAY_MILLIS = 1_000L;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000L;
+
+    private final FrizzlenPerms plugin;
+    private final Supplier<StorageProvider> storage;
+    private final Map<UUID, PlayerData> pending = new LinkedHashMap<>();
+    private final Object writeLock = new Object();
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final long flushDelayMillis;
+    private final int batchSize;
+    private final int maxPending;
+    private volatile Map<UUID, PlayerData> inFlight = Collections.emptyMap();
+    private volatile long lastFlushNanos;
+    private volatile int failedFlushes;
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new PlayerDataWriter.
+     *
+     * @param plugin The plugin instance
+     * @param storage Supplies the storage provider to write to
+     */
+    public PlayerDataWriter(FrizzlenPerms plugin, Supplier<StorageProvider> storage) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+        this.storage = Objects.requireNonNull(storage, "Storage supplier cannot be null");
+        this.flushDelayMillis = Math.max(0L, plugin.getConfigManager().getWriteBehindFlushDelayMillis());
+        this.batchSize = Math.max(1, plugin.getConfigManager().getWriteBehindBatchSize());
+        this.maxPending = Math.max(1, plugin.getConfigManager().getWriteBehindMaxPending());
+
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "FrizzlenPerms-PlayerDataWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Scheduled flushes are replaced by the drain on shutdown
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Queues a player's data to be written. If the player is already queued, the queued
+     * entry is replaced and the player is written once. The data is copied on the calling
+     * thread, which must be the thread that modifies it.
+     *
+     * @param playerData The player data to write
+     */
+    public void enqueue(PlayerData playerData) {
+        Objects.requireNonNull(playerData, "PlayerData cannot be null");
+        requested.incrementAndGet();
+
+        UUID uuid = playerData.getUuid();
+        awaitCapacity(uuid);
+        PlayerData snapshot = playerData.snapshot();
+        synchronized (pending) {
+            if (!shutdown) {
+                PlayerData replaced = pending.put(uuid, snapshot);
+                if (replaced != null) {
+                    snapshot.carryChanges(replaced);
+                }
+                scheduleFlush(flushDelayMillis);
+                return;
+            }
+        }
+
+        // The queue has been drained, write directly
+        synchronized (writeLock) {
+            if (!write(Collections.singletonList(snapshot)).isEmpty()) {
+                plugin.getLogger().severe("Player data of " + uuid + " could not be written after shutdown and was lost.");
+            }
+        }
+    }
+
+    /**
+     * Gets the data of a player that is queued or being written, so a read from storage
+     * does not miss a save that has not reached it yet.
+     *
+     * @param uuid The UUID of the player
+     * @return A copy of the unwritten player data, or null if there is none
+     */
+    public PlayerData getPending(UUID uuid) {
+        PlayerData playerData;
+        synchronized (pending) {
+            playerData = pending.get(uuid);
+        }
+        if (playerData == null) {
+            playerData = inFlight.get(uuid);
+        }
+        return playerData != null ? playerData.copy() : null;
+    }
+
+    /**
+     * Drops the queued data of a player. Once this returns, no write of the player is
+     * queued or in progress, so their stored data can be deleted safely.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void cancel(UUID uuid) {
+        synchronized (writeLock) {
+            synchronized (pending) {
+                pending.remove(uuid);
+                pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes queued players on the calling thread until the queue is empty or the timeout passes.
+     *
+     * @param timeoutMillis The maximum time to spend, in milliseconds
+     * @return The number of players still queued
+     */
+    public int drain(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            if (flushBatch()) {
+                continue;
+            }
+
+            // Give storage time to recover before retrying
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            try {
+                Thread.sleep(Math.max(0L, Math.min(getRetryDelayMillis(), remaining)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return getQueueDepth();
+    }
+
+    /**
+     * Stops the writer thread after draining the queue. Later saves are written directly.
+     *
+     * @param timeoutMillis The maximum time to spend draining, in milliseconds
+     */
+    public void shutdown(long timeoutMillis) {
+        synchronized (pending) {
+            shutdown = true;
+            pending.notifyAll();
+        }
+        executor.shutdown();
+
+        int remaining = drain(timeoutMillis);
+        if (remaining > 0) {
+            plugin.getLogger().severe(remaining + " queued player saves could not be written within "
+                    + timeoutMillis + "ms and were lost.");
+        }
+
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of players waiting to be written.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the number of saves requested since startup, including coalesced ones.
+     *
+     * @return The number of requested saves
+     */
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    /**
+     * Gets the number of players written successfully since startup.
+     *
+     * @return The number of written players
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of batches written since startup.
+     *
+     * @return The number of batches
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Gets how long the last batch took to write.
+     *
+     * @return The latency in milliseconds
+     */
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    /**
+     * Gets how long a batch took to write on average since startup.
+     *
+     * @return The average latency in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        long count = batches.get();
+        return count == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * Waits while the queue is full, unless the player is already queued, in which case the
+     * save only replaces an entry. The main thread does not wait; if the queue is full, a
+     * flush is started instead, unless one is already scheduled.
+     *
+     * @param uuid The UUID of the player to queue
+     */
+    private void awaitCapacity(UUID uuid) {
+        if (Bukkit.isPrimaryThread()) {
+            synchronized (pending) {
+                if (pending.size() >= maxPending && !shutdown) {
+                    scheduleFlush(0L);
+                }
+            }
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + BACKPRESSURE_TIMEOUT_MILLIS;
+        synchronized (pending) {
+            while (pending.size() >= maxPending && !pending.containsKey(uuid) && !shutdown) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    plugin.getLogger().warning("Player data write queue is full (" + pending.size()
+                            + " players), queueing " + uuid + " anyway.");
+                    return;
+                }
+                scheduleFlush(0L);
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules a flush on the writer thread, unless one is already scheduled.
+     *
+     * @param delayMillis The delay before the flush, in milliseconds
+     */
+    private void scheduleFlush(long delayMillis) {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the drain writes what is left
+            flushScheduled.set(false);
+        }
+    }
+
+    /**
+     * Writes one batch on the writer thread and schedules the next if players are still queued.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            flushBatch();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to flush queued player data", e);
+        }
+        if (getQueueDepth() > 0) {
+            scheduleFlush(failedFlushes > 0 ? getRetryDelayMillis() : 0L);
+        }
+    }
+
+    /**
+     * Gets how long to wait before retrying after failed writes, doubling with each
+     * failure in a row up to a limit.
+     *
+     * @return The delay in milliseconds
+     */
+    private long getRetryDelayMillis() {
+        int failures = Math.max(1, failedFlushes);
+        return Math.min(MAX_RETRY_DELAY_MILLIS, RETRY_DELAY_MILLIS << Math.min(failures - 1, 16));
+    }
+
+    /**
+     * Takes up to one batch of queued players, oldest first, and writes them.
+     * Players that could not be written are queued again.
+     *
+     * @return True if the batch was written or the queue was empty, false if writes failed
+     */
+    private boolean flushBatch() {
+        synchronized (writeLock) {
+            List<PlayerData> batch = new ArrayList<>();
+            synchronized (pending) {
+                Iterator<PlayerData> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                pending.notifyAll();
+            }
+            if (batch.isEmpty()) {
+                return true;
+            }
+
+            Map<UUID, PlayerData> writing = new HashMap<>();
+            for (PlayerData playerData : batch) {
+                writing.put(playerData.getUuid(), playerData);
+            }
+            inFlight = writing;
+            List<PlayerData> failed;
+            try {
+                failed = write(batch);
+                requeue(failed);
+            } finally {
+                inFlight = Collections.emptyMap();
+            }
+
+            failedFlushes = failed.isEmpty() ? 0 : failedFlushes + 1;
+            return failed.isEmpty();
+        }
+    }
+
+    /**
+     * Queues players whose write failed again. A player saved again in the meantime keeps
+     * the newer data, which takes over the changes that were not written.
+     *
+     * @param failed The player data that could not be written
+     */
+    private void requeue(List<PlayerData> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        synchronized (pending) {
+            for (PlayerData playerData : failed) {
+                PlayerData newer = pending.get(playerData.getUuid());
+                if (newer != null) {
+                    newer.carryChanges(playerData);
+                } else {
+                    pending.put(playerData.getUuid(), playerData);
+                }
+            }
+        }
+        plugin.getLogger().warning(failed.size() + " player saves failed and were queued again.");
+    }
+
+    /**
+     * Writes a batch to storage and records its latency.
+     *
+     * @param batch The player data to write
+     * @return The player data that could not be written
+     */
+    private List<PlayerData> write(List<PlayerData> batch) {
+        StorageProvider provider = storage.get();
+        if (provider == null) {
+            plugin.getLogger().warning("No storage available to write " + batch.size() + " players.");
+            return batch;
+        }
+
+        long start = System.nanoTime();
+        try {
+            provider.savePlayerDataBatch(batch);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write " + batch.size() + " players", e);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        batches.incrementAndGet();
+
+        // Storage logs and skips players it fails to write, their changes stay unsaved
+        List<PlayerData> failed = new ArrayList<>();
+        for (PlayerData playerData : batch) {
+            if (playerData.hasChanges()) {
+                failed.add(playerData);
+            }
+        }
+        written.addAndGet(batch.size() - failed.size());
+        return failed;
+    }
+}
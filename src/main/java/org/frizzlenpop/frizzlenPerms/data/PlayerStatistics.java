@@ -0,0 +1,92 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregate counts over every stored player: how many there are, how many are linked to
+ * Discord, and how many hold each rank as their primary or as a secondary rank.
+ * A secondary rank that is also the player's primary rank is counted as primary only.
+ * Rank names are lowercased, as rank lookups are case-insensitive.
+ */
+public class PlayerStatistics {
+
+    /**
+     * Statistics of a storage without players.
+     */
+    public static final PlayerStatistics EMPTY = new PlayerStatistics(0, 0, Collections.emptyMap(), Collections.emptyMap());
+
+    private final int totalPlayers;
+    private final int discordLinkedPlayers;
+    private final Map<String, Integer> primaryRankMembers;
+    private final Map<String, Integer> secondaryRankMembers;
+
+    /**
+     * Creates new PlayerStatistics.
+     *
+     * @param totalPlayers The number of stored players
+     * @param discordLinkedPlayers The number of players linked to a Discord account
+     * @param primaryRankMembers The number of players per primary rank
+     * @param secondaryRankMembers The number of players per secondary rank
+     */
+    public PlayerStatistics(int totalPlayers, int discordLinkedPlayers,
+                            Map<String, Integer> primaryRankMembers, Map<String, Integer> secondaryRankMembers) {
+        this.totalPlayers = totalPlayers;
+        this.discordLinkedPlayers = discordLinkedPlayers;
+        this.primaryRankMembers = Collections.unmodifiableMap(new HashMap<>(
+                Objects.requireNonNull(primaryRankMembers, "Primary rank members cannot be null")));
+        this.secondaryRankMembers = Collections.unmodifiableMap(new HashMap<>(
+                Objects.requireNonNull(secondaryRankMembers, "Secondary rank members cannot be null")));
+    }
+
+    /**
+     * Gets the number of stored players.
+     *
+     * @return The number of players
+     */
+    public int getTotalPlayers() {
+        return totalPlayers;
+    }
+
+    /**
+     * Gets the number of players linked to a Discord account.
+     *
+     * @return The number of linked players
+     */
+    public int getDiscordLinkedPlayers() {
+        return discordLinkedPlayers;
+    }
+
+    /**
+     * Gets the number of players per primary rank.
+     *
+     * @return An unmodifiable map of lowercased rank names to member counts
+     */
+    public Map<String, Integer> getPrimaryRankMembers() {
+        return primaryRankMembers;
+    }
+
+    /**
+     * Gets the number of players per secondary rank, leaving out players whose primary rank it is.
+     *
+     * @return An unmodifiable map of lowercased rank names to member counts
+     */
+    public Map<String, Integer> getSecondaryRankMembers() {
+        return secondaryRankMembers;
+    }
+
+    /**
+     * Gets the number of players holding a rank, as primary or secondary rank.
+     * A player holding the rank both ways is counted once.
+     *
+     * @param rankName The name of the rank
+     * @return The number of members
+     */
+    public int getRankMembers(String rankName) {
+        String key = rankName.toLowerCase(Locale.ROOT);
+        return primaryRankMembers.getOrDefault(key, 0) + secondaryRankMembers.getOrDefault(key, 0);
+    }
+}
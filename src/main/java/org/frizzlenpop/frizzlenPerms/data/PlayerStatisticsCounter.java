@@ -0,0 +1,112 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps player statistics current as players are saved and deleted, for storage that cannot
+ * count on demand. The counted ranks and link of each player are remembered, so saving a
+ * player again replaces their previous contribution instead of adding to it.
+ */
+final class PlayerStatisticsCounter {
+
+    private final Map<UUID, Membership> players = new HashMap<>();
+    private final Map<String, Integer> primaryRankMembers = new HashMap<>();
+    private final Map<String, Integer> secondaryRankMembers = new HashMap<>();
+    private int discordLinkedPlayers;
+
+    /**
+     * Counts a player, replacing what was counted for them before.
+     *
+     * @param playerData The player data as stored
+     */
+    synchronized void update(PlayerData playerData) {
+        remove(playerData.getUuid());
+        Membership membership = new Membership(playerData);
+        players.put(playerData.getUuid(), membership);
+        apply(membership, 1);
+    }
+
+    /**
+     * Stops counting a deleted player.
+     *
+     * @param uuid The UUID of the player
+     */
+    synchronized void remove(UUID uuid) {
+        Membership membership = players.remove(uuid);
+        if (membership != null) {
+            apply(membership, -1);
+        }
+    }
+
+    /**
+     * Gets the current counts.
+     *
+     * @return The statistics
+     */
+    synchronized PlayerStatistics snapshot() {
+        return new PlayerStatistics(players.size(), discordLinkedPlayers, primaryRankMembers, secondaryRankMembers);
+    }
+
+    /**
+     * Adds or subtracts a player's contribution to the counts.
+     *
+     * @param membership The counted ranks and link of the player
+     * @param delta 1 to add, -1 to subtract
+     */
+    private void apply(Membership membership, int delta) {
+        if (membership.primaryRank != null) {
+            adjust(primaryRankMembers, membership.primaryRank, delta);
+        }
+        for (String rankName : membership.secondaryRanks) {
+            adjust(secondaryRankMembers, rankName, delta);
+        }
+        if (membership.discordLinked) {
+            discordLinkedPlayers += delta;
+        }
+    }
+
+    /**
+     * Adjusts one count, dropping it when it reaches zero.
+     *
+     * @param counts The counts
+     * @param rankName The rank to adjust
+     * @param delta The amount to add
+     */
+    private static void adjust(Map<String, Integer> counts, String rankName, int delta) {
+        counts.compute(rankName, (key, count) -> {
+            int next = (count != null ? count : 0) + delta;
+            return next != 0 ? next : null;
+        });
+    }
+
+    /**
+     * What one player contributes to the counts.
+     */
+    private static final class Membership {
+        private final String primaryRank;
+        private final List<String> secondaryRanks = new ArrayList<>();
+        private final boolean discordLinked;
+
+        private Membership(PlayerData playerData) {
+            String primary = playerData.getPrimaryRank();
+            this.primaryRank = primary != null && !primary.isEmpty() ? primary.toLowerCase(Locale.ROOT) : null;
+            for (String rankName : playerData.getSecondaryRanks()) {
+                if (rankName != null && !rankName.isEmpty()) {
+                    String key = rankName.toLowerCase(Locale.ROOT);
+                    if (!key.equals(primaryRank)) {
+                        secondaryRanks.add(key);
+                    }
+                }
+            }
+            String discordId = playerData.getDiscordId();
+            this.discordLinked = discordId != null && !discordId.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.frizzlenpop.frizzlenPerms.models.Rank;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * The single source of truth for loaded ranks: a versioned, immutable map of read-only
+ * rank snapshots behind an atomic reference. Readers on any thread get a consistent view
+ * of every rank without locking; writers publish a new version by copying the map.
+ * The version increases with every published change, so caches built from the ranks can
+ * check they are current with one comparison.
+ */
+public class RankRegistry {
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, Collections.emptyMap()));
+
+    /**
+     * Gets the current version of the ranks.
+     *
+     * @return The current snapshot
+     */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Gets the current version number.
+     *
+     * @return The version number
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Gets the published snapshot of a rank.
+     *
+     * @param name The name of the rank
+     * @return The read-only rank, or null if not loaded
+     */
+    public Rank get(String name) {
+        return current.get().get(name);
+    }
+
+    /**
+     * Publishes a rank, replacing the previous version of it.
+     *
+     * @param rank The rank to publish, copied into a read-only snapshot
+     * @return The new snapshot
+     */
+    public Snapshot publish(Rank rank) {
+        Objects.requireNonNull(rank, "Rank cannot be null");
+        Rank snapshot = rank.snapshot();
+        return update(ranks -> {
+            ranks.put(snapshot.getName().toLowerCase(), snapshot);
+            return ranks;
+        });
+    }
+
+    /**
+     * Publishes ranks read from storage. Ranks that are already published are kept,
+     * as they are at least as recent as the stored ones.
+     *
+     * @param loaded The ranks to publish
+     * @return The new snapshot
+     */
+    public Snapshot load(Collection<Rank> loaded) {
+        Objects.requireNonNull(loaded, "Ranks cannot be null");
+        Map<String, Rank> snapshots = new HashMap<>();
+        for (Rank rank : loaded) {
+            if (rank != null) {
+                snapshots.put(rank.getName().toLowerCase(), rank.snapshot());
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return current.get();
+        }
+        return update(ranks -> {
+            snapshots.forEach(ranks::putIfAbsent);
+            return ranks;
+        });
+    }
+
+    /**
+     * Removes a rank.
+     *
+     * @param name The name of the rank
+     * @return The new snapshot
+     */
+    public Snapshot remove(String name) {
+        Objects.requireNonNull(name, "Name cannot be null");
+        String key = name.toLowerCase();
+        return update(ranks -> {
+            ranks.remove(key);
+            return ranks;
+        });
+    }
+
+    /**
+     * Removes every rank.
+     *
+     * @return The new snapshot
+     */
+    public Snapshot clear() {
+        return update(ranks -> new HashMap<>());
+    }
+
+    /**
+     * Applies a change to a copy of the current ranks and publishes the result,
+     * retrying if another writer published first.
+     *
+     * @param change The change, given a mutable copy of the ranks
+     * @return The new snapshot
+     */
+    private Snapshot update(UnaryOperator<Map<String, Rank>> change) {
+        while (true) {
+            Snapshot previous = current.get();
+            Map<String, Rank> ranks = change.apply(new HashMap<>(previous.ranks));
+            Snapshot next = new Snapshot(previous.version + 1, Collections.unmodifiableMap(ranks));
+            if (current.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * One immutable version of the ranks.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, Rank> ranks;
+
+        private Snapshot(long version, Map<String, Rank> ranks) {
+            this.version = version;
+            this.ranks = ranks;
+        }
+
+        /**
+         * Gets the version number of this snapshot.
+         *
+         * @return The version number
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets a rank in this snapshot.
+         *
+         * @param name The name of the rank
+         * @return The read-only rank, or null if not present
+         */
+        public Rank get(String name) {
+            return name != null ? ranks.get(name.toLowerCase()) : null;
+        }
+
+        /**
+         * Gets every rank in this snapshot.
+         *
+         * @return An unmodifiable map of lowercase rank names to read-only ranks
+         */
+        public Map<String, Rank> getRanks() {
+            return ranks;
+        }
+
+        /**
+         * Checks if this snapshot contains no ranks.
+         *
+         * @return Whether there are no ranks
+         */
+        public boolean isEmpty() {
+            return ranks.isEmpty();
+        }
+    }
+}
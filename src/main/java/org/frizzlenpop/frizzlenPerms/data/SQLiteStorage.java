@@ -10,13 +10,38 @@ import org.frizzlenpop.frizzlenPerms.models.Rank;
 import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  * SQLite implementation of the StorageProvider interface.
  */
 public class SQLiteStorage implements StorageProvider {
     
+    // World permissions, temporary ranks and temporary permissions of one player in one round trip
+    private static final String PLAYER_SECTIONS_QUERY =
+            "SELECT 'world' AS kind, world AS entry_key, permissions AS entry_value, 0 AS expiration " +
+                    "FROM player_world_permissions WHERE player_uuid = ? " +
+            "UNION ALL SELECT 'rank', rank_name, NULL, expiration FROM temporary_ranks WHERE player_uuid = ? " +
+            "UNION ALL SELECT 'permission', permission, NULL, expiration FROM temporary_permissions WHERE player_uuid = ?";
+    
+    // Members per secondary rank, splitting the comma-separated column in the database
+    private static final String SECONDARY_RANK_MEMBERS_QUERY =
+            "WITH RECURSIVE split (rank_name, rest, primary_rank) AS (" +
+                    "SELECT '', secondary_ranks || ',', COALESCE(primary_rank, '') FROM players WHERE secondary_ranks <> '' " +
+                    "UNION ALL SELECT substr(rest, 1, instr(rest, ',') - 1), substr(rest, instr(rest, ',') + 1), primary_rank FROM split WHERE rest <> ''" +
+            ") SELECT rank_name, COUNT(*) AS members FROM split WHERE rank_name <> '' AND LOWER(rank_name) <> LOWER(primary_rank) GROUP BY rank_name";
+    
+    // Every temporary rank and permission, without loading the players they belong to
+    private static final String TEMPORARY_ENTRIES_QUERY =
+            "SELECT 'rank' AS kind, player_uuid, rank_name AS name, expiration FROM temporary_ranks " +
+            "UNION ALL SELECT 'permission', player_uuid, permission, expiration FROM temporary_permissions";
+    
+    // Rows fetched per round trip while scanning every player
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final Set<PlayerData.Section> ALL_SECTIONS = Collections.unmodifiableSet(EnumSet.allOf(PlayerData.Section.class));
+    
     private final FrizzlenPerms plugin;
     private HikariDataSource dataSource;
     
@@ -44,6 +69,8 @@ public class SQLiteStorage implements StorageProvider {
             config.setMaximumPoolSize(10);
             config.setConnectionTimeout(30000);
             config.setPoolName("FrizzlenPerms-SQLite");
+            // Let writes proceed while a player scan holds a read cursor open
+            config.addDataSourceProperty("journal_mode", "WAL");
             
             // Initialize connection pool
             dataSource = new HikariDataSource(config);
@@ -64,6 +91,15 @@ public class SQLiteStorage implements StorageProvider {
         }
     }
     
+    /**
+     * Gets the pool the storage reads and writes through.
+     *
+     * @return The data source
+     */
+    HikariDataSource getDataSource() {
+        return dataSource;
+    }
+    
     /**
      * Creates the database tables if they don't exist.
      */
@@ -133,6 +169,8 @@ public class SQLiteStorage implements StorageProvider {
             
             // Create indexes
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_name ON players (player_name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_primary_rank ON players (primary_rank)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_discord_id ON players (discord_id)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_audit_logs_timestamp ON audit_logs (timestamp)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_audit_logs_target ON audit_logs (target_uuid)");
             
@@ -150,7 +188,7 @@ public class SQLiteStorage implements StorageProvider {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return loadPlayerDataFromResultSet(rs);
+                    return loadPlayerDataFromResultSet(conn, rs);
                 }
             }
         } catch (SQLException e) {
@@ -169,7 +207,7 @@ public class SQLiteStorage implements StorageProvider {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return loadPlayerDataFromResultSet(rs);
+                    return loadPlayerDataFromResultSet(conn, rs);
                 }
             }
         } catch (SQLException e) {
@@ -179,14 +217,53 @@ public class SQLiteStorage implements StorageProvider {
         return null;
     }
     
+    @Override
+    public PlayerData getPlayerDataByDiscordId(String discordId) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM players WHERE discord_id = ?")) {
+            
+            stmt.setString(1, discordId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return loadPlayerDataFromResultSet(conn, rs);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to get player data for Discord user " + discordId, e);
+        }
+        
+        return null;
+    }
+    
     /**
      * Loads a PlayerData object from a ResultSet.
      *
+     * @param conn The connection the ResultSet belongs to
      * @param rs The ResultSet
      * @return The PlayerData object
      * @throws SQLException If an error occurs
      */
-    private PlayerData loadPlayerDataFromResultSet(ResultSet rs) throws SQLException {
+    private PlayerData loadPlayerDataFromResultSet(Connection conn, ResultSet rs) throws SQLException {
+        PlayerData playerData = readPlayerRow(rs, ALL_SECTIONS);
+        
+        // Load world permissions, temporary ranks and temporary permissions
+        loadPlayerSections(conn, playerData);
+        
+        playerData.markSaved();
+        return playerData;
+    }
+    
+    /**
+     * Reads the columns of a player row that belong to the given sections.
+     * The base section is always read.
+     *
+     * @param rs The ResultSet, positioned on a player row
+     * @param sections The sections to read
+     * @return The PlayerData object
+     * @throws SQLException If an error occurs
+     */
+    private PlayerData readPlayerRow(ResultSet rs, Set<PlayerData.Section> sections) throws SQLException {
         UUID uuid = UUID.fromString(rs.getString("uuid"));
         String playerName = rs.getString("player_name");
         
@@ -211,11 +288,15 @@ public class SQLiteStorage implements StorageProvider {
         playerData.setDiscordId(rs.getString("discord_id"));
         
         // Set last seen and last login
-        playerData.setLastSeen(rs.getLong("last_seen"));
-        playerData.setLastLogin(rs.getLong("last_login"));
+        if (sections.contains(PlayerData.Section.LAST_SEEN)) {
+            playerData.setLastSeen(rs.getLong("last_seen"));
+        }
+        if (sections.contains(PlayerData.Section.LAST_LOGIN)) {
+            playerData.setLastLogin(rs.getLong("last_login"));
+        }
         
         // Set metadata
-        String metadataStr = rs.getString("metadata");
+        String metadataStr = sections.contains(PlayerData.Section.METADATA) ? rs.getString("metadata") : null;
         if (metadataStr != null && !metadataStr.isEmpty()) {
             Map<String, String> metadata = new HashMap<>();
             for (String entry : metadataStr.split(",")) {
@@ -229,118 +310,93 @@ public class SQLiteStorage implements StorageProvider {
             }
         }
         
-        // Load world permissions
-        loadWorldPermissions(playerData);
-        
-        // Load temporary ranks
-        loadTemporaryRanks(playerData);
-        
-        // Load temporary permissions
-        loadTemporaryPermissions(playerData);
-        
         return playerData;
     }
     
     /**
-     * Loads world permissions for a player.
+     * Loads the world permissions, temporary ranks and temporary permissions of a player
+     * with one query on the connection that loaded the player row.
      *
+     * @param conn The database connection
      * @param playerData The player data
      */
-    private void loadWorldPermissions(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM player_world_permissions WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String world = rs.getString("world");
-                    String permissionsStr = rs.getString("permissions");
-                    
-                    if (permissionsStr != null && !permissionsStr.isEmpty()) {
-                        for (String permission : permissionsStr.split(",")) {
-                            playerData.addWorldPermission(world, permission);
-                        }
-                    }
-                }
-            }
+    private void loadPlayerSections(Connection conn, PlayerData playerData) {
+        try (PreparedStatement stmt = conn.prepareStatement(PLAYER_SECTIONS_QUERY)) {
+            readPlayerSections(stmt, playerData);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load world permissions for " + playerData.getUuid(), e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load world permissions and temporary entries for " + playerData.getUuid(), e);
         }
     }
     
     /**
-     * Loads temporary ranks for a player.
+     * Reads the world permissions, temporary ranks and temporary permissions of a player
+     * with a prepared {@code PLAYER_SECTIONS_QUERY}.
      *
+     * @param stmt The prepared statement, reused across players
      * @param playerData The player data
+     * @throws SQLException If an error occurs
      */
-    private void loadTemporaryRanks(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM temporary_ranks WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String rankName = rs.getString("rank_name");
-                    long expiration = rs.getLong("expiration");
-                    
-                    playerData.addTemporaryRank(rankName, expiration);
-                }
+    private void readPlayerSections(PreparedStatement stmt, PlayerData playerData) throws SQLException {
+        String uuid = playerData.getUuid().toString();
+        stmt.setString(1, uuid);
+        stmt.setString(2, uuid);
+        stmt.setString(3, uuid);
+        
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                readSectionRow(rs, playerData);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load temporary ranks for " + playerData.getUuid(), e);
         }
     }
     
     /**
-     * Loads temporary permissions for a player.
+     * Reads one row of a child section query into the player data.
      *
+     * @param rs The ResultSet, positioned on a row with kind, entry_key, entry_value and expiration columns
      * @param playerData The player data
+     * @throws SQLException If an error occurs
      */
-    private void loadTemporaryPermissions(PlayerData playerData) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM temporary_permissions WHERE player_uuid = ?")) {
-            
-            stmt.setString(1, playerData.getUuid().toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String permission = rs.getString("permission");
-                    long expiration = rs.getLong("expiration");
-                    
-                    playerData.addTemporaryPermission(permission, expiration);
+    private static void readSectionRow(ResultSet rs, PlayerData playerData) throws SQLException {
+        String key = rs.getString("entry_key");
+        switch (rs.getString("kind")) {
+            case "world":
+                String permissionsStr = rs.getString("entry_value");
+                if (permissionsStr != null && !permissionsStr.isEmpty()) {
+                    for (String permission : permissionsStr.split(",")) {
+                        playerData.addWorldPermission(key, permission);
+                    }
                 }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load temporary permissions for " + playerData.getUuid(), e);
+                break;
+            case "rank":
+                playerData.addTemporaryRank(key, rs.getLong("expiration"));
+                break;
+            case "permission":
+                playerData.addTemporaryPermission(key, rs.getLong("expiration"));
+                break;
+            default:
+                break;
         }
     }
     
     @Override
     public void savePlayerData(PlayerData playerData) {
+        // Only write what changed since the last load or save
+        PlayerData.Changes changes = playerData.getChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        
         try (Connection conn = dataSource.getConnection()) {
             // Start transaction
             conn.setAutoCommit(false);
             
             try {
-                // Save player data
-                savePlayerDataBase(conn, playerData);
-                
-                // Save world permissions
-                savePlayerWorldPermissions(conn, playerData);
-                
-                // Save temporary ranks
-                saveTemporaryRanks(conn, playerData);
-                
-                // Save temporary permissions
-                saveTemporaryPermissions(conn, playerData);
+                // Save the dirty sections
+                savePlayerSections(conn, playerData, changes);
                 
                 // Commit transaction
                 conn.commit();
+                playerData.markSaved(changes);
             } catch (SQLException e) {
                 // Rollback transaction
                 conn.rollback();
@@ -354,6 +410,138 @@ public class SQLiteStorage implements StorageProvider {
         }
     }
     
+    @Override
+    public void savePlayerDataBatch(Collection<PlayerData> players) {
+        // Only write what changed since the last load or save
+        Map<PlayerData, PlayerData.Changes> dirty = new LinkedHashMap<>();
+        for (PlayerData playerData : players) {
+            PlayerData.Changes changes = playerData.getChanges();
+            if (!changes.isEmpty()) {
+                dirty.put(playerData, changes);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = dataSource.getConnection()) {
+            // Save the whole batch in one transaction
+            conn.setAutoCommit(false);
+            
+            try {
+                for (Map.Entry<PlayerData, PlayerData.Changes> entry : dirty.entrySet()) {
+                    savePlayerSections(conn, entry.getKey(), entry.getValue());
+                }
+                
+                conn.commit();
+                dirty.forEach(PlayerData::markSaved);
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to save a batch of " + dirty.size() + " players, saving them one by one", e);
+        }
+        
+        // One bad row should not lose the rest of the batch
+        for (PlayerData playerData : dirty.keySet()) {
+            savePlayerData(playerData);
+        }
+    }
+    
+    /**
+     * Saves the sections of a player's data that changed. Data that was never stored is
+     * written in full, as is a player whose row has disappeared from the table.
+     *
+     * @param conn The database connection
+     * @param playerData The player data
+     * @param changes The changes to write
+     * @throws SQLException If an error occurs
+     */
+    private void savePlayerSections(Connection conn, PlayerData playerData, PlayerData.Changes changes) throws SQLException {
+        boolean full = changes.isUnsaved() || !updatePlayerColumns(conn, playerData, changes);
+        if (full) {
+            savePlayerDataBase(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.WORLD_PERMISSIONS)) {
+            savePlayerWorldPermissions(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.TEMPORARY_RANKS)) {
+            saveTemporaryRanks(conn, playerData);
+        }
+        if (full || changes.isDirty(PlayerData.Section.TEMPORARY_PERMISSIONS)) {
+            saveTemporaryPermissions(conn, playerData);
+        }
+    }
+    
+    /**
+     * Updates only the changed columns of a player's row, such as just last_seen.
+     *
+     * @param conn The database connection
+     * @param playerData The player data
+     * @param changes The changes to write
+     * @return False if the player has no row to update
+     * @throws SQLException If an error occurs
+     */
+    private boolean updatePlayerColumns(Connection conn, PlayerData playerData, PlayerData.Changes changes) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (changes.isDirty(PlayerData.Section.BASE)) {
+            columns.addAll(List.of("player_name", "primary_rank", "secondary_ranks", "permissions", "discord_id"));
+            values.add(playerData.getPlayerName());
+            values.add(playerData.getPrimaryRank());
+            values.add(String.join(",", playerData.getSecondaryRanks()));
+            values.add(String.join(",", playerData.getPermissions()));
+            values.add(playerData.getDiscordId());
+        }
+        if (changes.isDirty(PlayerData.Section.LAST_SEEN)) {
+            columns.add("last_seen");
+            values.add(playerData.getLastSeen());
+        }
+        if (changes.isDirty(PlayerData.Section.LAST_LOGIN)) {
+            columns.add("last_login");
+            values.add(playerData.getLastLogin());
+        }
+        if (changes.isDirty(PlayerData.Section.METADATA)) {
+            columns.add("metadata");
+            values.add(formatMetadata(playerData.getMetadata()));
+        }
+        if (columns.isEmpty()) {
+            return true;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE players SET " + String.join(" = ?, ", columns) + " = ? WHERE uuid = ?")) {
+            
+            for (int i = 0; i < values.size(); i++) {
+                stmt.setObject(i + 1, values.get(i));
+            }
+            stmt.setString(values.size() + 1, playerData.getUuid().toString());
+            
+            return stmt.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Formats player metadata for the metadata column.
+     *
+     * @param metadata The metadata
+     * @return The metadata as comma separated key=value pairs
+     */
+    private String formatMetadata(Map<String, String> metadata) {
+        StringBuilder metadataBuilder = new StringBuilder();
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            if (metadataBuilder.length() > 0) {
+                metadataBuilder.append(",");
+            }
+            metadataBuilder.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        return metadataBuilder.toString();
+    }
+    
     /**
      * Saves the base player data.
      *
@@ -383,14 +571,8 @@ public class SQLiteStorage implements StorageProvider {
             stmt.setLong(8, playerData.getLastLogin());
             
             // Convert metadata to string
-            StringBuilder metadataBuilder = new StringBuilder();
-            for (Map.Entry<String, String> entry : playerData.getMetadata().entrySet()) {
-                if (metadataBuilder.length() > 0) {
-                    metadataBuilder.append(",");
-                }
-                metadataBuilder.append(entry.getKey()).append("=").append(entry.getValue());
-            }
-            stmt.setString(9, metadataBuilder.toString());
+            String metadata = formatMetadata(playerData.getMetadata());
+            stmt.setString(9, metadata);
             
             stmt.executeUpdate();
         }
@@ -849,76 +1031,139 @@ public class SQLiteStorage implements StorageProvider {
     }
     
     @Override
-    public List<PlayerData> getAllPlayerData() {
-        List<PlayerData> allPlayers = new ArrayList<>();
+    public PlayerStatistics getPlayerStatistics() {
+        int totalPlayers = 0;
+        int discordLinkedPlayers = 0;
+        Map<String, Integer> primaryRankMembers = new HashMap<>();
+        Map<String, Integer> secondaryRankMembers = new HashMap<>();
         
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM players");
-             ResultSet rs = stmt.executeQuery()) {
+             Statement stmt = conn.createStatement()) {
             
-            while (rs.next()) {
-                UUID playerId = UUID.fromString(rs.getString("uuid"));
-                String name = rs.getString("name");
-                String prefix = rs.getString("prefix");
-                String suffix = rs.getString("suffix");
-                String chatColor = rs.getString("chat_color");
-                String nameColor = rs.getString("name_color");
-                String discordId = rs.getString("discord_id");
-                
-                PlayerData player = new PlayerData(playerId, name);
-                player.setPrefix(prefix);
-                player.setSuffix(suffix);
-                player.setChatColor(chatColor);
-                player.setNameColor(nameColor);
-                player.setDiscordId(discordId);
-                
-                // Load ranks
-                try (PreparedStatement rankStmt = conn.prepareStatement("SELECT rank_name FROM player_ranks WHERE player_uuid = ?")) {
-                    rankStmt.setString(1, playerId.toString());
-                    try (ResultSet rankRs = rankStmt.executeQuery()) {
-                        while (rankRs.next()) {
-                            player.addRank(rankRs.getString("rank_name"));
-                        }
-                    }
-                }
-                
-                // Load permissions
-                try (PreparedStatement permStmt = conn.prepareStatement("SELECT permission FROM player_permissions WHERE player_uuid = ?")) {
-                    permStmt.setString(1, playerId.toString());
-                    try (ResultSet permRs = permStmt.executeQuery()) {
-                        while (permRs.next()) {
-                            player.addPermission(permRs.getString("permission"));
-                        }
-                    }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*) AS total, COUNT(NULLIF(discord_id, '')) AS linked FROM players")) {
+                if (rs.next()) {
+                    totalPlayers = rs.getInt("total");
+                    discordLinkedPlayers = rs.getInt("linked");
                 }
-                
-                // Load world permissions
-                try (PreparedStatement worldPermStmt = conn.prepareStatement("SELECT world, permission FROM player_world_permissions WHERE player_uuid = ?")) {
-                    worldPermStmt.setString(1, playerId.toString());
-                    try (ResultSet worldPermRs = worldPermStmt.executeQuery()) {
-                        while (worldPermRs.next()) {
-                            player.addWorldPermission(worldPermRs.getString("world"), worldPermRs.getString("permission"));
-                        }
+            }
+            
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT primary_rank AS rank_name, COUNT(*) AS members FROM players WHERE primary_rank <> '' GROUP BY primary_rank")) {
+                readRankMembers(rs, primaryRankMembers);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery(SECONDARY_RANK_MEMBERS_QUERY)) {
+                readRankMembers(rs, secondaryRankMembers);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to get player statistics", e);
+        }
+        
+        return new PlayerStatistics(totalPlayers, discordLinkedPlayers, primaryRankMembers, secondaryRankMembers);
+    }
+    
+    /**
+     * Reads rank member counts from a result set with rank_name and members columns,
+     * merging rank names that differ only in case.
+     *
+     * @param rs The ResultSet
+     * @param counts The map to put the counts in
+     * @throws SQLException If an error occurs
+     */
+    private static void readRankMembers(ResultSet rs, Map<String, Integer> counts) throws SQLException {
+        while (rs.next()) {
+            counts.merge(rs.getString("rank_name").toLowerCase(Locale.ROOT), rs.getInt("members"), Integer::sum);
+        }
+    }
+    
+    @Override
+    public void forEachTemporaryEntry(Consumer<TemporaryEntry> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(TEMPORARY_ENTRIES_QUERY,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String uuid = rs.getString("player_uuid");
+                    String name = rs.getString("name");
+                    if (uuid == null || name == null) {
+                        continue;
                     }
-                }
-                
-                // Load metadata
-                try (PreparedStatement metaStmt = conn.prepareStatement("SELECT key, value FROM player_metadata WHERE player_uuid = ?")) {
-                    metaStmt.setString(1, playerId.toString());
-                    try (ResultSet metaRs = metaStmt.executeQuery()) {
-                        while (metaRs.next()) {
-                            player.setMetadata(metaRs.getString("key"), metaRs.getString("value"));
-                        }
+                    TemporaryEntry.Type type = "rank".equals(rs.getString("kind"))
+                            ? TemporaryEntry.Type.RANK : TemporaryEntry.Type.PERMISSION;
+                    try {
+                        action.accept(new TemporaryEntry(UUID.fromString(uuid), type, name, rs.getLong("expiration")));
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Skipping temporary entry of invalid UUID: " + uuid);
                     }
                 }
-                
-                allPlayers.add(player);
             }
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get all player data", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to scan temporary ranks and permissions", e);
         }
+    }
+    
+    @Override
+    public Stream<PlayerData> streamPlayers(Set<PlayerData.Section> sections) {
+        Objects.requireNonNull(sections, "Sections cannot be null");
+        boolean childSections = sections.contains(PlayerData.Section.WORLD_PERMISSIONS)
+                || sections.contains(PlayerData.Section.TEMPORARY_RANKS)
+                || sections.contains(PlayerData.Section.TEMPORARY_PERMISSIONS);
         
-        return allPlayers;
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            PreparedStatement sectionStmt = childSections ? conn.prepareStatement(PLAYER_SECTIONS_QUERY) : null;
+            PreparedStatement stmt = conn.prepareStatement("SELECT " + playerColumns(sections) + " FROM players",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            
+            return PlayerCursor.stream(rs, row -> {
+                PlayerData playerData = readPlayerRow(row, sections);
+                if (sectionStmt != null) {
+                    try {
+                        readPlayerSections(sectionStmt, playerData);
+                    } catch (SQLException e) {
+                        plugin.getLogger().log(Level.SEVERE, "Failed to load world permissions and temporary entries for " + playerData.getUuid(), e);
+                    }
+                }
+                playerData.markSaved();
+                return playerData;
+            }, plugin.getLogger(), sectionStmt, stmt, conn);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to scan stored players", e);
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closeError) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to close connection", closeError);
+                }
+            }
+            return Stream.empty();
+        }
+    }
+    
+    /**
+     * Gets the player columns that hold the given sections.
+     *
+     * @param sections The sections to select
+     * @return A comma-separated column list
+     */
+    private static String playerColumns(Set<PlayerData.Section> sections) {
+        StringBuilder columns = new StringBuilder("uuid, player_name, primary_rank, secondary_ranks, permissions, discord_id");
+        if (sections.contains(PlayerData.Section.LAST_SEEN)) {
+            columns.append(", last_seen");
+        }
+        if (sections.contains(PlayerData.Section.LAST_LOGIN)) {
+            columns.append(", last_login");
+        }
+        if (sections.contains(PlayerData.Section.METADATA)) {
+            columns.append(", metadata");
+        }
+        return columns.toString();
     }
     
     @Override
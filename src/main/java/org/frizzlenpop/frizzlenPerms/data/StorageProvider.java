@@ -4,9 +4,16 @@ import org.frizzlenpop.frizzlenPerms.models.AuditLog;
 import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import org.frizzlenpop.frizzlenPerms.models.Rank;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Interface for data storage providers.
@@ -39,6 +46,27 @@ public interface StorageProvider {
      */
     PlayerData getPlayerDataByName(String name);
     
+    /**
+     * Gets the data of the player linked to a Discord account from storage.
+     * Storage without an index on the Discord ID scans the stored players.
+     *
+     * @param discordId The Discord user ID
+     * @return The player data, or null if no player is linked to the account
+     */
+    default PlayerData getPlayerDataByDiscordId(String discordId) {
+        if (discordId == null) {
+            return null;
+        }
+        UUID uuid;
+        try (Stream<PlayerData> players = streamPlayers(EnumSet.noneOf(PlayerData.Section.class))) {
+            uuid = players.filter(playerData -> discordId.equals(playerData.getDiscordId()))
+                    .map(PlayerData::getUuid)
+                    .findFirst()
+                    .orElse(null);
+        }
+        return uuid != null ? getPlayerData(uuid) : null;
+    }
+    
     /**
      * Saves a player's data to storage.
      *
@@ -46,6 +74,17 @@ public interface StorageProvider {
      */
     void savePlayerData(PlayerData playerData);
     
+    /**
+     * Saves the data of several players, in a single transaction where the storage supports it.
+     *
+     * @param players The player data to save
+     */
+    default void savePlayerDataBatch(Collection<PlayerData> players) {
+        for (PlayerData playerData : players) {
+            savePlayerData(playerData);
+        }
+    }
+    
     /**
      * Gets a rank from storage.
      *
@@ -107,11 +146,57 @@ public interface StorageProvider {
     Rank getDefaultRank();
     
     /**
-     * Gets all player data from storage.
+     * Streams every stored player, reading them from storage as the stream is consumed instead
+     * of loading them all up front. The base section of each player is always loaded; other
+     * sections outside the projection may be left empty, so the streamed data is meant for
+     * reading and should not be saved back.
+     * The stream holds storage resources open and must be closed, for example with try-with-resources.
+     *
+     * @param sections The sections to load, see {@link PlayerData.Section}
+     * @return A sequential stream of the stored players
+     */
+    Stream<PlayerData> streamPlayers(Set<PlayerData.Section> sections);
+    
+    /**
+     * Runs an action for every stored player, one at a time, without holding them all in memory.
+     *
+     * @param sections The sections to load, see {@link #streamPlayers(Set)}
+     * @param action The action to run for each player
+     */
+    default void forEachPlayer(Set<PlayerData.Section> sections, Consumer<PlayerData> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        try (Stream<PlayerData> players = streamPlayers(sections)) {
+            players.forEach(action);
+        }
+    }
+    
+    /**
+     * Runs an action for every stored temporary rank and permission, reading only the
+     * temporary entries where the storage keeps them apart from the players.
+     *
+     * @param action The action to run for each entry
+     */
+    void forEachTemporaryEntry(Consumer<TemporaryEntry> action);
+    
+    /**
+     * Gets all player data from storage. This holds every player in memory at once;
+     * prefer {@link #streamPlayers(Set)} to scan the players.
      *
      * @return A list of all player data
      */
-    List<PlayerData> getAllPlayerData();
+    default List<PlayerData> getAllPlayerData() {
+        try (Stream<PlayerData> players = streamPlayers(EnumSet.allOf(PlayerData.Section.class))) {
+            return players.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Gets aggregate counts over every stored player, computed by the storage
+     * without loading the players.
+     *
+     * @return The player statistics
+     */
+    PlayerStatistics getPlayerStatistics();
 
     /**
      * Cleans up old audit logs.
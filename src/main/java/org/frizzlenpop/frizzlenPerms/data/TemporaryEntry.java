@@ -0,0 +1,97 @@
+package org.frizzlenpop.frizzlenPerms.data;
+
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A stored temporary rank or permission of a player, with the time it expires.
+ */
+public class TemporaryEntry {
+
+    /**
+     * The kind of temporary entry.
+     */
+    public enum Type {
+        RANK,
+        PERMISSION
+    }
+
+    private final UUID uuid;
+    private final Type type;
+    private final String name;
+    private final long expiration;
+
+    /**
+     * Creates a new TemporaryEntry.
+     *
+     * @param uuid The UUID of the player
+     * @param type Whether the entry is a rank or a permission
+     * @param name The rank name or permission node
+     * @param expiration The expiration time in milliseconds
+     */
+    public TemporaryEntry(UUID uuid, Type type, String name, long expiration) {
+        this.uuid = Objects.requireNonNull(uuid, "UUID cannot be null");
+        this.type = Objects.requireNonNull(type, "Type cannot be null");
+        this.name = Objects.requireNonNull(name, "Name cannot be null");
+        this.expiration = expiration;
+    }
+
+    /**
+     * Gets the temporary ranks and permissions of a player as entries.
+     *
+     * @param playerData The player data
+     * @return The entries of the player
+     */
+    public static List<TemporaryEntry> of(PlayerData playerData) {
+        Objects.requireNonNull(playerData, "PlayerData cannot be null");
+        List<TemporaryEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : playerData.getTemporaryRanks().entrySet()) {
+            entries.add(new TemporaryEntry(playerData.getUuid(), Type.RANK, entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, Long> entry : playerData.getTemporaryPermissions().entrySet()) {
+            entries.add(new TemporaryEntry(playerData.getUuid(), Type.PERMISSION, entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the UUID of the player.
+     *
+     * @return The UUID
+     */
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Gets whether the entry is a rank or a permission.
+     *
+     * @return The type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the rank name or permission node.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the expiration time.
+     *
+     * @return The expiration time in milliseconds
+     */
+    public long getExpiration() {
+        return expiration;
+    }
+}
@@ -140,14 +140,7 @@ public class DiscordListener extends ListenerAdapter {
         
         // Find player data with this Discord ID
         String discordId = event.getUser().getId();
-        PlayerData playerData = null;
-        
-        for (PlayerData pd : plugin.getDataManager().getAllPlayerData()) {
-            if (discordId.equals(pd.getDiscordId())) {
-                playerData = pd;
-                break;
-            }
-        }
+        PlayerData playerData = plugin.getDataManager().getPlayerDataByDiscordId(discordId);
         
         // Check if linked
         if (playerData == null) {
@@ -20,6 +20,7 @@ import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import java.awt.Color;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -277,16 +278,19 @@ public class DiscordManager {
             return;
         }
         
-        // Get all player data
+        // Find linked players, without keeping the scan open during Discord requests
         DataManager dataManager = plugin.getDataManager();
-        List<PlayerData> allPlayerData = dataManager.getAllPlayerData();
-        
-        // Sync each player
-        for (PlayerData playerData : allPlayerData) {
+        List<UUID> linkedPlayers = new ArrayList<>();
+        dataManager.forEachPlayer(EnumSet.noneOf(PlayerData.Section.class), playerData -> {
             String discordId = playerData.getDiscordId();
             if (discordId != null && !discordId.isEmpty()) {
-                syncPlayerRoles(playerData.getUuid());
+                linkedPlayers.add(playerData.getUuid());
             }
+        });
+        
+        // Sync each player
+        for (UUID playerUuid : linkedPlayers) {
+            syncPlayerRoles(playerUuid);
         }
     }
     
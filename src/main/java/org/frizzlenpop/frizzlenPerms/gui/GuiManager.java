@@ -42,14 +42,22 @@ public class GuiManager implements Listener {
     }
     
     /**
-     * Opens the player management GUI for a player.
+     * Opens the player management GUI for a player. The page is loaded from storage
+     * asynchronously and the GUI is opened on the main thread once it is ready.
      *
      * @param player The player viewing the GUI
      * @param page The page number
      */
     public void openPlayerManagementGui(Player player, int page) {
-        PlayerManagementGui gui = new PlayerManagementGui(plugin, player, page);
-        openGui(player, gui);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            PlayerManagementGui.PlayerPage playerPage = PlayerManagementGui.loadPage(plugin, page);
+            
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (player.isOnline()) {
+                    openGui(player, new PlayerManagementGui(plugin, player, page, playerPage));
+                }
+            });
+        });
     }
     
     /**
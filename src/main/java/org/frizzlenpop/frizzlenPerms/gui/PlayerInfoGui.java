@@ -64,7 +64,7 @@ public class PlayerInfoGui implements PermissionGui {
         inventory.setItem(4, head);
         
         // Primary rank
-        Rank primaryRank = plugin.getRankManager().getRank(playerData.getPrimaryRank());
+        Rank primaryRank = plugin.getRankManager().getRankSnapshot(playerData.getPrimaryRank());
         if (primaryRank != null) {
             ItemStack rankItem = new ItemStack(Material.DIAMOND);
             ItemMeta rankMeta = rankItem.getItemMeta();
@@ -27,6 +27,9 @@ public class PlayerManagementGui implements PermissionGui {
     private final int page;
     private final Inventory inventory;
     private final SimpleDateFormat dateFormat;
+    private final PlayerPage playerPage;
+    private final int totalPages;
+    private final List<UUID> pagePlayers = new ArrayList<>();
     
     private static final int PLAYERS_PER_PAGE = 36;
     
@@ -36,11 +39,14 @@ public class PlayerManagementGui implements PermissionGui {
      * @param plugin The plugin instance
      * @param player The player viewing the GUI
      * @param page The page number
+     * @param playerPage The players on the page, as loaded by {@link #loadPage(FrizzlenPerms, int)}
      */
-    public PlayerManagementGui(FrizzlenPerms plugin, Player player, int page) {
+    public PlayerManagementGui(FrizzlenPerms plugin, Player player, int page, PlayerPage playerPage) {
         this.plugin = plugin;
         this.player = player;
         this.page = Math.max(1, page);
+        this.playerPage = playerPage;
+        this.totalPages = (int) Math.ceil((double) playerPage.playerCount / PLAYERS_PER_PAGE);
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
         // Create inventory
@@ -52,26 +58,53 @@ public class PlayerManagementGui implements PermissionGui {
     }
     
     /**
-     * Initializes the items in the GUI.
+     * Loads the players on a page, most recent login first. Streams every stored player,
+     * so this must be called off the main thread.
+     *
+     * @param plugin The plugin instance
+     * @param page The page number
+     * @return The players on the page
      */
-    private void initializeItems() {
-        // Get all player data
-        List<PlayerData> allPlayerData = plugin.getDataManager().getAllPlayerData();
-        
+    public static PlayerPage loadPage(FrizzlenPerms plugin, int page) {
         // Sort by last login time (most recent first)
-        allPlayerData.sort((p1, p2) -> Long.compare(p2.getLastLogin(), p1.getLastLogin()));
-        
-        // Calculate total pages
-        int totalPages = (int) Math.ceil((double) allPlayerData.size() / PLAYERS_PER_PAGE);
+        Comparator<PlayerData> byLastLogin = Comparator.comparingLong(PlayerData::getLastLogin).reversed()
+                .thenComparing(PlayerData::getUuid);
         
         // Calculate start and end indices
-        int startIndex = (page - 1) * PLAYERS_PER_PAGE;
-        int endIndex = Math.min(startIndex + PLAYERS_PER_PAGE, allPlayerData.size());
+        int startIndex = (Math.max(1, page) - 1) * PLAYERS_PER_PAGE;
+        int endIndex = startIndex + PLAYERS_PER_PAGE;
+        
+        // Stream the players, keeping only the most recent ones up to this page
+        PriorityQueue<PlayerData> newest = new PriorityQueue<>(byLastLogin.reversed());
+        int[] playerCount = new int[1];
+        plugin.getDataManager().forEachPlayer(EnumSet.of(PlayerData.Section.LAST_SEEN, PlayerData.Section.LAST_LOGIN), playerData -> {
+            playerCount[0]++;
+            newest.add(playerData);
+            if (newest.size() > endIndex) {
+                newest.poll();
+            }
+        });
+        List<PlayerData> sortedPlayers = new ArrayList<>(newest);
+        sortedPlayers.sort(byLastLogin);
+        List<PlayerData> pageData = startIndex < sortedPlayers.size()
+                ? new ArrayList<>(sortedPlayers.subList(startIndex, sortedPlayers.size()))
+                : Collections.emptyList();
+        
+        return new PlayerPage(pageData, playerCount[0]);
+    }
+    
+    /**
+     * Initializes the items in the GUI.
+     */
+    private void initializeItems() {
+        List<PlayerData> pageData = playerPage.players;
         
         // Add player heads
-        for (int i = startIndex; i < endIndex; i++) {
-            PlayerData playerData = allPlayerData.get(i);
+        pagePlayers.clear();
+        for (int i = 0; i < pageData.size(); i++) {
+            PlayerData playerData = pageData.get(i);
             UUID playerUuid = playerData.getUuid();
+            pagePlayers.add(playerUuid);
             String playerName = playerData.getPlayerName();
             
             ItemStack playerHead = new ItemStack(Material.PLAYER_HEAD);
@@ -126,7 +159,7 @@ public class PlayerManagementGui implements PermissionGui {
             playerHead.setItemMeta(meta);
             
             // Add to inventory
-            inventory.setItem(i - startIndex, playerHead);
+            inventory.setItem(i, playerHead);
         }
         
         // Add navigation buttons
@@ -177,17 +210,9 @@ public class PlayerManagementGui implements PermissionGui {
     public void handleClick(int slot, ClickType clickType) {
         // Check if the slot is a player slot
         if (slot >= 0 && slot < PLAYERS_PER_PAGE) {
-            // Calculate the index in the player list
-            int playerIndex = (page - 1) * PLAYERS_PER_PAGE + slot;
-            List<PlayerData> allPlayerData = plugin.getDataManager().getAllPlayerData();
-            
-            // Sort by last login time (most recent first)
-            allPlayerData.sort((p1, p2) -> Long.compare(p2.getLastLogin(), p1.getLastLogin()));
-            
-            // Check if the index is valid
-            if (playerIndex < allPlayerData.size()) {
-                PlayerData playerData = allPlayerData.get(playerIndex);
-                UUID playerUuid = playerData.getUuid();
+            // Check if the slot holds a player shown on this page
+            if (slot < pagePlayers.size()) {
+                UUID playerUuid = pagePlayers.get(slot);
                 
                 // Handle different click types
                 if (clickType == ClickType.LEFT) {
@@ -206,9 +231,6 @@ public class PlayerManagementGui implements PermissionGui {
             plugin.getGuiManager().openPlayerManagementGui(player, page - 1);
         } else if (slot == 53) {
             // Next page
-            List<PlayerData> allPlayerData = plugin.getDataManager().getAllPlayerData();
-            int totalPages = (int) Math.ceil((double) allPlayerData.size() / PLAYERS_PER_PAGE);
-            
             if (page < totalPages) {
                 plugin.getGuiManager().openPlayerManagementGui(player, page + 1);
             }
@@ -222,4 +244,18 @@ public class PlayerManagementGui implements PermissionGui {
     public void update() {
         initializeItems();
     }
+    
+    /**
+     * The players on one page of the GUI, and the number of stored players in total.
+     */
+    public static final class PlayerPage {
+        
+        private final List<PlayerData> players;
+        private final int playerCount;
+        
+        private PlayerPage(List<PlayerData> players, int playerCount) {
+            this.players = players;
+            this.playerCount = playerCount;
+        }
+    }
 } 
\ No newline at end of file
@@ -68,7 +68,7 @@ public class PlayerRanksGui implements PermissionGui {
         
         for (int i = startIndex; i < endIndex; i++) {
             String rankName = ranks.get(i);
-            Rank rank = plugin.getRankManager().getRank(rankName);
+            Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
             if (rank != null) {
                 ItemStack item = new ItemStack(Material.GOLD_INGOT);
                 ItemMeta meta = item.getItemMeta();
@@ -159,7 +159,7 @@ public class PlayerRanksGui implements PermissionGui {
             if (index < ranks.size()) {
                 String rankName = ranks.get(index);
                 if (viewer.hasPermission("frizzlenperms.admin.removerank")) {
-                    playerData.getSecondaryRanks().remove(rankName);
+                    playerData.removeSecondaryRank(rankName);
                     plugin.getDataManager().savePlayerData(playerData);
                     
                     // Update permissions if player is online
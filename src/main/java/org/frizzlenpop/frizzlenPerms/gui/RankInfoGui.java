@@ -44,7 +44,7 @@ public class RankInfoGui implements PermissionGui {
      * Initializes the items in the GUI.
      */
     private void initializeItems() {
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             return;
         }
@@ -48,7 +48,7 @@ public class RankInheritanceGui implements PermissionGui {
      * Initializes the items in the GUI.
      */
     private void initializeItems() {
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             return;
         }
@@ -67,7 +67,7 @@ public class RankInheritanceGui implements PermissionGui {
         
         for (int i = startIndex; i < endIndex; i++) {
             String inheritedRankName = inheritedRanks.get(i);
-            Rank inheritedRank = plugin.getRankManager().getRank(inheritedRankName);
+            Rank inheritedRank = plugin.getRankManager().getRankSnapshot(inheritedRankName);
             if (inheritedRank != null) {
                 ItemStack item = new ItemStack(Material.GOLD_INGOT);
                 ItemMeta meta = item.getItemMeta();
@@ -140,7 +140,7 @@ public class RankInheritanceGui implements PermissionGui {
     
     @Override
     public void handleClick(int slot, ClickType clickType) {
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             return;
         }
@@ -48,7 +48,7 @@ public class RankPermissionsGui implements PermissionGui {
      * Initializes the items in the GUI.
      */
     private void initializeItems() {
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             return;
         }
@@ -130,7 +130,7 @@ public class RankPermissionsGui implements PermissionGui {
     
     @Override
     public void handleClick(int slot, ClickType clickType) {
-        Rank rank = plugin.getRankManager().getRank(rankName);
+        Rank rank = plugin.getRankManager().getRankSnapshot(rankName);
         if (rank == null) {
             return;
         }
@@ -5,7 +5,10 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.data.DataManager;
@@ -64,6 +67,28 @@ public class PlayerListener implements Listener {
         }
     }
     
+    /**
+     * Handles player login events to inject the permissible before other plugins attach to it.
+     *
+     * @param event The login event
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        permissionManager.injectPermissible(event.getPlayer());
+    }
+    
+    /**
+     * Handles login results, dropping the permissible of a player whose login was disallowed.
+     *
+     * @param event The login event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLoginResult(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            permissionManager.discardPermissible(event.getPlayer());
+        }
+    }
+    
     /**
      * Handles player join events to set up permissions.
      *
@@ -92,6 +117,32 @@ public class PlayerListener implements Listener {
         // TODO: Implement welcome message
     }
     
+    /**
+     * Handles world changes by swapping the player's contextual permission layers.
+     *
+     * @param event The world change event
+     */
+    @EventHandler(priority = EventPriority.NORMAL)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        permissionManager.updateContexts(event.getPlayer());
+    }
+    
+    /**
+     * Handles gamemode changes by swapping the player's contextual permission layers.
+     * The event fires before the gamemode changes, so the contexts are updated a tick later.
+     *
+     * @param event The gamemode change event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
+        Player player = event.getPlayer();
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) {
+                permissionManager.updateContexts(player);
+            }
+        });
+    }
+    
     /**
      * Handles player quit events to update last seen time.
      *
@@ -108,6 +159,9 @@ public class PlayerListener implements Listener {
             playerData.setLastSeen(System.currentTimeMillis());
             dataManager.savePlayerData(playerData);
         }
+        
+        // Drop the attachment and the player's entries in the rank holder index
+        permissionManager.removePlayer(uuid);
     }
     
     /**
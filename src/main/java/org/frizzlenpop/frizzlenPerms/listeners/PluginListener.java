@@ -0,0 +1,46 @@
+package org.frizzlenpop.frizzlenPerms.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.frizzlenpop.frizzlenPerms.permissions.PermissionManager;
+
+/**
+ * Handles plugins being enabled or disabled, which is when they usually register or
+ * unregister permissions.
+ */
+public class PluginListener implements Listener {
+    
+    private final PermissionManager permissionManager;
+    
+    /**
+     * Creates a new PluginListener instance.
+     *
+     * @param permissionManager The permission manager instance
+     */
+    public PluginListener(PermissionManager permissionManager) {
+        this.permissionManager = permissionManager;
+    }
+    
+    /**
+     * Handles plugin enable events by refreshing the registered permission nodes next tick.
+     *
+     * @param event The enable event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        permissionManager.getRecalculationScheduler().requestNodeRefresh();
+    }
+    
+    /**
+     * Handles plugin disable events by refreshing the registered permission nodes next tick.
+     *
+     * @param event The disable event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        permissionManager.getRecalculationScheduler().requestNodeRefresh();
+    }
+}
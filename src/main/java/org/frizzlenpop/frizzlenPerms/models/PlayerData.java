@@ -1,13 +1,43 @@
 package org.frizzlenpop.frizzlenPerms.models;
 
+import org.frizzlenpop.frizzlenPerms.permissions.ContextSet;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a player's permission data.
+ * Every mutator records the {@link Section} it changed since the data was last read from or
+ * written to storage, so a save only has to write the sections that changed. The collections
+ * returned by the getters are read-only views, so changes always go through a mutator.
  */
 public class PlayerData {
     
+    /**
+     * The parts of a player's data that storage can write independently.
+     */
+    public enum Section {
+        /** The name, primary and secondary ranks, permissions and Discord ID. */
+        BASE,
+        /** The last seen time. */
+        LAST_SEEN,
+        /** The last login time. */
+        LAST_LOGIN,
+        /** The metadata. */
+        METADATA,
+        /** The world and context permissions. */
+        WORLD_PERMISSIONS,
+        /** The temporary ranks. */
+        TEMPORARY_RANKS,
+        /** The temporary permissions. */
+        TEMPORARY_PERMISSIONS
+    }
+    
+    // Metadata recording which rank a temporary rank grant added, see markTemporaryRankGrant
+    private static final String TEMPORARY_GRANT_PREFIX = "temporary-grant.";
+    private static final String GRANTED_PRIMARY = "primary";
+    private static final String GRANTED_SECONDARY = "secondary";
+    
     private final UUID uuid;
     private String playerName;
     private String primaryRank;
@@ -20,6 +50,12 @@ public class PlayerData {
     private long lastSeen;
     private long lastLogin;
     private Map<String, String> metadata;
+    // The sections changed since the data was last read from or written to storage,
+    // guarded by this. Gson skips transient fields, so both are unset until markSaved
+    private transient Set<Section> dirty;
+    private transient boolean stored;
+    // Counts changes, so a save that raced with a change leaves its sections dirty
+    private transient long version;
     
     /**
      * Creates a new PlayerData with the specified UUID and name.
@@ -62,7 +98,10 @@ public class PlayerData {
      * @param playerName The name of the player
      */
     public void setPlayerName(String playerName) {
-        this.playerName = playerName;
+        if (!Objects.equals(this.playerName, playerName)) {
+            this.playerName = playerName;
+            markDirty(Section.BASE);
+        }
     }
     
     /**
@@ -80,25 +119,29 @@ public class PlayerData {
      * @param primaryRank The primary rank of the player
      */
     public void setPrimaryRank(String primaryRank) {
-        this.primaryRank = primaryRank;
+        if (!Objects.equals(this.primaryRank, primaryRank)) {
+            this.primaryRank = primaryRank;
+            markDirty(Section.BASE);
+        }
     }
     
     /**
      * Gets the secondary ranks of the player.
      *
-     * @return The secondary ranks of the player
+     * @return A read-only view of the secondary ranks of the player
      */
     public List<String> getSecondaryRanks() {
-        return secondaryRanks;
+        return Collections.unmodifiableList(secondaryRanks);
     }
     
     /**
      * Sets the secondary ranks of the player.
      *
-     * @param secondaryRanks The secondary ranks of the player
+     * @param secondaryRanks The secondary ranks of the player, which are copied
      */
     public void setSecondaryRanks(List<String> secondaryRanks) {
-        this.secondaryRanks = secondaryRanks != null ? secondaryRanks : new ArrayList<>();
+        this.secondaryRanks = secondaryRanks != null ? new ArrayList<>(secondaryRanks) : new ArrayList<>();
+        markDirty(Section.BASE);
     }
     
     /**
@@ -109,6 +152,7 @@ public class PlayerData {
     public void addSecondaryRank(String rank) {
         if (rank != null && !rank.isEmpty() && !secondaryRanks.contains(rank)) {
             secondaryRanks.add(rank);
+            markDirty(Section.BASE);
         }
     }
     
@@ -116,29 +160,37 @@ public class PlayerData {
      * Removes a secondary rank from the player.
      *
      * @param rank The rank to remove
+     * @return Whether the player had the rank
      */
-    public void removeSecondaryRank(String rank) {
-        if (rank != null) {
-            secondaryRanks.remove(rank);
+    public boolean removeSecondaryRank(String rank) {
+        if (rank != null && secondaryRanks.remove(rank)) {
+            markDirty(Section.BASE);
+            return true;
         }
+        return false;
     }
     
     /**
      * Gets the permissions of the player.
      *
-     * @return The permissions of the player
+     * @return A read-only view of the permissions of the player
      */
     public Set<String> getPermissions() {
-        return permissions;
+        return Collections.unmodifiableSet(permissions);
     }
     
     /**
      * Sets the permissions of the player.
      *
-     * @param permissions The permissions of the player
+     * @param permissions The permissions of the player, which are copied
      */
     public void setPermissions(Set<String> permissions) {
-        this.permissions = permissions != null ? permissions : ConcurrentHashMap.newKeySet();
+        Set<String> copy = ConcurrentHashMap.newKeySet();
+        if (permissions != null) {
+            copy.addAll(permissions);
+        }
+        this.permissions = copy;
+        markDirty(Section.BASE);
     }
     
     /**
@@ -147,8 +199,8 @@ public class PlayerData {
      * @param permission The permission to add
      */
     public void addPermission(String permission) {
-        if (permission != null && !permission.isEmpty()) {
-            permissions.add(permission);
+        if (permission != null && !permission.isEmpty() && permissions.add(permission)) {
+            markDirty(Section.BASE);
         }
     }
     
@@ -158,8 +210,8 @@ public class PlayerData {
      * @param permission The permission to remove
      */
     public void removePermission(String permission) {
-        if (permission != null) {
-            permissions.remove(permission);
+        if (permission != null && permissions.remove(permission)) {
+            markDirty(Section.BASE);
         }
     }
     
@@ -175,21 +227,23 @@ public class PlayerData {
     
     /**
      * Gets the world permissions of the player.
+     * Keys are world names or context keys such as {@code gamemode=creative;world=nether},
+     * see {@link ContextSet#parse(String)}.
      *
-     * @return The world permissions of the player
+     * @return A read-only view of the world permissions of the player
      */
     public Map<String, Set<String>> getWorldPermissions() {
-        return worldPermissions;
+        return Collections.unmodifiableMap(worldPermissions);
     }
     
     /**
      * Gets the permissions for a specific world.
      *
      * @param world The world to get permissions for
-     * @return The permissions for the world
+     * @return A read-only view of the permissions for the world
      */
     public Set<String> getWorldPermissions(String world) {
-        return worldPermissions.getOrDefault(world, Collections.emptySet());
+        return Collections.unmodifiableSet(worldPermissions.getOrDefault(world, Collections.emptySet()));
     }
     
     /**
@@ -201,10 +255,13 @@ public class PlayerData {
     public void setWorldPermissions(String world, Set<String> permissions) {
         if (world != null && !world.isEmpty()) {
             if (permissions != null && !permissions.isEmpty()) {
-                worldPermissions.put(world, new HashSet<>(permissions));
+                Set<String> copy = ConcurrentHashMap.newKeySet();
+                copy.addAll(permissions);
+                worldPermissions.put(world, copy);
             } else {
                 worldPermissions.remove(world);
             }
+            markDirty(Section.WORLD_PERMISSIONS);
         }
     }
     
@@ -216,7 +273,9 @@ public class PlayerData {
      */
     public void addWorldPermission(String world, String permission) {
         if (world != null && !world.isEmpty() && permission != null && !permission.isEmpty()) {
-            worldPermissions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet()).add(permission);
+            if (worldPermissions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet()).add(permission)) {
+                markDirty(Section.WORLD_PERMISSIONS);
+            }
         }
     }
     
@@ -229,11 +288,11 @@ public class PlayerData {
     public void removeWorldPermission(String world, String permission) {
         if (world != null && !world.isEmpty() && permission != null && !permission.isEmpty()) {
             Set<String> worldPerms = worldPermissions.get(world);
-            if (worldPerms != null) {
-                worldPerms.remove(permission);
+            if (worldPerms != null && worldPerms.remove(permission)) {
                 if (worldPerms.isEmpty()) {
                     worldPermissions.remove(world);
                 }
+                markDirty(Section.WORLD_PERMISSIONS);
             }
         }
     }
@@ -254,13 +313,46 @@ public class PlayerData {
         return worldPerms != null && worldPerms.contains(permission);
     }
     
+    /**
+     * Removes every world and context permission of the player.
+     */
+    public void clearWorldPermissions() {
+        worldPermissions.clear();
+        markDirty(Section.WORLD_PERMISSIONS);
+    }
+    
+    /**
+     * Adds a permission that only applies in a set of contexts, such as a gamemode or server.
+     * Contextual permissions are stored with the world permissions, under the context key.
+     *
+     * @param contexts   The contexts the permission requires
+     * @param permission The permission to add
+     */
+    public void addContextPermission(ContextSet contexts, String permission) {
+        if (contexts != null && !contexts.isEmpty()) {
+            addWorldPermission(contexts.toString(), permission);
+        }
+    }
+    
+    /**
+     * Removes a permission that only applies in a set of contexts.
+     *
+     * @param contexts   The contexts the permission requires
+     * @param permission The permission to remove
+     */
+    public void removeContextPermission(ContextSet contexts, String permission) {
+        if (contexts != null && !contexts.isEmpty()) {
+            removeWorldPermission(contexts.toString(), permission);
+        }
+    }
+    
     /**
      * Gets the temporary ranks of the player.
      *
-     * @return The temporary ranks of the player
+     * @return A read-only view of the temporary ranks of the player
      */
     public Map<String, Long> getTemporaryRanks() {
-        return temporaryRanks;
+        return Collections.unmodifiableMap(temporaryRanks);
     }
     
     /**
@@ -292,6 +384,7 @@ public class PlayerData {
     public void addTemporaryRank(String rank, long expiration) {
         if (rank != null && !rank.isEmpty() && expiration > 0) {
             temporaryRanks.put(rank, expiration);
+            markDirty(Section.TEMPORARY_RANKS);
         }
     }
     
@@ -301,18 +394,61 @@ public class PlayerData {
      * @param rank The rank to remove
      */
     public void removeTemporaryRank(String rank) {
-        if (rank != null) {
-            temporaryRanks.remove(rank);
+        if (rank != null && temporaryRanks.remove(rank) != null) {
+            markDirty(Section.TEMPORARY_RANKS);
+        }
+    }
+    
+    /**
+     * Removes every temporary rank of the player.
+     */
+    public void clearTemporaryRanks() {
+        temporaryRanks.clear();
+        markDirty(Section.TEMPORARY_RANKS);
+    }
+    
+    /**
+     * Records that a temporary rank grant made the rank the player's primary or a secondary
+     * rank, so {@link #revokeTemporaryRank(String, String)} undoes only what the grant added.
+     *
+     * @param rank The temporary rank
+     * @param primary Whether the grant set the primary rank, otherwise it added a secondary rank
+     */
+    public void markTemporaryRankGrant(String rank, boolean primary) {
+        if (rank != null && !rank.isEmpty()) {
+            setMetadata(TEMPORARY_GRANT_PREFIX + rank, primary ? GRANTED_PRIMARY : GRANTED_SECONDARY);
+        }
+    }
+    
+    /**
+     * Removes a temporary rank, along with the primary or secondary rank its grant added.
+     * A rank the player held on its own, before or besides the grant, is kept.
+     *
+     * @param rank The temporary rank
+     * @param defaultRank The rank to fall back to if the grant set the primary rank
+     */
+    public void revokeTemporaryRank(String rank, String defaultRank) {
+        if (rank == null) {
+            return;
+        }
+        removeTemporaryRank(rank);
+        
+        String granted = getMetadata(TEMPORARY_GRANT_PREFIX + rank);
+        removeMetadata(TEMPORARY_GRANT_PREFIX + rank);
+        if (GRANTED_PRIMARY.equals(granted) && rank.equals(primaryRank)) {
+            setPrimaryRank(defaultRank);
+        } else if (GRANTED_SECONDARY.equals(granted)) {
+            removeSecondaryRank(rank);
         }
     }
     
     /**
      * Gets the temporary permissions of the player.
      *
-     * @return The temporary permissions of the player
+     * @return A read-only view of the temporary permissions of the player
      */
     public Map<String, Long> getTemporaryPermissions() {
-        return temporaryPermissions;
+        return Collections.unmodifiableMap(temporaryPermissions);
     }
     
     /**
@@ -344,6 +480,7 @@ public class PlayerData {
     public void addTemporaryPermission(String permission, long expiration) {
         if (permission != null && !permission.isEmpty() && expiration > 0) {
             temporaryPermissions.put(permission, expiration);
+            markDirty(Section.TEMPORARY_PERMISSIONS);
         }
     }
     
@@ -353,11 +490,19 @@ public class PlayerData {
      * @param permission The permission to remove
      */
     public void removeTemporaryPermission(String permission) {
-        if (permission != null) {
-            temporaryPermissions.remove(permission);
+        if (permission != null && temporaryPermissions.remove(permission) != null) {
+            markDirty(Section.TEMPORARY_PERMISSIONS);
         }
     }
     
+    /**
+     * Removes every temporary permission of the player.
+     */
+    public void clearTemporaryPermissions() {
+        temporaryPermissions.clear();
+        markDirty(Section.TEMPORARY_PERMISSIONS);
+    }
+    
     /**
      * Gets the Discord ID of the player.
      *
@@ -373,7 +518,10 @@ public class PlayerData {
      * @param discordId The Discord ID of the player
      */
     public void setDiscordId(String discordId) {
-        this.discordId = discordId;
+        if (!Objects.equals(this.discordId, discordId)) {
+            this.discordId = discordId;
+            markDirty(Section.BASE);
+        }
     }
     
     /**
@@ -391,7 +539,10 @@ public class PlayerData {
      * @param lastSeen The last seen time of the player
      */
     public void setLastSeen(long lastSeen) {
-        this.lastSeen = lastSeen;
+        if (this.lastSeen != lastSeen) {
+            this.lastSeen = lastSeen;
+            markDirty(Section.LAST_SEEN);
+        }
     }
     
     /**
@@ -409,16 +560,19 @@ public class PlayerData {
      * @param lastLogin The last login time of the player
      */
     public void setLastLogin(long lastLogin) {
-        this.lastLogin = lastLogin;
+        if (this.lastLogin != lastLogin) {
+            this.lastLogin = lastLogin;
+            markDirty(Section.LAST_LOGIN);
+        }
     }
     
     /**
      * Gets the metadata of the player.
      *
-     * @return The metadata of the player
+     * @return A read-only view of the metadata of the player
      */
     public Map<String, String> getMetadata() {
-        return metadata;
+        return Collections.unmodifiableMap(metadata);
     }
     
     /**
@@ -439,10 +593,9 @@ public class PlayerData {
      */
     public void setMetadata(String key, String value) {
         if (key != null && !key.isEmpty()) {
-            if (value != null) {
-                metadata.put(key, value);
-            } else {
-                metadata.remove(key);
+            String previous = value != null ? metadata.put(key, value) : metadata.remove(key);
+            if (!Objects.equals(previous, value)) {
+                markDirty(Section.METADATA);
             }
         }
     }
@@ -453,8 +606,8 @@ public class PlayerData {
      * @param key The key of the metadata to remove
      */
     public void removeMetadata(String key) {
-        if (key != null) {
-            metadata.remove(key);
+        if (key != null && metadata.remove(key) != null) {
+            markDirty(Section.METADATA);
         }
     }
     
@@ -463,6 +616,7 @@ public class PlayerData {
      */
     public void clearMetadata() {
         metadata.clear();
+        markDirty(Section.METADATA);
     }
     
     /**
@@ -513,4 +667,182 @@ public class PlayerData {
             addSecondaryRank(rank);
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Gets the sections that changed since the data was last loaded or saved.
+     *
+     * @return The changes, to pass to {@link #markSaved(Changes)} once written
+     */
+    public synchronized Changes getChanges() {
+        if (!stored) {
+            return new Changes(version, true, Collections.unmodifiableSet(EnumSet.allOf(Section.class)));
+        }
+        Set<Section> sections = dirty == null || dirty.isEmpty()
+                ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(dirty));
+        return new Changes(version, false, sections);
+    }
+    
+    /**
+     * Records that some changes have been written to storage. If the data changed after
+     * the changes were taken, its sections stay dirty, since the write may have missed them.
+     *
+     * @param changes The changes that were written
+     */
+    public synchronized void markSaved(Changes changes) {
+        Objects.requireNonNull(changes, "Changes cannot be null");
+        stored = true;
+        if (changes.version == version && dirty != null) {
+            dirty.clear();
+        }
+    }
+    
+    /**
+     * Records that the current state matches storage, after loading the data.
+     */
+    public synchronized void markSaved() {
+        stored = true;
+        dirty = null;
+    }
+    
+    /**
+     * Checks if the data has changes that have not been written to storage.
+     *
+     * @return Whether there is something to write
+     */
+    public synchronized boolean hasChanges() {
+        return !stored || (dirty != null && !dirty.isEmpty());
+    }
+    
+    /**
+     * Copies the data for a background save, and counts this data as saved from then on.
+     * The copy carries the changes since the last save and is never modified by the thread
+     * that modifies this data, so call this on that thread.
+     *
+     * @return The copy to write
+     */
+    public synchronized PlayerData snapshot() {
+        PlayerData copy = copy();
+        stored = true;
+        dirty = null;
+        return copy;
+    }
+    
+    /**
+     * Takes over the unwritten changes of an earlier copy of this data, when the earlier
+     * copy is replaced before it was written or its write failed.
+     *
+     * @param earlier The earlier copy
+     */
+    public void carryChanges(PlayerData earlier) {
+        Objects.requireNonNull(earlier, "PlayerData cannot be null");
+        boolean earlierStored;
+        Set<Section> earlierDirty;
+        synchronized (earlier) {
+            earlierStored = earlier.stored;
+            earlierDirty = earlier.dirty != null ? EnumSet.copyOf(earlier.dirty) : null;
+        }
+        
+        synchronized (this) {
+            stored &= earlierStored;
+            if (earlierDirty != null && !earlierDirty.isEmpty()) {
+                if (dirty == null) {
+                    dirty = EnumSet.noneOf(Section.class);
+                }
+                dirty.addAll(earlierDirty);
+            }
+            version++;
+        }
+    }
+    
+    /**
+     * Creates a deep copy of the data, with the same changes since the last save.
+     *
+     * @return The copy
+     */
+    public synchronized PlayerData copy() {
+        PlayerData copy = new PlayerData(uuid, playerName);
+        copy.primaryRank = primaryRank;
+        copy.secondaryRanks.addAll(secondaryRanks);
+        copy.permissions.addAll(permissions);
+        for (Map.Entry<String, Set<String>> entry : worldPermissions.entrySet()) {
+            Set<String> nodes = ConcurrentHashMap.newKeySet();
+            nodes.addAll(entry.getValue());
+            copy.worldPermissions.put(entry.getKey(), nodes);
+        }
+        copy.temporaryRanks.putAll(temporaryRanks);
+        copy.temporaryPermissions.putAll(temporaryPermissions);
+        copy.discordId = discordId;
+        copy.lastSeen = lastSeen;
+        copy.lastLogin = lastLogin;
+        copy.metadata.putAll(metadata);
+        copy.stored = stored;
+        copy.dirty = dirty != null ? EnumSet.copyOf(dirty) : null;
+        return copy;
+    }
+    
+    /**
+     * Records that a section changed.
+     *
+     * @param section The changed section
+     */
+    private synchronized void markDirty(Section section) {
+        if (dirty == null) {
+            dirty = EnumSet.noneOf(Section.class);
+        }
+        dirty.add(section);
+        version++;
+    }
+    
+    /**
+     * The sections of a player's data that changed since it was last stored.
+     */
+    public static final class Changes {
+        private final long version;
+        private final boolean unsaved;
+        private final Set<Section> sections;
+        
+        private Changes(long version, boolean unsaved, Set<Section> sections) {
+            this.version = version;
+            this.unsaved = unsaved;
+            this.sections = sections;
+        }
+        
+        /**
+         * Checks if the data has never been read from or written to storage, in which case
+         * every section is dirty and storage may not have a record of the player yet.
+         *
+         * @return Whether the data is unsaved
+         */
+        public boolean isUnsaved() {
+            return unsaved;
+        }
+        
+        /**
+         * Checks if a section changed.
+         *
+         * @param section The section
+         * @return Whether the section needs to be written
+         */
+        public boolean isDirty(Section section) {
+            return sections.contains(section);
+        }
+        
+        /**
+         * Checks if nothing changed.
+         *
+         * @return Whether there is nothing to write
+         */
+        public boolean isEmpty() {
+            return sections.isEmpty();
+        }
+        
+        /**
+         * Gets the sections that changed.
+         *
+         * @return An unmodifiable set of dirty sections
+         */
+        public Set<Section> getSections() {
+            return sections;
+        }
+    }
+}
\ No newline at end of file
@@ -1,10 +1,14 @@
 package org.frizzlenpop.frizzlenPerms.models;
 
+import org.frizzlenpop.frizzlenPerms.permissions.ContextSet;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a rank in the permission system.
+ * Ranks returned for editing are private copies; the ranks published to the
+ * {@link org.frizzlenpop.frizzlenPerms.data.RankRegistry} are read-only snapshots.
  */
 public class Rank {
     
@@ -27,6 +31,7 @@ public class Rank {
     private int cost;
     private int rankupTime;
     private List<String> rankupRequirements;
+    private final boolean snapshot;
     
     /**
      * Creates a new rank with the specified name.
@@ -53,6 +58,84 @@ public class Rank {
         this.cost = 0;
         this.rankupTime = 0;
         this.rankupRequirements = new ArrayList<>();
+        this.snapshot = false;
+    }
+    
+    /**
+     * Creates a deep copy of a rank.
+     *
+     * @param source   The rank to copy
+     * @param snapshot Whether the copy is a read-only snapshot
+     */
+    private Rank(Rank source, boolean snapshot) {
+        this.name = source.name;
+        this.displayName = source.displayName;
+        this.prefix = source.prefix;
+        this.suffix = source.suffix;
+        this.chatColor = source.chatColor;
+        this.nameColor = source.nameColor;
+        this.weight = source.weight;
+        this.isDefault = source.isDefault;
+        this.canBuild = source.canBuild;
+        this.canDestroy = source.canDestroy;
+        this.ladderPosition = source.ladderPosition;
+        this.ladder = source.ladder;
+        this.cost = source.cost;
+        this.rankupTime = source.rankupTime;
+        this.snapshot = snapshot;
+
+        Set<String> permissionsCopy = ConcurrentHashMap.newKeySet();
+        permissionsCopy.addAll(source.permissions);
+        Map<String, Set<String>> worldPermissionsCopy = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : source.worldPermissions.entrySet()) {
+            Set<String> worldCopy = ConcurrentHashMap.newKeySet();
+            worldCopy.addAll(entry.getValue());
+            worldPermissionsCopy.put(entry.getKey(), snapshot ? Collections.unmodifiableSet(worldCopy) : worldCopy);
+        }
+        List<String> inheritanceCopy = new ArrayList<>(source.inheritance);
+        Map<String, String> metadataCopy = new ConcurrentHashMap<>(source.metadata);
+        List<String> rankupRequirementsCopy = new ArrayList<>(source.rankupRequirements);
+
+        if (snapshot) {
+            this.permissions = Collections.unmodifiableSet(permissionsCopy);
+            this.worldPermissions = Collections.unmodifiableMap(worldPermissionsCopy);
+            this.inheritance = Collections.unmodifiableList(inheritanceCopy);
+            this.metadata = Collections.unmodifiableMap(metadataCopy);
+            this.rankupRequirements = Collections.unmodifiableList(rankupRequirementsCopy);
+        } else {
+            this.permissions = permissionsCopy;
+            this.worldPermissions = worldPermissionsCopy;
+            this.inheritance = inheritanceCopy;
+            this.metadata = metadataCopy;
+            this.rankupRequirements = rankupRequirementsCopy;
+        }
+    }
+    
+    /**
+     * Creates an editable deep copy of this rank. Changes to the copy take effect once it is saved.
+     *
+     * @return The copy
+     */
+    public Rank copy() {
+        return new Rank(this, false);
+    }
+    
+    /**
+     * Gets a read-only deep copy of this rank, which can be shared between threads without locking.
+     *
+     * @return This rank if it already is a snapshot, otherwise a new snapshot
+     */
+    public Rank snapshot() {
+        return snapshot ? this : new Rank(this, true);
+    }
+    
+    /**
+     * Checks if this rank is a read-only snapshot.
+     *
+     * @return Whether this rank is a snapshot
+     */
+    public boolean isSnapshot() {
+        return snapshot;
     }
     
     /**
@@ -103,6 +186,7 @@ public class Rank {
      * @param displayName The display name of the rank
      */
     public void setDisplayName(String displayName) {
+        checkMutable();
         this.displayName = displayName != null ? displayName : name;
     }
     
@@ -121,6 +205,7 @@ public class Rank {
      * @param prefix The prefix of the rank
      */
     public void setPrefix(String prefix) {
+        checkMutable();
         this.prefix = prefix != null ? prefix : "";
     }
     
@@ -139,6 +224,7 @@ public class Rank {
      * @param suffix The suffix of the rank
      */
     public void setSuffix(String suffix) {
+        checkMutable();
         this.suffix = suffix != null ? suffix : "";
     }
     
@@ -157,6 +243,7 @@ public class Rank {
      * @param chatColor The chat color of the rank
      */
     public void setChatColor(String chatColor) {
+        checkMutable();
         this.chatColor = chatColor != null ? chatColor : "§f";
     }
     
@@ -175,6 +262,7 @@ public class Rank {
      * @param nameColor The name color of the rank
      */
     public void setNameColor(String nameColor) {
+        checkMutable();
         this.nameColor = nameColor != null ? nameColor : "§f";
     }
     
@@ -193,6 +281,7 @@ public class Rank {
      * @param weight The weight of the rank
      */
     public void setWeight(int weight) {
+        checkMutable();
         this.weight = weight;
     }
     
@@ -211,6 +300,7 @@ public class Rank {
      * @param permissions The permissions of the rank
      */
     public void setPermissions(Set<String> permissions) {
+        checkMutable();
         this.permissions = permissions != null ? permissions : ConcurrentHashMap.newKeySet();
     }
     
@@ -220,6 +310,7 @@ public class Rank {
      * @param permission The permission to add
      */
     public void addPermission(String permission) {
+        checkMutable();
         if (permission != null && !permission.isEmpty()) {
             permissions.add(permission);
         }
@@ -231,6 +322,7 @@ public class Rank {
      * @param permission The permission to remove
      */
     public void removePermission(String permission) {
+        checkMutable();
         if (permission != null) {
             permissions.remove(permission);
         }
@@ -248,6 +340,8 @@ public class Rank {
     
     /**
      * Gets the world permissions of the rank.
+     * Keys are world names or context keys such as {@code gamemode=creative;world=nether},
+     * see {@link ContextSet#parse(String)}.
      *
      * @return The world permissions of the rank
      */
@@ -272,6 +366,7 @@ public class Rank {
      * @param permissions The permissions for the world
      */
     public void setWorldPermissions(String world, Set<String> permissions) {
+        checkMutable();
         if (world != null && !world.isEmpty()) {
             if (permissions != null && !permissions.isEmpty()) {
                 worldPermissions.put(world, new HashSet<>(permissions));
@@ -288,6 +383,7 @@ public class Rank {
      * @param permission The permission to add
      */
     public void addWorldPermission(String world, String permission) {
+        checkMutable();
         if (world != null && !world.isEmpty() && permission != null && !permission.isEmpty()) {
             worldPermissions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet()).add(permission);
         }
@@ -300,6 +396,7 @@ public class Rank {
      * @param permission The permission to remove
      */
     public void removeWorldPermission(String world, String permission) {
+        checkMutable();
         if (world != null && !world.isEmpty() && permission != null && !permission.isEmpty()) {
             Set<String> worldPerms = worldPermissions.get(world);
             if (worldPerms != null) {
@@ -327,6 +424,31 @@ public class Rank {
         return worldPerms != null && worldPerms.contains(permission);
     }
     
+    /**
+     * Adds a permission that only applies in a set of contexts, such as a gamemode or server.
+     * Contextual permissions are stored with the world permissions, under the context key.
+     *
+     * @param contexts   The contexts the permission requires
+     * @param permission The permission to add
+     */
+    public void addContextPermission(ContextSet contexts, String permission) {
+        if (contexts != null && !contexts.isEmpty()) {
+            addWorldPermission(contexts.toString(), permission);
+        }
+    }
+    
+    /**
+     * Removes a permission that only applies in a set of contexts.
+     *
+     * @param contexts   The contexts the permission requires
+     * @param permission The permission to remove
+     */
+    public void removeContextPermission(ContextSet contexts, String permission) {
+        if (contexts != null && !contexts.isEmpty()) {
+            removeWorldPermission(contexts.toString(), permission);
+        }
+    }
+    
     /**
      * Gets the inheritance of the rank.
      *
@@ -342,6 +464,7 @@ public class Rank {
      * @param inheritance The inheritance of the rank
      */
     public void setInheritance(List<String> inheritance) {
+        checkMutable();
         this.inheritance = inheritance != null ? inheritance : new ArrayList<>();
     }
     
@@ -351,6 +474,7 @@ public class Rank {
      * @param rank The rank to inherit
      */
     public void addInheritance(String rank) {
+        checkMutable();
         if (rank != null && !rank.isEmpty() && !inheritance.contains(rank)) {
             inheritance.add(rank);
         }
@@ -362,6 +486,7 @@ public class Rank {
      * @param rank The rank to remove from inheritance
      */
     public void removeInheritance(String rank) {
+        checkMutable();
         if (rank != null) {
             inheritance.remove(rank);
         }
@@ -403,6 +528,7 @@ public class Rank {
      * @param value The value of the metadata
      */
     public void setMetadata(String key, String value) {
+        checkMutable();
         if (key != null && !key.isEmpty()) {
             if (value != null) {
                 metadata.put(key, value);
@@ -418,6 +544,7 @@ public class Rank {
      * @param key The key of the metadata to remove
      */
     public void removeMetadata(String key) {
+        checkMutable();
         if (key != null) {
             metadata.remove(key);
         }
@@ -438,6 +565,7 @@ public class Rank {
      * @param isDefault Whether this rank is the default rank
      */
     public void setDefault(boolean isDefault) {
+        checkMutable();
         this.isDefault = isDefault;
     }
     
@@ -456,6 +584,7 @@ public class Rank {
      * @param canBuild Whether the rank can build
      */
     public void setCanBuild(boolean canBuild) {
+        checkMutable();
         this.canBuild = canBuild;
     }
     
@@ -474,6 +603,7 @@ public class Rank {
      * @param canDestroy Whether the rank can destroy
      */
     public void setCanDestroy(boolean canDestroy) {
+        checkMutable();
         this.canDestroy = canDestroy;
     }
     
@@ -492,6 +622,7 @@ public class Rank {
      * @param ladderPosition The ladder position of the rank
      */
     public void setLadderPosition(int ladderPosition) {
+        checkMutable();
         this.ladderPosition = ladderPosition;
     }
     
@@ -510,6 +641,7 @@ public class Rank {
      * @param ladder The ladder of the rank
      */
     public void setLadder(String ladder) {
+        checkMutable();
         this.ladder = ladder != null ? ladder : "default";
     }
     
@@ -528,6 +660,7 @@ public class Rank {
      * @param cost The cost of the rank
      */
     public void setCost(int cost) {
+        checkMutable();
         this.cost = cost;
     }
     
@@ -546,6 +679,7 @@ public class Rank {
      * @param rankupTime The rankup time in minutes
      */
     public void setRankupTime(int rankupTime) {
+        checkMutable();
         this.rankupTime = rankupTime;
     }
     
@@ -564,6 +698,7 @@ public class Rank {
      * @param rankupRequirements The list of rankup requirements
      */
     public void setRankupRequirements(List<String> rankupRequirements) {
+        checkMutable();
         this.rankupRequirements = rankupRequirements != null ? rankupRequirements : new ArrayList<>();
     }
     
@@ -573,6 +708,7 @@ public class Rank {
      * @param requirement The requirement to add
      */
     public void addRankupRequirement(String requirement) {
+        checkMutable();
         if (requirement != null && !requirement.isEmpty() && !rankupRequirements.contains(requirement)) {
             rankupRequirements.add(requirement);
         }
@@ -584,6 +720,7 @@ public class Rank {
      * @param requirement The requirement to remove
      */
     public void removeRankupRequirement(String requirement) {
+        checkMutable();
         if (requirement != null) {
             rankupRequirements.remove(requirement);
         }
@@ -604,6 +741,7 @@ public class Rank {
      * @param color The color of the rank
      */
     public void setColor(String color) {
+        checkMutable();
         this.chatColor = color != null ? color : "§f";
     }
     
@@ -615,4 +753,15 @@ public class Rank {
     public String getParentRank() {
         return inheritance.isEmpty() ? null : inheritance.get(0);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Rejects changes to a snapshot.
+     *
+     * @throws UnsupportedOperationException If this rank is a snapshot
+     */
+    private void checkMutable() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("Rank " + name + " is a read-only snapshot, edit a copy instead");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.permissions.PermissionAttachment;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Provides bulk access to the backing map of a {@link PermissionAttachment}.
+ * Every call to {@link PermissionAttachment#setPermission(String, boolean)} recalculates the
+ * permissible, so filling the map directly and recalculating once is much cheaper for large node sets.
+ * Keys are lowercased first, as {@link PermissionAttachment#setPermission(String, boolean)} does.
+ */
+public final class AttachmentAccessor {
+
+    private static final Field PERMISSIONS_FIELD;
+
+    static {
+        Field field;
+        try {
+            field = PermissionAttachment.class.getDeclaredField("permissions");
+            field.setAccessible(true);
+            if (!Map.class.isAssignableFrom(field.getType())) {
+                field = null;
+            }
+        } catch (Exception e) {
+            field = null;
+        }
+        PERMISSIONS_FIELD = field;
+    }
+
+    private AttachmentAccessor() {
+    }
+
+    /**
+     * Checks if bulk access to attachments is available on this server.
+     *
+     * @return Whether the backing map can be accessed directly
+     */
+    public static boolean isBulkSupported() {
+        return PERMISSIONS_FIELD != null;
+    }
+
+    /**
+     * Gets the live backing map of an attachment.
+     *
+     * @param attachment The permission attachment
+     * @return The backing map, or null if it cannot be accessed
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Boolean> getBackingMap(PermissionAttachment attachment) {
+        if (PERMISSIONS_FIELD == null || attachment == null) {
+            return null;
+        }
+
+        try {
+            return (Map<String, Boolean>) PERMISSIONS_FIELD.get(attachment);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds all permissions to an attachment without recalculating the permissible.
+     * The caller must recalculate permissions exactly once afterwards.
+     * If bulk access is unavailable, falls back to setting each node individually.
+     *
+     * @param attachment The permission attachment
+     * @param permissions The permissions to add
+     * @return Whether the bulk path was used
+     */
+    public static boolean setPermissions(PermissionAttachment attachment, Map<String, Boolean> permissions) {
+        Map<String, Boolean> backingMap = getBackingMap(attachment);
+        if (backingMap != null) {
+            backingMap.putAll(lowercaseKeys(permissions));
+            return true;
+        }
+
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            attachment.setPermission(entry.getKey(), entry.getValue());
+        }
+        return false;
+    }
+
+    /**
+     * Applies only the difference between two resolved permission maps to an attachment,
+     * without recalculating the permissible. Nodes that were removed are unset, and nodes that
+     * were added or flipped are set. The caller must recalculate permissions if anything changed.
+     *
+     * @param attachment The permission attachment
+     * @param previous The permissions currently applied to the attachment
+     * @param next The permissions that should be applied
+     * @return The number of nodes that were added, removed or flipped
+     */
+    public static int applyDiff(PermissionAttachment attachment, Map<String, Boolean> previous, Map<String, Boolean> next) {
+        Map<String, Boolean> backingMap = getBackingMap(attachment);
+        previous = lowercaseKeys(previous);
+        next = lowercaseKeys(next);
+        int changes = 0;
+
+        for (String permission : previous.keySet()) {
+            if (!next.containsKey(permission)) {
+                if (backingMap != null) {
+                    backingMap.remove(permission);
+                } else {
+                    attachment.unsetPermission(permission);
+                }
+                changes++;
+            }
+        }
+
+        for (Map.Entry<String, Boolean> entry : next.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                if (backingMap != null) {
+                    backingMap.put(entry.getKey(), entry.getValue());
+                } else {
+                    attachment.setPermission(entry.getKey(), entry.getValue());
+                }
+                changes++;
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Lowercases the keys of a permission map the way the attachment stores them.
+     *
+     * @param permissions The permissions
+     * @return The permissions itself if every key is already lowercase, otherwise a lowercased copy
+     */
+    private static Map<String, Boolean> lowercaseKeys(Map<String, Boolean> permissions) {
+        for (String key : permissions.keySet()) {
+            if (!key.toLowerCase(Locale.ROOT).equals(key)) {
+                Map<String, Boolean> lowercased = new LinkedHashMap<>(permissions.size());
+                for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+                    lowercased.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+                }
+                return lowercased;
+            }
+        }
+        return permissions;
+    }
+}
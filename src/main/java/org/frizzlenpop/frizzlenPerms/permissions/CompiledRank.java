@@ -0,0 +1,120 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, inheritance-flattened view of a rank's permissions.
+ * Permissions are held as a {@link NodeSet} over the shared {@link NodeDictionary}.
+ */
+public final class CompiledRank {
+
+    private final String name;
+    private final int weight;
+    private final NodeSet nodes;
+    private final NodeDictionary dictionary;
+    private final Set<String> lineage;
+    private final ContextLayers contextLayers;
+    private volatile PermissionTrie trie;
+
+    /**
+     * Creates a new CompiledRank.
+     *
+     * @param name The name of the rank
+     * @param weight The weight of the rank
+     * @param nodes The resolved permissions, with inheritance and negation applied
+     * @param dictionary The dictionary the node IDs belong to
+     * @param lineage The lowercase names of this rank and every rank it inherits from
+     * @param contextLayers The rank's own contextual permissions
+     */
+    CompiledRank(String name, int weight, NodeSet nodes, NodeDictionary dictionary, Set<String> lineage,
+                 ContextLayers contextLayers) {
+        this.name = name;
+        this.weight = weight;
+        this.nodes = nodes;
+        this.dictionary = dictionary;
+        this.lineage = Collections.unmodifiableSet(lineage);
+        this.contextLayers = contextLayers;
+    }
+
+    /**
+     * Gets the name of the rank.
+     *
+     * @return The name of the rank
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the weight of the rank at the time it was compiled.
+     *
+     * @return The weight of the rank
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets the resolved permissions of the rank as node IDs.
+     *
+     * @return The node set, which must not be modified
+     */
+    public NodeSet getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the resolved permissions of the rank.
+     * The map is built from the node set on every call.
+     *
+     * @return An unmodifiable map of permission nodes to their values
+     */
+    public Map<String, Boolean> getPermissions() {
+        return Collections.unmodifiableMap(nodes.toMap(dictionary));
+    }
+
+    /**
+     * Gets the rank's own contextual permissions, such as world-specific ones.
+     * Contextual permissions are not inherited.
+     *
+     * @return The context layers
+     */
+    ContextLayers getContextLayers() {
+        return contextLayers;
+    }
+
+    /**
+     * Gets the lowercase names of this rank and all of its ancestors.
+     *
+     * @return An unmodifiable set of rank names
+     */
+    public Set<String> getLineage() {
+        return lineage;
+    }
+
+    /**
+     * Checks if this compiled rank depends on the given rank.
+     *
+     * @param rankName The name of the rank
+     * @return Whether the rank is this rank or one of its ancestors
+     */
+    public boolean dependsOn(String rankName) {
+        return rankName != null && lineage.contains(rankName.toLowerCase());
+    }
+
+    /**
+     * Gets a trie over the resolved permissions, built on first use.
+     *
+     * @return The permission trie of this rank
+     */
+    public PermissionTrie getTrie() {
+        PermissionTrie result = trie;
+        if (result == null) {
+            result = new PermissionTrie(getPermissions());
+            trie = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,175 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.frizzlenpop.frizzlenPerms.data.DataManager;
+import org.frizzlenpop.frizzlenPerms.models.Rank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches compiled, inheritance-flattened permission snapshots per rank.
+ * A snapshot is rebuilt only after the rank or one of its ancestors changes; the
+ * {@link InheritanceGraph} names exactly the snapshots a change affects.
+ */
+public class CompiledRankRegistry {
+
+    private final Function<String, Rank> rankLookup;
+    private final NodeDictionary dictionary;
+    private final InheritanceGraph inheritance;
+    private final Map<String, CompiledRank> compiled = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates a new CompiledRankRegistry.
+     *
+     * @param dataManager The data manager used to look up ranks
+     * @param dictionary The dictionary to intern permission nodes in
+     * @param inheritance The rank inheritance graph
+     */
+    public CompiledRankRegistry(DataManager dataManager, NodeDictionary dictionary, InheritanceGraph inheritance) {
+        this(Objects.requireNonNull(dataManager, "DataManager cannot be null")::getRankSnapshot, dictionary, inheritance);
+    }
+
+    /**
+     * Creates a new CompiledRankRegistry over ranks that are not held by the data manager.
+     *
+     * @param rankLookup Looks up a read-only rank by name, or returns null if it does not exist
+     * @param dictionary The dictionary to intern permission nodes in
+     * @param inheritance The rank inheritance graph
+     */
+    public CompiledRankRegistry(Function<String, Rank> rankLookup, NodeDictionary dictionary, InheritanceGraph inheritance) {
+        this.rankLookup = Objects.requireNonNull(rankLookup, "Rank lookup cannot be null");
+        this.dictionary = Objects.requireNonNull(dictionary, "NodeDictionary cannot be null");
+        this.inheritance = Objects.requireNonNull(inheritance, "InheritanceGraph cannot be null");
+    }
+
+    /**
+     * Gets the compiled snapshot of a rank, compiling it if necessary.
+     *
+     * @param rankName The name of the rank
+     * @return The compiled rank, or null if the rank does not exist
+     */
+    public CompiledRank get(String rankName) {
+        if (rankName == null) {
+            return null;
+        }
+        return compile(rankName, new HashSet<>());
+    }
+
+    /**
+     * Invalidates a rank and every compiled rank that inherits from it.
+     *
+     * @param rankName The name of the changed rank
+     */
+    public void invalidate(String rankName) {
+        if (rankName == null) {
+            return;
+        }
+
+        generation.incrementAndGet();
+        for (String descendant : inheritance.getDescendants(rankName)) {
+            compiled.remove(descendant);
+        }
+    }
+
+    /**
+     * Invalidates every compiled rank.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        compiled.clear();
+    }
+
+    /**
+     * Gets the number of compiled ranks currently cached.
+     *
+     * @return The number of cached snapshots
+     */
+    public int size() {
+        return compiled.size();
+    }
+
+    /**
+     * Compiles a rank, reusing cached snapshots of its ancestors.
+     *
+     * @param rankName The name of the rank
+     * @param visiting The ranks on the current inheritance path, used to break cycles
+     * @return The compiled rank, or null if the rank does not exist or is part of a cycle
+     */
+    private CompiledRank compile(String rankName, Set<String> visiting) {
+        String key = rankName.toLowerCase();
+
+        CompiledRank cached = compiled.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (!visiting.add(key)) {
+            // Circular inheritance, ignore this edge
+            return null;
+        }
+
+        long startGeneration = generation.get();
+        Rank rank = rankLookup.apply(rankName);
+        if (rank == null) {
+            visiting.remove(key);
+            return null;
+        }
+
+        Set<String> lineage = new HashSet<>();
+        lineage.add(key);
+
+        // Compile inherited ranks first, lowest weight first so heavier ranks win conflicts
+        List<CompiledRank> parents = new ArrayList<>();
+        for (String inheritedRankName : rank.getInheritance()) {
+            CompiledRank parent = compile(inheritedRankName, visiting);
+            if (parent != null) {
+                parents.add(parent);
+                lineage.addAll(parent.getLineage());
+            }
+        }
+        parents.sort(Comparator.comparingInt(CompiledRank::getWeight));
+
+        NodeSet nodes = new NodeSet();
+        for (CompiledRank parent : parents) {
+            nodes.overlay(parent.getNodes());
+        }
+
+        // The rank's own nodes override inherited ones, and negations win within the rank
+        List<String> negated = new ArrayList<>();
+        for (String permission : rank.getPermissions()) {
+            if (permission.startsWith("-")) {
+                negated.add(permission.substring(1));
+            } else {
+                nodes.grant(dictionary.intern(permission));
+            }
+        }
+        for (String permission : negated) {
+            nodes.negate(dictionary.intern(permission));
+        }
+
+        // Context layers are parsed once here so context changes never re-read the rank
+        ContextLayers contextLayers = ContextLayers.parse(new HashMap<>(rank.getWorldPermissions()), dictionary);
+
+        visiting.remove(key);
+
+        CompiledRank result = new CompiledRank(rank.getName(), rank.getWeight(), nodes, dictionary, lineage, contextLayers);
+        // Only publish if nothing was invalidated while compiling
+        if (generation.get() == startGeneration) {
+            CompiledRank existing = compiled.putIfAbsent(key, result);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+
+/**
+ * Adds context values for a player, such as a region or an arena.
+ * Calculators are called on the main thread whenever a player's permissions are set up
+ * or their contexts are refreshed. Call {@link PermissionManager#updateContexts(Player)}
+ * when a value a calculator provides changes.
+ */
+@FunctionalInterface
+public interface ContextCalculator {
+
+    /**
+     * Adds the context values of a player.
+     *
+     * @param player The player
+     * @param contexts The values calculated so far, to add to
+     */
+    void calculate(Player player, Map<String, String> contexts);
+}
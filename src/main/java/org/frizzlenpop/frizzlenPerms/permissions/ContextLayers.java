@@ -0,0 +1,115 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.frizzlenpop.frizzlenPerms.utils.LogManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Contextual permission layers, each applying only when its required contexts are present.
+ * Layers are parsed once and kept ordered from least to most specific, so a layer that
+ * requires more contexts wins over a broader one.
+ */
+final class ContextLayers {
+
+    /**
+     * Layers without any entries.
+     */
+    static final ContextLayers EMPTY = new ContextLayers(List.of());
+
+    private final List<Layer> layers;
+
+    private ContextLayers(List<Layer> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Parses stored contextual permissions. Layers under a malformed context key are
+     * dropped with a warning, so they never apply in contexts they were not meant for.
+     *
+     * @param permissions The permissions per context key, see {@link ContextSet#parse(String)}
+     * @param dictionary The dictionary to intern permission nodes in
+     * @return The parsed layers
+     */
+    static ContextLayers parse(Map<String, Set<String>> permissions, NodeDictionary dictionary) {
+        List<Layer> layers = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : permissions.entrySet()) {
+            ContextSet required;
+            try {
+                required = ContextSet.parse(entry.getKey());
+            } catch (IllegalArgumentException e) {
+                LogManager.getLogger().warning("Ignoring contextual permissions: " + e.getMessage());
+                continue;
+            }
+            NodeSet nodes = NodeSet.parse(entry.getValue(), dictionary);
+            if (!nodes.isEmpty()) {
+                layers.add(new Layer(required, nodes));
+            }
+        }
+        if (layers.isEmpty()) {
+            return EMPTY;
+        }
+        layers.sort(Comparator.comparingInt(layer -> layer.required.size()));
+        return new ContextLayers(List.copyOf(layers));
+    }
+
+    /**
+     * Checks if any layer applies in the given contexts.
+     *
+     * @param contexts The contexts
+     * @return Whether at least one layer applies
+     */
+    boolean appliesTo(ContextSet contexts) {
+        for (Layer layer : layers) {
+            if (contexts.satisfies(layer.required)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lays every layer that applies in the given contexts over a node set.
+     *
+     * @param target The node set to modify
+     * @param contexts The contexts
+     */
+    void applyTo(NodeSet target, ContextSet contexts) {
+        for (Layer layer : layers) {
+            if (contexts.satisfies(layer.required)) {
+                target.overlay(layer.nodes);
+            }
+        }
+    }
+
+    /**
+     * Writes every layer that applies in the given contexts into a map.
+     *
+     * @param target The map to write into
+     * @param contexts The contexts
+     * @param dictionary The dictionary the IDs belong to
+     */
+    void writeTo(Map<String, Boolean> target, ContextSet contexts, NodeDictionary dictionary) {
+        for (Layer layer : layers) {
+            if (contexts.satisfies(layer.required)) {
+                layer.nodes.writeTo(target, dictionary);
+            }
+        }
+    }
+
+    /**
+     * A node set and the contexts it requires.
+     */
+    private static final class Layer {
+        private final ContextSet required;
+        private final NodeSet nodes;
+
+        private Layer(ContextSet required, NodeSet nodes) {
+            this.required = required;
+            this.nodes = nodes;
+        }
+    }
+}
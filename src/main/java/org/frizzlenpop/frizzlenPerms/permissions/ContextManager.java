@@ -0,0 +1,86 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.entity.Player;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Calculates the contexts of players. The world, gamemode and server contexts are built in;
+ * other plugins add their own through {@link ContextCalculator}s.
+ */
+public class ContextManager {
+
+    private final FrizzlenPerms plugin;
+    private final List<ContextCalculator> calculators = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new ContextManager.
+     *
+     * @param plugin The plugin instance
+     */
+    public ContextManager(FrizzlenPerms plugin) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+    }
+
+    /**
+     * Registers a calculator for custom contexts.
+     *
+     * @param calculator The calculator
+     */
+    public void registerCalculator(ContextCalculator calculator) {
+        calculators.add(Objects.requireNonNull(calculator, "Calculator cannot be null"));
+    }
+
+    /**
+     * Unregisters a calculator for custom contexts.
+     *
+     * @param calculator The calculator
+     */
+    public void unregisterCalculator(ContextCalculator calculator) {
+        calculators.remove(calculator);
+    }
+
+    /**
+     * Calculates the current contexts of an online player. Must be called on the main thread.
+     *
+     * @param player The player
+     * @return The contexts of the player
+     */
+    public ContextSet getContexts(Player player) {
+        Map<String, String> contexts = new HashMap<>();
+        contexts.put(ContextSet.SERVER, plugin.getConfigManager().getServerName());
+        contexts.put(ContextSet.WORLD, player.getWorld().getName());
+        contexts.put(ContextSet.GAMEMODE, player.getGameMode().name());
+
+        for (ContextCalculator calculator : calculators) {
+            try {
+                calculator.calculate(player, contexts);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Context calculator " + calculator.getClass().getName()
+                        + " failed for " + player.getName(), e);
+            }
+        }
+        return ContextSet.of(contexts);
+    }
+
+    /**
+     * Gets the contexts known without an online player: the server and, if given, a world.
+     *
+     * @param worldName The world name, or null to leave the world unset
+     * @return The contexts
+     */
+    public ContextSet getStaticContexts(String worldName) {
+        Map<String, String> contexts = new HashMap<>();
+        contexts.put(ContextSet.SERVER, plugin.getConfigManager().getServerName());
+        if (worldName != null) {
+            contexts.put(ContextSet.WORLD, worldName);
+        }
+        return ContextSet.of(contexts);
+    }
+}
@@ -0,0 +1,194 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * An immutable set of context values, such as the world, gamemode or server of a player.
+ * Keys and values are compared case-insensitively and stored lowercase, in key order.
+ * <p>
+ * Contextual permissions are stored under a context key in the existing world permission
+ * maps of ranks and players. A key is either a plain world name, or {@code key=value} pairs
+ * separated by {@code ;}, such as {@code gamemode=creative;world=nether}.
+ */
+public final class ContextSet {
+
+    /**
+     * The context key of the world a player is in.
+     */
+    public static final String WORLD = "world";
+
+    /**
+     * The context key of the gamemode of a player.
+     */
+    public static final String GAMEMODE = "gamemode";
+
+    /**
+     * The context key of the server name from the config.
+     */
+    public static final String SERVER = "server";
+
+    /**
+     * A context set without any values.
+     */
+    public static final ContextSet EMPTY = new ContextSet(new TreeMap<>());
+
+    private final Map<String, String> values;
+    private final int hash;
+
+    private ContextSet(TreeMap<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+        this.hash = values.hashCode();
+    }
+
+    /**
+     * Creates a context set from key/value pairs. Null keys or values are skipped.
+     *
+     * @param values The context values
+     * @return The context set
+     */
+    public static ContextSet of(Map<String, String> values) {
+        Objects.requireNonNull(values, "Values cannot be null");
+        TreeMap<String, String> normalized = new TreeMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                normalized.put(entry.getKey().trim().toLowerCase(), entry.getValue().trim().toLowerCase());
+            }
+        }
+        return normalized.isEmpty() ? EMPTY : new ContextSet(normalized);
+    }
+
+    /**
+     * Parses a stored context key. A key without {@code =} is a world name.
+     * A key with a malformed pair, such as {@code gamemode=} or {@code =creative}, is rejected
+     * rather than parsed into a broader set, which would apply its permissions in more contexts.
+     *
+     * @param key The context key, such as {@code world_nether} or {@code gamemode=creative;server=lobby}
+     * @return The parsed context set
+     * @throws IllegalArgumentException If the key contains a malformed pair
+     */
+    public static ContextSet parse(String key) {
+        Objects.requireNonNull(key, "Context key cannot be null");
+        TreeMap<String, String> values = new TreeMap<>();
+        if (key.indexOf('=') < 0) {
+            values.put(WORLD, key.trim().toLowerCase());
+        } else {
+            for (String pair : key.split(";")) {
+                if (pair.trim().isEmpty()) {
+                    continue;
+                }
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? "" : pair.substring(0, separator).trim().toLowerCase();
+                String value = separator < 0 ? "" : pair.substring(separator + 1).trim().toLowerCase();
+                if (name.isEmpty() || value.isEmpty()) {
+                    throw new IllegalArgumentException("Malformed context pair '" + pair + "' in context key '" + key + "'");
+                }
+                values.put(name, value);
+            }
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("Context key '" + key + "' has no context pairs");
+            }
+        }
+        return values.isEmpty() ? EMPTY : new ContextSet(values);
+    }
+
+    /**
+     * Gets a context value.
+     *
+     * @param key The context key
+     * @return The lowercase value, or null if not set
+     */
+    public String get(String key) {
+        return key != null ? values.get(key.toLowerCase()) : null;
+    }
+
+    /**
+     * Gets all context values.
+     *
+     * @return An unmodifiable map of keys to values, in key order
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * Creates a copy of this set with one value added or replaced.
+     *
+     * @param key The context key
+     * @param value The context value
+     * @return The new context set
+     */
+    public ContextSet with(String key, String value) {
+        TreeMap<String, String> copy = new TreeMap<>(values);
+        copy.put(key.toLowerCase(), value.toLowerCase());
+        return new ContextSet(copy);
+    }
+
+    /**
+     * Checks if every value required by another set is present in this set.
+     *
+     * @param required The required context values
+     * @return Whether this set satisfies the requirements
+     */
+    public boolean satisfies(ContextSet required) {
+        for (Map.Entry<String, String> entry : required.values.entrySet()) {
+            if (!entry.getValue().equals(values.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of context values.
+     *
+     * @return The number of values
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Checks if the set has no values.
+     *
+     * @return Whether the set is empty
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ContextSet)) {
+            return false;
+        }
+        return values.equals(((ContextSet) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Formats the set as a stored context key.
+     *
+     * @return The context key, such as {@code gamemode=creative;world=nether}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(';');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,400 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+import org.frizzlenpop.frizzlenPerms.data.DataManager;
+import org.frizzlenpop.frizzlenPerms.data.TemporaryEntry;
+import org.frizzlenpop.frizzlenPerms.data.TemporaryEntry.Type;
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+import org.frizzlenpop.frizzlenPerms.models.Rank;
+import org.frizzlenpop.frizzlenPerms.utils.MessageUtils;
+import org.frizzlenpop.frizzlenPerms.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.logging.Level;
+
+/**
+ * Removes temporary ranks and permissions exactly when they expire.
+ * Every pending expiry sits in a priority queue ordered by due time, so each tick
+ * only looks at the head of the queue instead of scanning players. The data of players
+ * with due entries is loaded off the main thread, then the entries are removed, the player
+ * is saved, notified and recalculated on the main thread, which owns the cached player data.
+ * Expiring-soon warnings share the queue: each entry has at most one pending warning,
+ * and firing it queues the next configured warning offset.
+ */
+public class ExpiryScheduler {
+
+    private final FrizzlenPerms plugin;
+    private final DataManager dataManager;
+    private final Queue<Entry> queue = new PriorityBlockingQueue<>();
+    private final Map<Key, Long> scheduled = new ConcurrentHashMap<>();
+    private volatile long[] warningOffsets = new long[0];
+    private BukkitTask task;
+
+    /**
+     * Creates a new ExpiryScheduler.
+     *
+     * @param plugin The plugin instance
+     * @param dataManager The data manager
+     */
+    public ExpiryScheduler(FrizzlenPerms plugin, DataManager dataManager) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+        this.dataManager = Objects.requireNonNull(dataManager, "DataManager cannot be null");
+    }
+
+    /**
+     * Starts checking for due expiries every tick and schedules every stored temporary rank
+     * and permission. Only the temporary entries are read, once, asynchronously.
+     */
+    public void start() {
+        if (task != null) {
+            task.cancel();
+        }
+        warningOffsets = parseWarningOffsets(plugin.getConfigManager().getExpiryWarnings());
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                dataManager.forEachTemporaryEntry(this::register);
+                plugin.getLogger().info("Scheduled " + scheduled.size() + " pending expiries.");
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to schedule pending expiries", e);
+            }
+        });
+    }
+
+    /**
+     * Stops checking for expiries and forgets every scheduled one.
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        scheduled.clear();
+    }
+
+    /**
+     * Schedules every temporary rank and permission of a player.
+     * Entries already scheduled for the same time are not added twice.
+     *
+     * @param playerData The player data
+     */
+    public void register(PlayerData playerData) {
+        if (playerData == null) {
+            return;
+        }
+
+        for (TemporaryEntry entry : TemporaryEntry.of(playerData)) {
+            register(entry);
+        }
+    }
+
+    /**
+     * Schedules a single temporary rank or permission.
+     * An entry already scheduled for the same time is not added twice.
+     *
+     * @param entry The temporary entry
+     */
+    public void register(TemporaryEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        schedule(new Key(entry.getUuid(), entry.getType(), entry.getName()), entry.getExpiration());
+    }
+
+    /**
+     * Gets the number of pending expiries.
+     *
+     * @return The number of scheduled expiries
+     */
+    public int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Schedules a single expiry, replacing an earlier schedule of the same entry.
+     *
+     * @param key The entry that expires
+     * @param expiresAt The expiration time in milliseconds
+     */
+    private void schedule(Key key, long expiresAt) {
+        Long previous = scheduled.put(key, expiresAt);
+        if (previous == null || previous != expiresAt) {
+            queue.add(new Entry(key, expiresAt, expiresAt, -1));
+            scheduleWarning(key, expiresAt, 0, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Queues the first warning at or after an offset index that is still in the future.
+     *
+     * @param key The entry that expires
+     * @param expiresAt The expiration time in milliseconds
+     * @param fromIndex The first warning offset index to consider
+     * @param now The current time in milliseconds
+     */
+    private void scheduleWarning(Key key, long expiresAt, int fromIndex, long now) {
+        long[] offsets = warningOffsets;
+        for (int i = fromIndex; i < offsets.length; i++) {
+            long warnAt = expiresAt - offsets[i];
+            if (warnAt > now) {
+                queue.add(new Entry(key, expiresAt, warnAt, i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses the configured warning offsets, longest first.
+     *
+     * @param warnings The configured duration strings
+     * @return The offsets in milliseconds, sorted descending
+     */
+    private long[] parseWarningOffsets(List<String> warnings) {
+        List<Long> offsets = new ArrayList<>();
+        for (String warning : warnings) {
+            long offset = TimeUtils.parseTime(warning, false, -1L);
+            if (offset <= 0 || offset == Long.MAX_VALUE) {
+                plugin.getLogger().warning("Ignoring invalid expiry warning offset: " + warning);
+                continue;
+            }
+            offsets.add(offset);
+        }
+        offsets.sort(Comparator.reverseOrder());
+        return offsets.stream().distinct().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Collects every due expiry and warning, grouped by player, and processes each player once.
+     */
+    private void tick() {
+        Entry head = queue.peek();
+        long now = System.currentTimeMillis();
+        if (head == null || head.dueAt > now) {
+            return;
+        }
+
+        Map<UUID, List<Entry>> due = new LinkedHashMap<>();
+        Map<Player, List<Entry>> warnings = new LinkedHashMap<>();
+        while ((head = queue.peek()) != null && head.dueAt <= now) {
+            queue.poll();
+            if (head.isWarning()) {
+                // Skip warnings of entries that were rescheduled or already expired
+                Long expiresAt = scheduled.get(head.key);
+                if (expiresAt == null || expiresAt != head.expiresAt) {
+                    continue;
+                }
+                // Offline players are skipped with a single lookup, the next offset is still queued
+                Player player = Bukkit.getPlayer(head.key.uuid);
+                if (player != null) {
+                    // Grants removed by hand keep their schedule until they would expire, but are not warned about
+                    if (!isHeld(head)) {
+                        continue;
+                    }
+                    warnings.computeIfAbsent(player, p -> new ArrayList<>()).add(head);
+                }
+                scheduleWarning(head.key, head.expiresAt, head.warningIndex + 1, now);
+            } else if (scheduled.remove(head.key, head.expiresAt)) {
+                // Entries that were rescheduled since they were queued are skipped
+                due.computeIfAbsent(head.key.uuid, uuid -> new ArrayList<>()).add(head);
+            }
+        }
+
+        for (Map.Entry<Player, List<Entry>> entry : warnings.entrySet()) {
+            sendWarnings(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<UUID, List<Entry>> entry : due.entrySet()) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> load(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Checks if an online player's cached data still holds an entry with the expiration it
+     * was scheduled for. Must be called on the main thread, which owns the cached player data.
+     *
+     * @param entry The scheduled entry
+     * @return Whether the entry is still held, or true if the player's data is not cached
+     */
+    private boolean isHeld(Entry entry) {
+        PlayerData playerData = dataManager.getCachedPlayerData(entry.key.uuid);
+        if (playerData == null) {
+            return true;
+        }
+        Map<String, Long> temporary = entry.key.type == Type.RANK
+                ? playerData.getTemporaryRanks() : playerData.getTemporaryPermissions();
+        Long expiration = temporary.get(entry.key.name);
+        return expiration != null && expiration == entry.expiresAt;
+    }
+
+    /**
+     * Warns an online player about entries that expire soon.
+     *
+     * @param player The player
+     * @param entries The entries about to expire
+     */
+    private void sendWarnings(Player player, List<Entry> entries) {
+        for (Entry entry : entries) {
+            String time = TimeUtils.formatTimeRemaining(entry.expiresAt);
+            if (entry.key.type == Type.RANK) {
+                MessageUtils.sendMessage(player, "players.rank-expiring-soon", Map.of(
+                    "rank", entry.key.name,
+                    "time", time
+                ));
+            } else {
+                MessageUtils.sendMessage(player, "players.permission-expiring-soon", Map.of(
+                    "permission", entry.key.name,
+                    "time", time
+                ));
+            }
+        }
+    }
+
+    /**
+     * Loads the data of a player with due entries and hands it to the main thread to expire them.
+     * Runs off the main thread. Offline players are not kept in the player data cache.
+     *
+     * @param uuid The UUID of the player
+     * @param entries The due entries of the player
+     */
+    private void load(UUID uuid, List<Entry> entries) {
+        PlayerData playerData = dataManager.getPlayerDataUncached(uuid);
+        if (playerData != null && plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, () -> expire(playerData, entries));
+        }
+    }
+
+    /**
+     * Removes due entries from a player's data, saves it and notifies the player.
+     * A temporary rank only takes the primary or secondary rank its grant added with it.
+     * If the player was cached since their data was loaded, the cached data is expired instead,
+     * so saving never replaces it with the older copy. Runs on the main thread.
+     *
+     * @param loaded The player data loaded off the main thread
+     * @param entries The due entries of the player
+     */
+    private void expire(PlayerData loaded, List<Entry> entries) {
+        PlayerData cached = dataManager.getCachedPlayerData(loaded.getUuid());
+        PlayerData playerData = cached != null ? cached : loaded;
+
+        long now = System.currentTimeMillis();
+        List<Entry> expired = new ArrayList<>();
+        for (Entry entry : entries) {
+            // The entry may have been removed or extended after it was scheduled
+            Map<String, Long> temporary = entry.key.type == Type.RANK
+                    ? playerData.getTemporaryRanks() : playerData.getTemporaryPermissions();
+            Long expiration = temporary.get(entry.key.name);
+            if (expiration == null || expiration > now) {
+                continue;
+            }
+
+            if (entry.key.type == Type.RANK) {
+                Rank defaultRank = dataManager.getDefaultRankSnapshot();
+                playerData.revokeTemporaryRank(entry.key.name, defaultRank != null ? defaultRank.getName() : null);
+            } else {
+                playerData.removeTemporaryPermission(entry.key.name);
+            }
+            expired.add(entry);
+        }
+
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        dataManager.savePlayerDataUncached(playerData);
+        plugin.getLogger().fine("Expired " + expired.size() + " temporary entries of " + playerData.getPlayerName());
+        notifyExpired(playerData.getUuid(), expired);
+    }
+
+    /**
+     * Notifies an online player about their expired entries and recalculates their permissions.
+     *
+     * @param uuid The UUID of the player
+     * @param expired The expired entries
+     */
+    private void notifyExpired(UUID uuid, List<Entry> expired) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            return;
+        }
+
+        for (Entry entry : expired) {
+            if (entry.key.type == Type.RANK) {
+                MessageUtils.sendMessage(player, "players.rank-expired", Map.of("rank", entry.key.name));
+            } else {
+                MessageUtils.sendMessage(player, "players.permission-expired", Map.of("permission", entry.key.name));
+            }
+        }
+        plugin.getPermissionManager().calculateAndApplyPermissions(player);
+    }
+
+    /**
+     * Identifies a temporary entry of a player.
+     */
+    private static final class Key {
+        private final UUID uuid;
+        private final Type type;
+        private final String name;
+
+        private Key(UUID uuid, Type type, String name) {
+            this.uuid = uuid;
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return uuid.equals(other.uuid) && type == other.type && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uuid, type, name);
+        }
+    }
+
+    /**
+     * A scheduled expiry or expiring-soon warning, ordered by due time.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final Key key;
+        private final long expiresAt;
+        private final long dueAt;
+        private final int warningIndex;
+
+        private Entry(Key key, long expiresAt, long dueAt, int warningIndex) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+            this.dueAt = dueAt;
+            this.warningIndex = warningIndex;
+        }
+
+        private boolean isWarning() {
+            return warningIndex >= 0;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(dueAt, other.dueAt);
+        }
+    }
+}
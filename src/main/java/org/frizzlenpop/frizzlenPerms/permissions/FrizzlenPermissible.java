@@ -0,0 +1,113 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.Permission;
+
+/**
+ * A permissible that answers permission checks from the player's resolved permissions.
+ * They are immutable and swapped atomically on recalculation, so checks never lock.
+ * Nodes FrizzlenPerms does not manage fall through to the regular {@link PermissibleBase} logic.
+ */
+public class FrizzlenPermissible extends PermissibleBase {
+
+    private final Player player;
+    private final PermissibleBase original;
+    private volatile ResolvedPermissions permissions;
+
+    /**
+     * Creates a new FrizzlenPermissible.
+     *
+     * @param player The player this permissible belongs to
+     * @param original The permissible it replaces, restored when uninjected
+     */
+    public FrizzlenPermissible(Player player, PermissibleBase original) {
+        super(player);
+        this.player = player;
+        this.original = original;
+    }
+
+    /**
+     * Gets the player this permissible belongs to.
+     *
+     * @return The player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the permissible this one replaced.
+     *
+     * @return The original permissible
+     */
+    public PermissibleBase getOriginal() {
+        return original;
+    }
+
+    /**
+     * Atomically replaces the resolved permissions used for checks.
+     *
+     * @param resolved The resolved permissions of the player
+     */
+    public void setPermissions(ResolvedPermissions resolved) {
+        this.permissions = resolved;
+    }
+
+    /**
+     * Gets the resolved permissions currently in use.
+     *
+     * @return The resolved permissions, or null if none were applied yet
+     */
+    public ResolvedPermissions getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public boolean isPermissionSet(String name) {
+        return name != null && (resolve(name) != null || super.isPermissionSet(name));
+    }
+
+    @Override
+    public boolean isPermissionSet(Permission perm) {
+        return perm != null && isPermissionSet(perm.getName());
+    }
+
+    @Override
+    public boolean hasPermission(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Permission name cannot be null");
+        }
+
+        Boolean value = resolve(name);
+        if (value != null) {
+            return value;
+        }
+        return super.hasPermission(name);
+    }
+
+    @Override
+    public boolean hasPermission(Permission perm) {
+        if (perm == null) {
+            throw new IllegalArgumentException("Permission cannot be null");
+        }
+
+        Boolean value = resolve(perm.getName());
+        if (value != null) {
+            return value;
+        }
+        return super.hasPermission(perm);
+    }
+
+    /**
+     * Resolves a node against the current permissions, including wildcards.
+     * Results are memoized, so repeated checks are a single hash lookup.
+     *
+     * @param name The permission node
+     * @return The resolved value, or null if FrizzlenPerms does not set it
+     */
+    private Boolean resolve(String name) {
+        ResolvedPermissions current = permissions;
+        return current != null ? current.resolve(name) : null;
+    }
+}
@@ -0,0 +1,179 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.frizzlenpop.frizzlenPerms.models.Rank;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The rank inheritance graph, kept in both directions: each rank's parents and the ranks
+ * that inherit from it. The reverse edges let a change to one rank reach exactly the ranks
+ * that depend on it, and cycles are rejected when an edge is added by searching only the
+ * descendants of the inheriting rank.
+ * Edges are updated whenever a rank is saved. Rank names are stored lowercase.
+ */
+public class InheritanceGraph {
+
+    private final Supplier<Collection<Rank>> ranks;
+    private final Map<String, Set<String>> parents = new HashMap<>();
+    private final Map<String, Set<String>> children = new HashMap<>();
+    private boolean stale = true;
+
+    /**
+     * Creates a new InheritanceGraph.
+     *
+     * @param ranks Supplies every stored rank, used to build the graph on first use and after a reset
+     */
+    public InheritanceGraph(Supplier<Collection<Rank>> ranks) {
+        this.ranks = Objects.requireNonNull(ranks, "Rank supplier cannot be null");
+    }
+
+    /**
+     * Replaces the parents of a rank.
+     *
+     * @param rankName The name of the rank
+     * @param parentNames The names of the ranks it inherits from
+     */
+    public synchronized void setParents(String rankName, Collection<String> parentNames) {
+        if (rankName == null || stale) {
+            // A stale graph reads the rank when it is rebuilt
+            return;
+        }
+        setEdges(rankName.toLowerCase(), parentNames);
+    }
+
+    /**
+     * Removes the parents of a deleted rank. Edges from ranks that still list it as a
+     * parent are kept, matching their stored inheritance.
+     *
+     * @param rankName The name of the rank
+     */
+    public synchronized void removeRank(String rankName) {
+        if (rankName == null || stale) {
+            return;
+        }
+        setEdges(rankName.toLowerCase(), Collections.emptySet());
+    }
+
+    /**
+     * Checks if letting a rank inherit from another would create a cycle, which is the case
+     * if the new parent is the rank itself or already inherits from it.
+     *
+     * @param rankName The name of the rank that would inherit
+     * @param parentName The name of the rank that would be inherited
+     * @return Whether the new edge would close a cycle
+     */
+    public synchronized boolean wouldCreateCycle(String rankName, String parentName) {
+        ensureBuilt();
+        return collect(rankName.toLowerCase(), children).contains(parentName.toLowerCase());
+    }
+
+    /**
+     * Gets a rank and every rank that inherits from it, directly or transitively.
+     *
+     * @param rankName The name of the rank
+     * @return The lowercase names, including the rank itself
+     */
+    public synchronized Set<String> getDescendants(String rankName) {
+        ensureBuilt();
+        return collect(rankName.toLowerCase(), children);
+    }
+
+    /**
+     * Gets a rank and every rank it inherits from, directly or transitively.
+     *
+     * @param rankName The name of the rank
+     * @return The lowercase names, including the rank itself
+     */
+    public synchronized Set<String> getAncestors(String rankName) {
+        ensureBuilt();
+        return collect(rankName.toLowerCase(), parents);
+    }
+
+    /**
+     * Marks the graph for a rebuild from the stored ranks on next use.
+     */
+    public synchronized void invalidateAll() {
+        stale = true;
+        parents.clear();
+        children.clear();
+    }
+
+    /**
+     * Rebuilds the graph from the stored ranks if it was reset.
+     */
+    private void ensureBuilt() {
+        if (!stale) {
+            return;
+        }
+        stale = false;
+        for (Rank rank : ranks.get()) {
+            setEdges(rank.getName().toLowerCase(), rank.getInheritance());
+        }
+    }
+
+    /**
+     * Replaces the outgoing edges of a rank and the matching reverse edges.
+     *
+     * @param key The lowercase name of the rank
+     * @param parentNames The names of its parents
+     */
+    private void setEdges(String key, Collection<String> parentNames) {
+        Set<String> previous = parents.remove(key);
+        if (previous != null) {
+            for (String parent : previous) {
+                Set<String> siblings = children.get(parent);
+                if (siblings != null) {
+                    siblings.remove(key);
+                    if (siblings.isEmpty()) {
+                        children.remove(parent);
+                    }
+                }
+            }
+        }
+
+        Set<String> next = new HashSet<>();
+        for (String parentName : parentNames) {
+            if (parentName != null) {
+                next.add(parentName.toLowerCase());
+            }
+        }
+        if (next.isEmpty()) {
+            return;
+        }
+        parents.put(key, next);
+        for (String parent : next) {
+            children.computeIfAbsent(parent, k -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Collects every rank reachable from a start rank along one direction of the edges.
+     *
+     * @param start The lowercase name of the start rank
+     * @param edges The edges to follow
+     * @return The reachable ranks, including the start rank
+     */
+    private static Set<String> collect(String start, Map<String, Set<String>> edges) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        visited.add(start);
+        pending.add(start);
+        while (!pending.isEmpty()) {
+            for (String next : edges.getOrDefault(pending.poll(), Collections.emptySet())) {
+                if (visited.add(next)) {
+                    pending.add(next);
+                }
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,80 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns permission nodes to dense int IDs, so compiled permission sets can be stored as
+ * bitsets and every distinct node string is held only once.
+ * IDs are never reused; the dictionary only grows, which is bounded by the number of
+ * distinct nodes ever configured.
+ */
+public final class NodeDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] nodes = new String[256];
+    private int size;
+
+    /**
+     * Gets the ID of a node, assigning the next free ID if the node is new.
+     *
+     * @param node The permission node
+     * @return The ID of the node
+     */
+    public int intern(String node) {
+        Integer id = ids.get(node);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(node);
+            if (id != null) {
+                return id;
+            }
+
+            int next = size;
+            String[] current = nodes;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = node;
+            // Publish the array before the ID becomes visible to readers
+            nodes = current;
+            size = next + 1;
+            ids.put(node, next);
+            return next;
+        }
+    }
+
+    /**
+     * Gets the ID of a node without assigning one.
+     *
+     * @param node The permission node
+     * @return The ID of the node, or -1 if it was never interned
+     */
+    public int lookup(String node) {
+        Integer id = ids.get(node);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the node with an ID.
+     *
+     * @param id The ID of the node
+     * @return The permission node
+     */
+    public String get(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Gets the number of interned nodes.
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,131 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of permission node values stored as two bitsets over {@link NodeDictionary} IDs,
+ * one for granted and one for negated nodes. A node is in at most one half.
+ * Sets are built once and must not be modified after they are published.
+ */
+public final class NodeSet {
+
+    /**
+     * A set without any nodes.
+     */
+    public static final NodeSet EMPTY = new NodeSet();
+
+    private final BitSet granted = new BitSet();
+    private final BitSet negated = new BitSet();
+
+    /**
+     * Parses permission nodes, honouring a leading "-" as negation. Later nodes win.
+     *
+     * @param permissions The permission nodes
+     * @param dictionary The dictionary to intern nodes in
+     * @return The parsed set
+     */
+    public static NodeSet parse(Collection<String> permissions, NodeDictionary dictionary) {
+        NodeSet set = new NodeSet();
+        for (String permission : permissions) {
+            if (permission.startsWith("-")) {
+                set.negate(dictionary.intern(permission.substring(1)));
+            } else {
+                set.grant(dictionary.intern(permission));
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Grants a node, replacing a negation.
+     *
+     * @param id The ID of the node
+     */
+    public void grant(int id) {
+        granted.set(id);
+        negated.clear(id);
+    }
+
+    /**
+     * Negates a node, replacing a grant.
+     *
+     * @param id The ID of the node
+     */
+    public void negate(int id) {
+        negated.set(id);
+        granted.clear(id);
+    }
+
+    /**
+     * Lays another set over this one, so every node in the other set takes its value from there.
+     *
+     * @param other The set to lay on top
+     */
+    public void overlay(NodeSet other) {
+        granted.andNot(other.negated);
+        granted.or(other.granted);
+        negated.andNot(other.granted);
+        negated.or(other.negated);
+    }
+
+    /**
+     * Gets the value of a node.
+     *
+     * @param id The ID of the node
+     * @return True if granted, false if negated, or null if not in the set
+     */
+    public Boolean get(int id) {
+        if (granted.get(id)) {
+            return true;
+        }
+        return negated.get(id) ? false : null;
+    }
+
+    /**
+     * Checks if the set has no nodes.
+     *
+     * @return Whether the set is empty
+     */
+    public boolean isEmpty() {
+        return granted.isEmpty() && negated.isEmpty();
+    }
+
+    /**
+     * Gets the number of nodes in the set.
+     *
+     * @return The number of granted and negated nodes
+     */
+    public int size() {
+        return granted.cardinality() + negated.cardinality();
+    }
+
+    /**
+     * Writes every node of the set into a map, overriding existing values.
+     *
+     * @param target The map to write into
+     * @param dictionary The dictionary the IDs belong to
+     */
+    public void writeTo(Map<String, Boolean> target, NodeDictionary dictionary) {
+        for (int id = granted.nextSetBit(0); id >= 0; id = granted.nextSetBit(id + 1)) {
+            target.put(dictionary.get(id), true);
+        }
+        for (int id = negated.nextSetBit(0); id >= 0; id = negated.nextSetBit(id + 1)) {
+            target.put(dictionary.get(id), false);
+        }
+    }
+
+    /**
+     * Converts the set into a map of nodes to values.
+     *
+     * @param dictionary The dictionary the IDs belong to
+     * @return A new map with every node of the set
+     */
+    public Map<String, Boolean> toMap(NodeDictionary dictionary) {
+        Map<String, Boolean> map = new LinkedHashMap<>();
+        writeTo(map, dictionary);
+        return map;
+    }
+}
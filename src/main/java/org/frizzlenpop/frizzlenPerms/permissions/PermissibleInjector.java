@@ -0,0 +1,115 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.PermissionAttachment;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Swaps the {@link PermissibleBase} of a player for a {@link FrizzlenPermissible} and back.
+ * The permissible lives in a private field of the server's human entity implementation,
+ * so it is located through reflection by type rather than by name.
+ */
+public final class PermissibleInjector {
+
+    private PermissibleInjector() {
+    }
+
+    /**
+     * Injects a FrizzlenPermissible into a player.
+     *
+     * @param player The player
+     * @return The injected permissible, or null if injection is not possible on this server
+     */
+    public static FrizzlenPermissible inject(Player player) {
+        Field field = findPermissibleField(player.getClass());
+        if (field == null) {
+            return null;
+        }
+
+        try {
+            Object current = field.get(player);
+            if (current instanceof FrizzlenPermissible) {
+                return (FrizzlenPermissible) current;
+            }
+
+            PermissibleBase original = (PermissibleBase) current;
+            FrizzlenPermissible permissible = new FrizzlenPermissible(player, original);
+            transferAttachments(original, permissible);
+            field.set(player, permissible);
+            permissible.recalculatePermissions();
+            return permissible;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Restores the original permissible of a player.
+     *
+     * @param player The player
+     */
+    public static void uninject(Player player) {
+        Field field = findPermissibleField(player.getClass());
+        if (field == null) {
+            return;
+        }
+
+        try {
+            Object current = field.get(player);
+            if (current instanceof FrizzlenPermissible) {
+                FrizzlenPermissible permissible = (FrizzlenPermissible) current;
+                PermissibleBase original = permissible.getOriginal();
+                transferAttachments(permissible, original);
+                field.set(player, original);
+                original.recalculatePermissions();
+            }
+        } catch (IllegalAccessException ignored) {
+            // Nothing to restore
+        }
+    }
+
+    /**
+     * Moves attachments added by other plugins from one permissible to another.
+     *
+     * @param from The permissible being replaced
+     * @param to The permissible taking its place
+     */
+    @SuppressWarnings("unchecked")
+    private static void transferAttachments(PermissibleBase from, PermissibleBase to) {
+        try {
+            Field field = PermissibleBase.class.getDeclaredField("attachments");
+            field.setAccessible(true);
+            List<PermissionAttachment> source = (List<PermissionAttachment>) field.get(from);
+            List<PermissionAttachment> target = (List<PermissionAttachment>) field.get(to);
+            target.addAll(source);
+            source.clear();
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Attachments of other plugins are lost, they will be re-added on their next update
+        }
+    }
+
+    /**
+     * Finds the permissible field in a class hierarchy.
+     *
+     * @param type The runtime class of the player
+     * @return The accessible field, or null if none was found
+     */
+    private static Field findPermissibleField(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (PermissibleBase.class.isAssignableFrom(field.getType())) {
+                    try {
+                        field.setAccessible(true);
+                        return field;
+                    } catch (RuntimeException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
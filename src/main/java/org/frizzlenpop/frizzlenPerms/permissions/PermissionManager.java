@@ -2,29 +2,65 @@ package org.frizzlenpop.frizzlenPerms.permissions;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionAttachment;
 import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
 import org.frizzlenpop.frizzlenPerms.data.DataManager;
 import org.frizzlenpop.frizzlenPerms.models.PlayerData;
 import org.frizzlenpop.frizzlenPerms.models.Rank;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages player permissions and attachments.
  */
 public class PermissionManager {
 
+    private static final int LOCK_STRIPES = 64;
+
     private final FrizzlenPerms plugin;
     private final DataManager dataManager;
     private final Map<UUID, PermissionAttachment> attachments;
-    private final Object permissionLock = new Object();
+    private final Map<UUID, ResolvedPermissions> appliedPermissions;
+    private final Map<UUID, PlayerLayers> playerLayers;
+    private final Map<UUID, ContextSet> appliedContexts;
+    private final Map<UUID, FrizzlenPermissible> permissibles;
+    private final NodeDictionary nodeDictionary;
+    private final InheritanceGraph inheritanceGraph;
+    private final CompiledRankRegistry compiledRanks;
+    private final SharedPermissionCache sharedPermissions;
+    private final RecalculationScheduler recalculationScheduler;
+    private final RankHolderIndex rankHolders;
+    private final ExpiryScheduler expiryScheduler;
+    private final PermissionResolver permissionResolver;
+    private final ContextManager contextManager;
+    private final Map<UUID, Long> setupSequence;
+    private final Map<UUID, Long> appliedSequence;
+    private final AtomicLong setupCounter = new AtomicLong();
+    private final SetupTimings setupTimings;
+    // Applies and removals only run on the main thread now, so these stripes are never contended
+    private final StripedLock playerLocks = new StripedLock(LOCK_STRIPES);
+    private final ExecutorService resolveExecutor;
+    private volatile Set<String> registeredNodes = Collections.emptySet();
 
     /**
      * Creates a new PermissionManager instance.
@@ -36,12 +72,38 @@ public class PermissionManager {
         this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
         this.dataManager = Objects.requireNonNull(dataManager, "DataManager cannot be null");
         this.attachments = new ConcurrentHashMap<>();
+        this.appliedPermissions = new ConcurrentHashMap<>();
+        this.playerLayers = new ConcurrentHashMap<>();
+        this.appliedContexts = new ConcurrentHashMap<>();
+        this.permissibles = new ConcurrentHashMap<>();
+        this.nodeDictionary = new NodeDictionary();
+        this.inheritanceGraph = new InheritanceGraph(() -> dataManager.getAllRanks().values());
+        this.compiledRanks = new CompiledRankRegistry(dataManager, nodeDictionary, inheritanceGraph);
+        this.sharedPermissions = new SharedPermissionCache(compiledRanks, nodeDictionary, this::getRegisteredPermissionNodes);
+        this.recalculationScheduler = new RecalculationScheduler(plugin, this);
+        this.rankHolders = new RankHolderIndex();
+        this.expiryScheduler = new ExpiryScheduler(plugin, dataManager);
+        this.contextManager = new ContextManager(plugin);
+        this.permissionResolver = new PermissionResolver(plugin, dataManager, this);
+        this.setupSequence = new ConcurrentHashMap<>();
+        this.appliedSequence = new ConcurrentHashMap<>();
+        this.setupTimings = new SetupTimings();
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.resolveExecutor = Executors.newFixedThreadPool(Math.max(1, plugin.getConfigManager().getResolverThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "FrizzlenPerms-Resolver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * Initializes the permission manager.
      */
     public void initialize() {
+        refreshRegisteredPermissionNodes();
+        recalculationScheduler.start();
+        expiryScheduler.start();
         plugin.getLogger().info("Permission manager initialized.");
     }
 
@@ -49,6 +111,10 @@ public class PermissionManager {
      * Cleans up resources when the plugin is disabled.
      */
     public void cleanup() {
+        recalculationScheduler.shutdown();
+        resolveExecutor.shutdownNow();
+        expiryScheduler.shutdown();
+        
         // Remove all permission attachments
         for (PermissionAttachment attachment : attachments.values()) {
             if (attachment != null) {
@@ -56,10 +122,80 @@ public class PermissionManager {
             }
         }
         attachments.clear();
+        appliedPermissions.clear();
+        
+        // Restore the original permissibles of online players
+        for (FrizzlenPermissible permissible : permissibles.values()) {
+            PermissibleInjector.uninject(permissible.getPlayer());
+        }
+        permissibles.clear();
+        rankHolders.clear();
+        setupSequence.clear();
+        appliedSequence.clear();
+        playerLayers.clear();
+        appliedContexts.clear();
+        
+        invalidateAllRanks();
+    }
+
+    /**
+     * Injects a FrizzlenPermissible into a player if injection is enabled in the config.
+     * Must be called before other plugins add attachments, ideally at login.
+     *
+     * @param player The player
+     */
+    public void injectPermissible(Player player) {
+        if (player == null || !plugin.getConfigManager().isPermissibleInjectionEnabled()) {
+            return;
+        }
+
+        FrizzlenPermissible permissible = PermissibleInjector.inject(player);
+        if (permissible == null) {
+            plugin.getLogger().warning("Could not inject permissible for " + player.getName() + ", falling back to attachments.");
+            return;
+        }
+        permissibles.put(player.getUniqueId(), permissible);
+    }
+
+    /**
+     * Forgets the permissible injected into a player whose login was disallowed, since
+     * the player never joins and so never quits. The permissible of an online player
+     * with the same UUID is kept.
+     *
+     * @param player The player whose login was disallowed
+     */
+    public void discardPermissible(Player player) {
+        if (player == null) {
+            return;
+        }
+
+        FrizzlenPermissible permissible = permissibles.get(player.getUniqueId());
+        if (permissible != null && permissible.getPlayer() == player) {
+            permissibles.remove(player.getUniqueId(), permissible);
+        }
+    }
+
+    /**
+     * Gets the injected permissible of a player.
+     *
+     * @param uuid The UUID of the player
+     * @return The injected permissible, or null if none is injected
+     */
+    public FrizzlenPermissible getPermissible(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return permissibles.get(uuid);
     }
 
     /**
      * Sets up permissions for a player.
+     * Permissions are resolved on the resolver threads into an immutable result, which is then
+     * applied on the main thread within the recalculation budget. The player's attachment is
+     * kept in place and only nodes that changed since the last setup are applied to it. If another
+     * setup for the same player is started before this one is applied, only the latest result is applied.
+     * Called off the main thread, the player is marked for a setup on the main thread next tick,
+     * since their contexts can only be read there.
      *
      * @param player The player
      */
@@ -69,39 +205,170 @@ public class PermissionManager {
         }
 
         UUID uuid = player.getUniqueId();
+        if (!Bukkit.isPrimaryThread()) {
+            recalculationScheduler.markDirty(uuid);
+            return;
+        }
         
-        synchronized (permissionLock) {
-            // Remove existing attachment if present
-            removeAttachment(uuid);
-            
-            // Create new attachment
-            PermissionAttachment attachment = player.addAttachment(plugin);
-            attachments.put(uuid, attachment);
-            
-            // Get player data
-            PlayerData playerData = dataManager.getPlayerData(uuid);
-            if (playerData == null) {
+        ContextSet contexts = contextManager.getContexts(player);
+        // Commands change the cached data on this thread, so the resolver gets its own copy
+        PlayerData cached = dataManager.getCachedPlayerData(uuid);
+        PlayerData playerData = cached != null ? cached.copy() : null;
+        long sequence = setupCounter.incrementAndGet();
+        setupSequence.put(uuid, sequence);
+        
+        try {
+            resolveExecutor.execute(() -> resolve(player, playerData, contexts, sequence));
+        } catch (RejectedExecutionException e) {
+            // The manager was cleaned up, there is nothing to apply to anymore
+        }
+    }
+
+    /**
+     * Resolves the permissions of a player on a resolver thread and hands the result
+     * to the recalculation scheduler to be applied.
+     *
+     * A player whose data was not cached yet is loaded here and set up again on the main thread,
+     * which copies the now cached data.
+     *
+     * @param player The player
+     * @param playerData A copy of the player's data taken on the main thread, or null if it was not cached
+     * @param contexts The contexts captured on the main thread
+     * @param sequence The setup sequence number
+     */
+    private void resolve(Player player, PlayerData playerData, ContextSet contexts, long sequence) {
+        UUID uuid = player.getUniqueId();
+        if (playerData == null) {
+            if (dataManager.getPlayerData(uuid) != null) {
+                recalculationScheduler.markDirty(uuid);
+            } else {
                 plugin.getLogger().warning("Could not find player data for " + player.getName() + " when setting up permissions.");
+            }
+            return;
+        }
+        
+        PlayerLayers layers;
+        ResolvedPermissions resolved;
+        long start = System.nanoTime();
+        try {
+            layers = parseLayers(playerData);
+            resolved = resolvePermissions(layers, contexts);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error resolving permissions for " + player.getName(), e);
+            return;
+        }
+        long resolveNanos = System.nanoTime() - start;
+        
+        recalculationScheduler.submitApply(() -> applyPermissions(player, layers, contexts, resolved, sequence, resolveNanos));
+    }
+
+    /**
+     * Recalculates a player's contexts, such as their world or gamemode, and swaps their
+     * contextual layers if any context changed. The rank side comes from the shared cache,
+     * which holds each rank combination per context set precompiled, and the player's own
+     * layers were parsed at the last setup, so only the contextual layers differ. Applying the
+     * result as a diff removes the old contexts' nodes and adds the new contexts' nodes.
+     * Falls back to a full setup if no layers are cached, a temporary node expired since, or
+     * a setup is still pending, whose newer data the cached layers would otherwise supersede.
+     * Must be called on the main thread.
+     *
+     * @param player The player
+     */
+    public void updateContexts(Player player) {
+        if (player == null) {
+            return;
+        }
+
+        UUID uuid = player.getUniqueId();
+        PlayerLayers layers = playerLayers.get(uuid);
+        Long latest = setupSequence.get(uuid);
+        if (layers == null || !layers.isValid(System.currentTimeMillis())
+                || latest == null || !latest.equals(appliedSequence.get(uuid))) {
+            setupPermissions(player);
+            return;
+        }
+        
+        ContextSet contexts = contextManager.getContexts(player);
+        if (contexts.equals(appliedContexts.get(uuid))) {
+            return;
+        }
+        
+        long sequence = setupCounter.incrementAndGet();
+        setupSequence.put(uuid, sequence);
+        
+        long start = System.nanoTime();
+        ResolvedPermissions resolved = resolvePermissions(layers, contexts);
+        applyPermissions(player, layers, contexts, resolved, sequence, System.nanoTime() - start);
+    }
+
+    /**
+     * Applies resolved permissions to a player. Must be called on the main thread.
+     *
+     * @param player The player
+     * @param layers The parsed layers the permissions were resolved from
+     * @param contexts The contexts the permissions were resolved for
+     * @param resolved The resolved permissions
+     * @param sequence The setup sequence number the permissions were resolved for
+     * @param resolveNanos The time spent resolving, for the timing breakdown
+     */
+    private void applyPermissions(Player player, PlayerLayers layers, ContextSet contexts, ResolvedPermissions resolved,
+                                  long sequence, long resolveNanos) {
+        UUID uuid = player.getUniqueId();
+        
+        synchronized (playerLocks.get(uuid)) {
+            // Drop results superseded by a newer setup or for players that already left
+            Long latest = setupSequence.get(uuid);
+            if (latest == null || latest != sequence || !player.isOnline()) {
                 return;
             }
             
+            long start = System.nanoTime();
+            
+            // Index here rather than while resolving, so a player who quit in between is not indexed again
+            indexRanks(uuid, layers.getRanks());
+            
+            // Reuse the existing attachment unless it belongs to a stale player instance
+            PermissionAttachment attachment = attachments.get(uuid);
+            if (attachment != null && attachment.getPermissible() != player) {
+                removeAttachment(uuid);
+                attachment = null;
+            }
+            
+            ResolvedPermissions applied = appliedPermissions.get(uuid);
+            if (attachment == null) {
+                attachment = player.addAttachment(plugin);
+                attachments.put(uuid, attachment);
+                applied = null;
+            }
+            
             try {
-                // Apply rank permissions
-                applyRankPermissions(playerData, attachment);
-                
-                // Apply player-specific permissions
-                applyPlayerPermissions(playerData, attachment);
-                
-                // Apply world-specific permissions
-                applyWorldPermissions(playerData, attachment, player.getWorld().getName());
-                
-                // Apply temporary permissions
-                applyTemporaryPermissions(playerData, attachment);
+                // Apply only the nodes that changed, with wildcards expanded, then recalculate once
+                int changes;
+                if (applied != null && applied.getRoot() == resolved.getRoot()) {
+                    // Same rank permissions underneath, so only the player's own nodes can differ
+                    changes = applyOverlayDiff(attachment, applied, resolved);
+                } else {
+                    Map<String, Boolean> previous = applied != null ? applied.getEffectivePermissions() : Collections.emptyMap();
+                    changes = AttachmentAccessor.applyDiff(attachment, previous, resolved.getEffectivePermissions());
+                }
+                appliedPermissions.put(uuid, resolved);
+                appliedSequence.put(uuid, sequence);
+                playerLayers.put(uuid, layers);
+                appliedContexts.put(uuid, contexts);
+                if (changes > 0) {
+                    player.recalculatePermissions();
+                }
                 
-                // Recalculate permissions
-                player.recalculatePermissions();
+                // Swap the resolved permissions into the injected permissible, if any
+                FrizzlenPermissible permissible = permissibles.get(uuid);
+                if (permissible != null && permissible.getPlayer() == player) {
+                    permissible.setPermissions(resolved);
+                }
                 
-                plugin.getLogger().fine("Set up permissions for " + player.getName());
+                long applyNanos = System.nanoTime() - start;
+                setupTimings.record(resolveNanos, applyNanos);
+                plugin.getLogger().fine("Set up permissions for " + player.getName() + " (" + changes + " nodes changed, resolve "
+                        + resolveNanos / 1000 + "us async, apply " + applyNanos / 1000 + "us main)");
             } catch (Exception e) {
                 plugin.getLogger().log(Level.SEVERE, "Error setting up permissions for " + player.getName(), e);
             }
@@ -109,167 +376,348 @@ public class PermissionManager {
     }
 
     /**
-     * Applies rank permissions to a player.
+     * Applies the difference between two results layered on the same rank permissions.
+     * Only the nodes either result overlays can differ, so the rank permissions are not compared.
      *
-     * @param playerData The player data
      * @param attachment The permission attachment
+     * @param applied The permissions currently applied
+     * @param resolved The permissions that should be applied
+     * @return The number of nodes that were added, removed or flipped
      */
-    private void applyRankPermissions(PlayerData playerData, PermissionAttachment attachment) {
-        // Apply permissions from primary rank
-        if (playerData.getPrimaryRank() != null) {
-            Rank rank = dataManager.getRank(playerData.getPrimaryRank());
-            if (rank != null) {
-                applyRankPermissionsRecursive(rank, attachment);
-            }
-        }
+    private static int applyOverlayDiff(PermissionAttachment attachment, ResolvedPermissions applied,
+                                        ResolvedPermissions resolved) {
+        Map<String, Boolean> root = resolved.getRoot().getEffectivePermissions();
+        Set<String> nodes = new HashSet<>(applied.getOverlay().keySet());
+        nodes.addAll(resolved.getOverlay().keySet());
         
-        // Apply permissions from secondary ranks
-        for (String rankName : playerData.getSecondaryRanks()) {
-            Rank rank = dataManager.getRank(rankName);
-            if (rank != null) {
-                applyRankPermissionsRecursive(rank, attachment);
+        Map<String, Boolean> previous = new HashMap<>();
+        Map<String, Boolean> next = new HashMap<>();
+        for (String node : nodes) {
+            Boolean before = applied.getOverlay().getOrDefault(node, root.get(node));
+            if (before != null) {
+                previous.put(node, before);
+            }
+            Boolean after = resolved.getOverlay().getOrDefault(node, root.get(node));
+            if (after != null) {
+                next.put(node, after);
             }
         }
+        return AttachmentAccessor.applyDiff(attachment, previous, next);
     }
 
     /**
-     * Recursively applies rank permissions including inherited ranks.
+     * Parses the permission layers of a player as of now.
      *
-     * @param rank The rank
-     * @param attachment The permission attachment
+     * @param playerData The player data
+     * @return The parsed layers
      */
-    private void applyRankPermissionsRecursive(Rank rank, PermissionAttachment attachment) {
-        // Apply permissions from this rank
-        for (String permission : rank.getPermissions()) {
-            if (permission.startsWith("-")) {
-                // Negative permission
-                attachment.setPermission(permission.substring(1), false);
-            } else {
-                // Positive permission
-                attachment.setPermission(permission, true);
-            }
+    PlayerLayers parseLayers(PlayerData playerData) {
+        long currentTime = System.currentTimeMillis();
+        return PlayerLayers.from(playerData, getActiveRanks(playerData, currentTime), currentTime, nodeDictionary);
+    }
+
+    /**
+     * Resolves the effective permissions of a player in a set of contexts.
+     * Players without personal overrides receive the shared permissions for their rank combination as-is,
+     * others a result layered on top of them.
+     *
+     * @param layers The parsed layers of the player
+     * @param contexts The contexts
+     * @return The resolved permissions
+     */
+    ResolvedPermissions resolvePermissions(PlayerLayers layers, ContextSet contexts) {
+        // Rank permissions, shared between all players with the same ranks and contexts
+        ResolvedPermissions shared = sharedPermissions.get(layers.getRanks(), contexts);
+        if (!layers.hasPersonalPermissions(contexts)) {
+            return shared;
         }
         
-        // Apply permissions from inherited ranks
-        for (String inheritedRankName : rank.getInheritance()) {
-            Rank inheritedRank = dataManager.getRank(inheritedRankName);
-            if (inheritedRank != null && !inheritedRank.getName().equals(rank.getName())) { // Prevent circular inheritance
-                applyRankPermissionsRecursive(inheritedRank, attachment);
-            }
-        }
+        // Lay player-specific, contextual and temporary permissions over the shared ones
+        return layers.resolve(shared, contexts, getRegisteredPermissionNodes());
     }
 
     /**
-     * Applies player-specific permissions.
+     * Resolves the effective permissions of a player from their data, without applying them.
+     * Safe to call from any thread, as long as the data is not changed meanwhile.
      *
      * @param playerData The player data
-     * @param attachment The permission attachment
+     * @param contexts The contexts
+     * @return The resolved permissions
      */
-    private void applyPlayerPermissions(PlayerData playerData, PermissionAttachment attachment) {
-        for (String permission : playerData.getPermissions()) {
-            if (permission.startsWith("-")) {
-                // Negative permission
-                attachment.setPermission(permission.substring(1), false);
-            } else {
-                // Positive permission
-                attachment.setPermission(permission, true);
-            }
+    public ResolvedPermissions resolvePermissions(PlayerData playerData, ContextSet contexts) {
+        return resolvePermissions(parseLayers(playerData), contexts);
+    }
+
+    /**
+     * Gets the names of all permissions registered on the server.
+     * Wildcards are expanded against these nodes for the attachment.
+     *
+     * @return A snapshot of the registered permission names, safe to read from any thread
+     */
+    private Collection<String> getRegisteredPermissionNodes() {
+        return registeredNodes;
+    }
+
+    /**
+     * Refreshes the snapshot of registered permission names if plugins registered or
+     * unregistered permissions since the last refresh. Compares the names, not just their
+     * number, so a plugin swapping one permission for another is noticed as well. When the
+     * names changed, every online player is queued for recalculation, so wildcards granted
+     * before a plugin loaded cover its nodes.
+     * Reading the registered permissions copies them, so this runs at startup and on the
+     * recalculation tick after plugins were enabled or disabled, see {@link RecalculationScheduler}.
+     * Must be called on the main thread.
+     */
+    void refreshRegisteredPermissionNodes() {
+        Set<Permission> registered = Bukkit.getPluginManager().getPermissions();
+        Set<String> current = registeredNodes;
+        if (registered.size() == current.size() && containsAllNames(current, registered)) {
+            return;
         }
+
+        Set<String> nodes = new HashSet<>(registered.size() * 2);
+        for (Permission permission : registered) {
+            nodes.add(permission.getName());
+        }
+        registeredNodes = Collections.unmodifiableSet(nodes);
+        // Shared sets and attachments expanded against the old snapshot are stale
+        sharedPermissions.invalidateAll();
+        recalculationScheduler.scheduleAll(Bukkit.getOnlinePlayers());
     }
 
     /**
-     * Applies world-specific permissions.
+     * Checks if every permission is in a snapshot of names. Registered names are unique,
+     * so with equal sizes this means the snapshot is current.
      *
-     * @param playerData The player data
-     * @param attachment The permission attachment
-     * @param worldName The world name
-     */
-    private void applyWorldPermissions(PlayerData playerData, PermissionAttachment attachment, String worldName) {
-        // Apply world-specific permissions from player data
-        Map<String, Set<String>> worldPermissionsMap = playerData.getWorldPermissions();
-        if (worldPermissionsMap.containsKey(worldName)) {
-            for (String permission : worldPermissionsMap.get(worldName)) {
-                if (permission.startsWith("-")) {
-                    // Negative permission
-                    attachment.setPermission(permission.substring(1), false);
-                } else {
-                    // Positive permission
-                    attachment.setPermission(permission, true);
-                }
+     * @param names The snapshot of names
+     * @param permissions The registered permissions
+     * @return True if every permission name is in the snapshot
+     */
+    private static boolean containsAllNames(Set<String> names, Set<Permission> permissions) {
+        for (Permission permission : permissions) {
+            if (!names.contains(permission.getName())) {
+                return false;
             }
         }
-        
-        // Apply world-specific permissions from ranks
-        if (playerData.getPrimaryRank() != null) {
-            Rank rank = dataManager.getRank(playerData.getPrimaryRank());
-            if (rank != null) {
-                Map<String, Set<String>> rankWorldPerms = rank.getWorldPermissions();
-                if (rankWorldPerms.containsKey(worldName)) {
-                    for (String permission : rankWorldPerms.get(worldName)) {
-                        if (permission.startsWith("-")) {
-                            // Negative permission
-                            attachment.setPermission(permission.substring(1), false);
-                        } else {
-                            // Positive permission
-                            attachment.setPermission(permission, true);
-                        }
-                    }
-                }
-            }
+        return true;
+    }
+
+    /**
+     * Gets the timing breakdown of permission setups.
+     *
+     * @return The setup timings
+     */
+    public SetupTimings getSetupTimings() {
+        return setupTimings;
+    }
+
+    /**
+     * Checks a permission against the resolved permissions of an online player,
+     * resolving wildcards and negations without going through Bukkit.
+     *
+     * @param uuid The UUID of the player
+     * @param permission The permission node
+     * @return True if the permission is granted by FrizzlenPerms
+     */
+    public boolean hasPermission(UUID uuid, String permission) {
+        ResolvedPermissions resolved = getResolvedPermissions(uuid);
+        if (resolved == null || permission == null) {
+            return false;
         }
-        
-        // Apply world-specific permissions from secondary ranks
-        for (String rankName : playerData.getSecondaryRanks()) {
-            Rank rank = dataManager.getRank(rankName);
-            if (rank != null) {
-                Map<String, Set<String>> rankWorldPerms = rank.getWorldPermissions();
-                if (rankWorldPerms.containsKey(worldName)) {
-                    for (String permission : rankWorldPerms.get(worldName)) {
-                        if (permission.startsWith("-")) {
-                            // Negative permission
-                            attachment.setPermission(permission.substring(1), false);
-                        } else {
-                            // Positive permission
-                            attachment.setPermission(permission, true);
-                        }
+        return Boolean.TRUE.equals(resolved.resolve(permission));
+    }
+
+    /**
+     * Checks many permissions for many online players at once.
+     * Each player is resolved against the permissions last applied to them. Players sharing
+     * a rank combination without personal nodes share one resolved set, so every distinct set
+     * is checked against the permissions only once and its row copied to the other players.
+     * Players who are offline or not set up yet get an empty row.
+     *
+     * @param uuids The UUIDs of the players
+     * @param permissions The permission nodes
+     * @return The result matrix, with duplicates and nulls removed from both axes
+     */
+    public PermissionMatrix queryPermissions(Collection<UUID> uuids, Collection<String> permissions) {
+        Objects.requireNonNull(uuids, "UUIDs cannot be null");
+        Objects.requireNonNull(permissions, "Permissions cannot be null");
+
+        Set<UUID> uniquePlayers = new LinkedHashSet<>(uuids);
+        uniquePlayers.remove(null);
+        Set<String> uniquePermissions = new LinkedHashSet<>(permissions);
+        uniquePermissions.remove(null);
+        List<UUID> players = new ArrayList<>(uniquePlayers);
+        List<String> nodes = new ArrayList<>(uniquePermissions);
+
+        int columns = nodes.size();
+        BitSet granted = new BitSet(players.size() * columns);
+        BitSet resolvedRows = new BitSet(players.size());
+        Map<ResolvedPermissions, BitSet> rows = new IdentityHashMap<>();
+        for (int row = 0; row < players.size(); row++) {
+            ResolvedPermissions resolved = appliedPermissions.get(players.get(row));
+            if (resolved == null) {
+                continue;
+            }
+            resolvedRows.set(row);
+
+            BitSet bits = rows.computeIfAbsent(resolved, key -> {
+                BitSet result = new BitSet(columns);
+                for (int column = 0; column < columns; column++) {
+                    if (Boolean.TRUE.equals(key.resolve(nodes.get(column)))) {
+                        result.set(column);
                     }
                 }
+                return result;
+            });
+            int offset = row * columns;
+            for (int column = bits.nextSetBit(0); column >= 0; column = bits.nextSetBit(column + 1)) {
+                granted.set(offset + column);
             }
         }
+
+        return new PermissionMatrix(players, nodes, granted, resolvedRows);
+    }
+
+    /**
+     * Gets the contexts an online player's permissions were last resolved for.
+     *
+     * @param uuid The UUID of the player
+     * @return The contexts, or null if no permissions were applied
+     */
+    public ContextSet getContexts(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return appliedContexts.get(uuid);
+    }
+
+    /**
+     * Gets the context manager, where custom context calculators are registered.
+     *
+     * @return The context manager
+     */
+    public ContextManager getContextManager() {
+        return contextManager;
+    }
+
+    /**
+     * Gets the resolved permissions last applied to an online player.
+     *
+     * @param uuid The UUID of the player
+     * @return The resolved permissions, or null if none were applied
+     */
+    public ResolvedPermissions getResolvedPermissions(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return appliedPermissions.get(uuid);
     }
 
     /**
-     * Applies temporary permissions.
+     * Gets the ranks a player currently holds, including unexpired temporary ranks.
      *
      * @param playerData The player data
-     * @param attachment The permission attachment
+     * @param currentTime The current time in milliseconds
+     * @return The names of the active ranks
      */
-    private void applyTemporaryPermissions(PlayerData playerData, PermissionAttachment attachment) {
-        long currentTime = System.currentTimeMillis();
-        
-        // Apply temporary permissions that haven't expired
-        for (Map.Entry<String, Long> entry : playerData.getTemporaryPermissions().entrySet()) {
-            if (entry.getValue() > currentTime) {
-                String permission = entry.getKey();
-                if (permission.startsWith("-")) {
-                    // Negative permission
-                    attachment.setPermission(permission.substring(1), false);
-                } else {
-                    // Positive permission
-                    attachment.setPermission(permission, true);
-                }
-            }
+    private List<String> getActiveRanks(PlayerData playerData, long currentTime) {
+        List<String> ranks = new ArrayList<>();
+        if (playerData.getPrimaryRank() != null) {
+            ranks.add(playerData.getPrimaryRank());
         }
-        
-        // Apply temporary ranks that haven't expired
+        ranks.addAll(playerData.getSecondaryRanks());
         for (Map.Entry<String, Long> entry : playerData.getTemporaryRanks().entrySet()) {
             if (entry.getValue() > currentTime) {
-                Rank rank = dataManager.getRank(entry.getKey());
-                if (rank != null) {
-                    applyRankPermissionsRecursive(rank, attachment);
-                }
+                ranks.add(entry.getKey());
             }
         }
+        return ranks;
+    }
+
+    /**
+     * Updates the inheritance graph after a rank was saved. Must be called before the rank is invalidated.
+     *
+     * @param rank The saved rank
+     */
+    public void updateInheritance(Rank rank) {
+        if (rank != null) {
+            inheritanceGraph.setParents(rank.getName(), rank.getInheritance());
+        }
+    }
+
+    /**
+     * Removes a deleted rank's own edges from the inheritance graph.
+     *
+     * @param rankName The name of the deleted rank
+     */
+    public void removeInheritance(String rankName) {
+        inheritanceGraph.removeRank(rankName);
+    }
+
+    /**
+     * Gets the rank inheritance graph.
+     *
+     * @return The inheritance graph
+     */
+    public InheritanceGraph getInheritanceGraph() {
+        return inheritanceGraph;
+    }
+
+    /**
+     * Invalidates all cached permission state derived from a rank and its descendants.
+     *
+     * @param rankName The name of the changed rank
+     */
+    public void invalidateRank(String rankName) {
+        compiledRanks.invalidate(rankName);
+        sharedPermissions.invalidate(rankName);
+        permissionResolver.invalidateAll();
+    }
+
+    /**
+     * Invalidates all cached permission state derived from ranks.
+     */
+    public void invalidateAllRanks() {
+        inheritanceGraph.invalidateAll();
+        compiledRanks.invalidateAll();
+        sharedPermissions.invalidateAll();
+        permissionResolver.invalidateAll();
+    }
+
+    /**
+     * Gets the compiled rank registry.
+     *
+     * @return The compiled rank registry
+     */
+    public CompiledRankRegistry getCompiledRanks() {
+        return compiledRanks;
+    }
+
+    /**
+     * Gets the resolver for permission checks of offline players and from other threads.
+     *
+     * @return The permission resolver
+     */
+    public PermissionResolver getPermissionResolver() {
+        return permissionResolver;
+    }
+
+    /**
+     * Gets the dictionary that interns permission nodes to IDs.
+     *
+     * @return The node dictionary
+     */
+    public NodeDictionary getNodeDictionary() {
+        return nodeDictionary;
+    }
+
+    /**
+     * Gets the shared permission cache.
+     *
+     * @return The shared permission cache
+     */
+    public SharedPermissionCache getSharedPermissions() {
+        return sharedPermissions;
     }
 
     /**
@@ -290,11 +738,37 @@ public class PermissionManager {
 
     /**
      * Updates permissions for all online players.
+     * The players are queued and recalculated over the following ticks.
      */
     public void updateAllPermissions() {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            setupPermissions(player);
-        }
+        recalculationScheduler.scheduleAll(Bukkit.getOnlinePlayers());
+    }
+
+    /**
+     * Gets the scheduler that removes temporary ranks and permissions when they expire.
+     *
+     * @return The expiry scheduler
+     */
+    public ExpiryScheduler getExpiryScheduler() {
+        return expiryScheduler;
+    }
+
+    /**
+     * Queues a player for recalculation within the per-tick time budget.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void scheduleRecalculation(UUID uuid) {
+        recalculationScheduler.schedule(uuid);
+    }
+
+    /**
+     * Gets the scheduler that spreads mass recalculations over several ticks.
+     *
+     * @return The recalculation scheduler
+     */
+    public RecalculationScheduler getRecalculationScheduler() {
+        return recalculationScheduler;
     }
 
     /**
@@ -320,8 +794,9 @@ public class PermissionManager {
             return;
         }
 
-        synchronized (permissionLock) {
+        synchronized (playerLocks.get(uuid)) {
             PermissionAttachment attachment = attachments.remove(uuid);
+            appliedPermissions.remove(uuid);
             if (attachment != null) {
                 try {
                     attachment.remove();
@@ -355,6 +830,8 @@ public class PermissionManager {
 
     /**
      * Calculates and applies permissions for a player.
+     * The player is marked dirty and recalculated once on the main thread at the start
+     * of the next tick, however many times this is called until then.
      *
      * @param player The player
      */
@@ -363,12 +840,82 @@ public class PermissionManager {
             return;
         }
 
-        // Run on the main thread to avoid ConcurrentModificationException
-        if (!Bukkit.isPrimaryThread()) {
-            Bukkit.getScheduler().runTask(plugin, () -> setupPermissions(player));
-        } else {
-            setupPermissions(player);
+        // Index new rank assignments right away so rank edits in the same tick reach the player,
+        // unless the player already quit and was removed from the index
+        UUID uuid = player.getUniqueId();
+        PlayerData playerData = dataManager.getPlayerData(uuid);
+        if (playerData != null && setupSequence.containsKey(uuid)) {
+            indexRanks(uuid, getActiveRanks(playerData, System.currentTimeMillis()));
+        }
+        recalculationScheduler.markDirty(uuid);
+    }
+
+    /**
+     * Queues every online player holding a rank, directly or through inheritance, for recalculation.
+     *
+     * @param rankName The name of the changed rank
+     */
+    public void scheduleRankHolders(String rankName) {
+        for (UUID uuid : getOnlineHolders(rankName)) {
+            recalculationScheduler.schedule(uuid);
+        }
+    }
+
+    /**
+     * Gets the online players holding a rank, directly or through inheritance.
+     * Holders of every rank that inherits from it are included, even if that inheritance
+     * was added after they were indexed.
+     *
+     * @param rankName The name of the rank
+     * @return The UUIDs of the holders
+     */
+    public Set<UUID> getOnlineHolders(String rankName) {
+        if (rankName == null) {
+            return Collections.emptySet();
+        }
+
+        Set<UUID> holders = new HashSet<>();
+        for (String descendant : inheritanceGraph.getDescendants(rankName)) {
+            holders.addAll(rankHolders.getHolders(descendant));
+        }
+        return holders;
+    }
+
+    /**
+     * Forgets all permission state of a player who left the server.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void removePlayer(UUID uuid) {
+        if (uuid == null) {
+            return;
+        }
+
+        removeAttachment(uuid);
+        permissibles.remove(uuid);
+        rankHolders.remove(uuid);
+        setupSequence.remove(uuid);
+        appliedSequence.remove(uuid);
+        playerLayers.remove(uuid);
+        appliedContexts.remove(uuid);
+    }
+
+    /**
+     * Records the ranks a player holds, including every inherited rank, in the holder index.
+     *
+     * @param uuid The UUID of the player
+     * @param activeRanks The names of the ranks the player holds directly
+     */
+    private void indexRanks(UUID uuid, Collection<String> activeRanks) {
+        Set<String> held = new HashSet<>();
+        for (String rankName : activeRanks) {
+            held.add(rankName);
+            CompiledRank compiledRank = compiledRanks.get(rankName);
+            if (compiledRank != null) {
+                held.addAll(compiledRank.getLineage());
+            }
         }
+        rankHolders.update(uuid, held);
     }
     
     /**
@@ -390,7 +937,7 @@ public class PermissionManager {
             return;
         }
         
-        Rank primaryRank = dataManager.getRank(primaryRankName);
+        Rank primaryRank = dataManager.getRankSnapshot(primaryRankName);
         if (primaryRank == null) {
             return;
         }
@@ -425,7 +972,7 @@ public class PermissionManager {
 
         // Get primary rank suffix
         String suffix = "";
-        Rank primaryRank = plugin.getRankManager().getRank(playerData.getPrimaryRank());
+        Rank primaryRank = dataManager.getRankSnapshot(playerData.getPrimaryRank());
         if (primaryRank != null && primaryRank.getSuffix() != null) {
             suffix = primaryRank.getSuffix();
         }
@@ -451,7 +998,7 @@ public class PermissionManager {
 
         // Get primary rank display name
         String displayName = player.getName();
-        Rank primaryRank = plugin.getRankManager().getRank(playerData.getPrimaryRank());
+        Rank primaryRank = dataManager.getRankSnapshot(playerData.getPrimaryRank());
         if (primaryRank != null && primaryRank.getDisplayName() != null) {
             displayName = primaryRank.getDisplayName().replace("%player%", player.getName());
         }
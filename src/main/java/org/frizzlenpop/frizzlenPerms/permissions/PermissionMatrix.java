@@ -0,0 +1,163 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The result of a bulk permission query: one row per player and one column per permission,
+ * stored as a single bitset. A bit is set if the player has the permission.
+ */
+public final class PermissionMatrix {
+
+    private final List<UUID> players;
+    private final List<String> permissions;
+    private final Map<UUID, Integer> rows;
+    private final Map<String, Integer> columns;
+    private final BitSet granted;
+    private final BitSet resolved;
+
+    /**
+     * Creates a new PermissionMatrix.
+     *
+     * @param players The queried players, in row order, without duplicates
+     * @param permissions The queried permissions, in column order, without duplicates
+     * @param granted The granted bits, at {@code row * permissions.size() + column}
+     * @param resolved The rows of players whose permissions were known
+     */
+    PermissionMatrix(List<UUID> players, List<String> permissions, BitSet granted, BitSet resolved) {
+        this.players = Collections.unmodifiableList(players);
+        this.permissions = Collections.unmodifiableList(permissions);
+        this.granted = granted;
+        this.resolved = resolved;
+
+        this.rows = new HashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            rows.put(players.get(i), i);
+        }
+        this.columns = new HashMap<>();
+        for (int i = 0; i < permissions.size(); i++) {
+            columns.put(permissions.get(i), i);
+        }
+    }
+
+    /**
+     * Gets the queried players in row order.
+     *
+     * @return An unmodifiable list of UUIDs
+     */
+    public List<UUID> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Gets the queried permissions in column order.
+     *
+     * @return An unmodifiable list of permission nodes
+     */
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Checks a cell of the matrix.
+     *
+     * @param row The row of the player
+     * @param column The column of the permission
+     * @return Whether the player has the permission
+     */
+    public boolean has(int row, int column) {
+        return granted.get(row * permissions.size() + column);
+    }
+
+    /**
+     * Checks if a queried player has a queried permission.
+     *
+     * @param uuid The UUID of the player
+     * @param permission The permission node, as it was queried
+     * @return Whether the player has the permission, false if either was not queried
+     */
+    public boolean has(UUID uuid, String permission) {
+        Integer row = rows.get(uuid);
+        Integer column = columns.get(permission);
+        return row != null && column != null && has(row, column);
+    }
+
+    /**
+     * Checks if a queried player has any of the queried permissions.
+     *
+     * @param uuid The UUID of the player
+     * @return Whether the player has at least one permission
+     */
+    public boolean hasAny(UUID uuid) {
+        Integer row = rows.get(uuid);
+        if (row == null) {
+            return false;
+        }
+        int start = row * permissions.size();
+        int next = granted.nextSetBit(start);
+        return next >= 0 && next < start + permissions.size();
+    }
+
+    /**
+     * Checks if a queried player has all of the queried permissions.
+     *
+     * @param uuid The UUID of the player
+     * @return Whether the player has every permission
+     */
+    public boolean hasAll(UUID uuid) {
+        Integer row = rows.get(uuid);
+        if (row == null || !resolved.get(row)) {
+            return false;
+        }
+        int start = row * permissions.size();
+        int next = granted.nextClearBit(start);
+        return next >= start + permissions.size();
+    }
+
+    /**
+     * Checks if the permissions of a queried player were known. Players who are offline
+     * or not set up yet have no permissions in the matrix.
+     *
+     * @param uuid The UUID of the player
+     * @return Whether the player's row was resolved
+     */
+    public boolean isResolved(UUID uuid) {
+        Integer row = rows.get(uuid);
+        return row != null && resolved.get(row);
+    }
+
+    /**
+     * Gets the players that have any of the queried permissions.
+     *
+     * @return The UUIDs of the players, in row order
+     */
+    public List<UUID> getPlayersWithAny() {
+        List<UUID> result = new ArrayList<>();
+        for (UUID uuid : players) {
+            if (hasAny(uuid)) {
+                result.add(uuid);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the players that have all of the queried permissions.
+     *
+     * @return The UUIDs of the players, in row order
+     */
+    public List<UUID> getPlayersWithAll() {
+        List<UUID> result = new ArrayList<>();
+        for (UUID uuid : players) {
+            if (hasAll(uuid)) {
+                result.add(uuid);
+            }
+        }
+        return result;
+    }
+}
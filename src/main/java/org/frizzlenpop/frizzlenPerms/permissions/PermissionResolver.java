@@ -0,0 +1,254 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.Bukkit;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+import org.frizzlenpop.frizzlenPerms.data.DataManager;
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the permissions of any player, online or offline, without blocking the caller.
+ * Player data is copied on the main thread or loaded off it, and resolved off the main thread
+ * against the compiled rank snapshots and the shared permission cache, exactly like a join
+ * would. Offline players are not kept in the player data cache. Results are cached per player
+ * and context set for a short time, and concurrent queries for the same player share one load.
+ */
+public class PermissionResolver {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final FrizzlenPerms plugin;
+    private final DataManager dataManager;
+    private final PermissionManager permissionManager;
+    private final Map<UUID, Map<ContextSet, Entry>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new PermissionResolver.
+     *
+     * @param plugin The plugin instance
+     * @param dataManager The data manager
+     * @param permissionManager The permission manager
+     */
+    public PermissionResolver(FrizzlenPerms plugin, DataManager dataManager, PermissionManager permissionManager) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+        this.dataManager = Objects.requireNonNull(dataManager, "DataManager cannot be null");
+        this.permissionManager = Objects.requireNonNull(permissionManager, "PermissionManager cannot be null");
+    }
+
+    /**
+     * Checks if a player has a permission, resolving wildcards and negations.
+     *
+     * @param uuid The UUID of the player
+     * @param permission The permission node
+     * @param worldName The world to check in, or null to ignore world-specific permissions
+     * @return A future completed with true if the permission is granted, false otherwise
+     */
+    public CompletableFuture<Boolean> hasPermission(UUID uuid, String permission, String worldName) {
+        Objects.requireNonNull(permission, "Permission cannot be null");
+        return resolve(uuid, worldName)
+                .thenApply(resolved -> resolved != null && Boolean.TRUE.equals(resolved.resolve(permission)));
+    }
+
+    /**
+     * Checks if a player has a permission in a set of contexts, resolving wildcards and negations.
+     *
+     * @param uuid The UUID of the player
+     * @param permission The permission node
+     * @param contexts The contexts to check in
+     * @return A future completed with true if the permission is granted, false otherwise
+     */
+    public CompletableFuture<Boolean> hasPermission(UUID uuid, String permission, ContextSet contexts) {
+        Objects.requireNonNull(permission, "Permission cannot be null");
+        return resolve(uuid, contexts)
+                .thenApply(resolved -> resolved != null && Boolean.TRUE.equals(resolved.resolve(permission)));
+    }
+
+    /**
+     * Resolves the permissions of a player in a world, with the server context from the config.
+     * For online players checked without a world, the permissions applied to them are returned directly.
+     *
+     * @param uuid The UUID of the player
+     * @param worldName The world to resolve for, or null to ignore world-specific permissions
+     * @return A future completed with the resolved permissions, or null if the player is unknown
+     */
+    public CompletableFuture<ResolvedPermissions> resolve(UUID uuid, String worldName) {
+        Objects.requireNonNull(uuid, "UUID cannot be null");
+
+        if (worldName == null) {
+            ResolvedPermissions applied = permissionManager.getResolvedPermissions(uuid);
+            if (applied != null) {
+                return CompletableFuture.completedFuture(applied);
+            }
+        }
+        return resolve(uuid, permissionManager.getContextManager().getStaticContexts(worldName));
+    }
+
+    /**
+     * Resolves the permissions of a player in a set of contexts.
+     *
+     * @param uuid The UUID of the player
+     * @param contexts The contexts to resolve for
+     * @return A future completed with the resolved permissions, or null if the player is unknown
+     */
+    public CompletableFuture<ResolvedPermissions> resolve(UUID uuid, ContextSet contexts) {
+        Objects.requireNonNull(uuid, "UUID cannot be null");
+        Objects.requireNonNull(contexts, "Contexts cannot be null");
+
+        long now = System.currentTimeMillis();
+        Map<ContextSet, Entry> entries = cache.get(uuid);
+        Entry entry = entries != null ? entries.get(contexts) : null;
+        if (entry != null && now < entry.expiresAt) {
+            return entry.future;
+        }
+
+        if (cache.size() > PURGE_THRESHOLD) {
+            purge(now);
+        }
+
+        Entry created = new Entry();
+        Entry current = cache.computeIfAbsent(uuid, u -> new ConcurrentHashMap<>())
+                .compute(contexts, (c, existing) -> existing != null && now < existing.expiresAt ? existing : created);
+        if (current == created) {
+            load(uuid, contexts, created);
+        }
+        return current.future;
+    }
+
+    /**
+     * Forgets the cached results of a player, after their data changed.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void invalidate(UUID uuid) {
+        if (uuid == null) {
+            return;
+        }
+        cache.remove(uuid);
+    }
+
+    /**
+     * Forgets every cached result, after a rank changed.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return The number of cached results
+     */
+    public int size() {
+        return cache.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Removes expired results, and players left without results.
+     *
+     * @param now The current time in milliseconds
+     */
+    private void purge(long now) {
+        for (Map<ContextSet, Entry> entries : cache.values()) {
+            entries.values().removeIf(cached -> now >= cached.expiresAt);
+        }
+        cache.values().removeIf(Map::isEmpty);
+    }
+
+    /**
+     * Loads and resolves a player's permissions off the main thread and completes the entry.
+     * The main thread changes cached player data without locking, so a cached player is copied
+     * there first; other players are read from the write-behind queue or storage.
+     *
+     * @param uuid The player to resolve
+     * @param contexts The contexts to resolve for
+     * @param entry The cache entry to complete
+     */
+    private void load(UUID uuid, ContextSet contexts, Entry entry) {
+        try {
+            if (Bukkit.isPrimaryThread()) {
+                loadCopy(uuid, contexts, entry);
+            } else if (dataManager.getCachedPlayerData(uuid) != null) {
+                Bukkit.getScheduler().runTask(plugin, () -> loadCopy(uuid, contexts, entry));
+            } else {
+                Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> complete(uuid, contexts, entry, null));
+            }
+        } catch (Exception e) {
+            // The scheduler rejects tasks while the plugin is disabled
+            fail(uuid, contexts, entry, e);
+        }
+    }
+
+    /**
+     * Copies a player's cached data and resolves the copy off the main thread.
+     * Must be called on the main thread.
+     *
+     * @param uuid The player to resolve
+     * @param contexts The contexts to resolve for
+     * @param entry The cache entry to complete
+     */
+    private void loadCopy(UUID uuid, ContextSet contexts, Entry entry) {
+        try {
+            PlayerData cached = dataManager.getCachedPlayerData(uuid);
+            PlayerData copy = cached != null ? cached.copy() : null;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> complete(uuid, contexts, entry, copy));
+        } catch (Exception e) {
+            fail(uuid, contexts, entry, e);
+        }
+    }
+
+    /**
+     * Resolves a player's permissions and completes the entry. Runs off the main thread.
+     *
+     * @param uuid The player to resolve
+     * @param contexts The contexts to resolve for
+     * @param entry The cache entry to complete
+     * @param copy A copy of the player's cached data, or null to read the player from storage
+     */
+    private void complete(UUID uuid, ContextSet contexts, Entry entry, PlayerData copy) {
+        try {
+            PlayerData playerData = copy != null ? copy : dataManager.getStoredPlayerData(uuid);
+            ResolvedPermissions resolved = null;
+            long validUntil = Long.MAX_VALUE;
+            if (playerData != null) {
+                PlayerLayers layers = permissionManager.parseLayers(playerData);
+                resolved = permissionManager.resolvePermissions(layers, contexts);
+                validUntil = layers.getValidUntil();
+            }
+            // Never serve a result past the first expiry of a temporary node
+            entry.expiresAt = Math.min(System.currentTimeMillis() + plugin.getConfigManager().getResolverCacheMillis(),
+                    validUntil);
+            entry.future.complete(resolved);
+        } catch (Exception e) {
+            fail(uuid, contexts, entry, e);
+        }
+    }
+
+    /**
+     * Completes an entry exceptionally and removes it, so the next query retries.
+     *
+     * @param uuid The player that failed to resolve
+     * @param contexts The contexts that failed to resolve
+     * @param entry The failed entry
+     * @param error The cause
+     */
+    private void fail(UUID uuid, ContextSet contexts, Entry entry, Exception error) {
+        Map<ContextSet, Entry> entries = cache.get(uuid);
+        if (entries != null) {
+            entries.remove(contexts, entry);
+        }
+        entry.future.completeExceptionally(error);
+    }
+
+    /**
+     * A pending or completed result. Pending results never expire.
+     */
+    private static final class Entry {
+        private final CompletableFuture<ResolvedPermissions> future = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,174 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A trie of permission nodes split on dots that resolves wildcards and negations.
+ * An exact node always wins, otherwise the deepest matching {@code node.*} wildcard wins,
+ * and {@code *} applies last. Results are memoized per queried node.
+ */
+public final class PermissionTrie {
+
+    private static final int MAX_MEMO_SIZE = 8192;
+    private static final Byte UNSET = 0;
+    private static final Byte TRUE = 1;
+    private static final Byte FALSE = 2;
+
+    private final Node root = new Node();
+    private final Map<String, Byte> memo = new ConcurrentHashMap<>();
+    private final boolean hasWildcards;
+
+    /**
+     * Creates a new PermissionTrie from a resolved permission map.
+     *
+     * @param permissions The resolved permissions, negations already applied as false values
+     */
+    public PermissionTrie(Map<String, Boolean> permissions) {
+        boolean wildcards = false;
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            wildcards |= insert(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        this.hasWildcards = wildcards;
+    }
+
+    /**
+     * Checks if any node in the trie is a wildcard.
+     *
+     * @return Whether the trie contains {@code *} or a {@code node.*} entry
+     */
+    public boolean hasWildcards() {
+        return hasWildcards;
+    }
+
+    /**
+     * Resolves the value of a permission node.
+     *
+     * @param permission The permission node
+     * @return True if granted, false if negated, or null if no node or wildcard matches
+     */
+    public Boolean resolve(String permission) {
+        if (permission == null) {
+            return null;
+        }
+
+        Byte cached = memo.get(permission);
+        if (cached == null) {
+            Boolean value = compute(permission.toLowerCase());
+            cached = value == null ? UNSET : (value ? TRUE : FALSE);
+            if (memo.size() >= MAX_MEMO_SIZE) {
+                memo.clear();
+            }
+            memo.put(permission, cached);
+        }
+
+        if (cached.equals(UNSET)) {
+            return null;
+        }
+        return cached.equals(TRUE);
+    }
+
+    /**
+     * Expands wildcards against a set of known permission nodes.
+     * Nodes that are already set explicitly keep their value.
+     *
+     * @param permissions The resolved permissions this trie was built from
+     * @param knownNodes The permission nodes registered on the server
+     * @return A new map with every known node implied by a wildcard added, or the input if there are no wildcards
+     */
+    public Map<String, Boolean> expand(Map<String, Boolean> permissions, Collection<String> knownNodes) {
+        if (!hasWildcards) {
+            return permissions;
+        }
+
+        Map<String, Boolean> expanded = new LinkedHashMap<>(permissions);
+        for (String node : knownNodes) {
+            if (node.endsWith("*") || expanded.containsKey(node)) {
+                continue;
+            }
+            Boolean value = compute(node.toLowerCase());
+            if (value != null) {
+                expanded.put(node, value);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Inserts a node into the trie.
+     *
+     * @param permission The lowercase permission node
+     * @param value The value of the node
+     * @return Whether the node was a wildcard
+     */
+    private boolean insert(String permission, boolean value) {
+        if (permission.equals("*")) {
+            root.wildcard = value;
+            return true;
+        }
+
+        Node current = root;
+        int start = 0;
+        while (true) {
+            int dot = permission.indexOf('.', start);
+            String segment = dot < 0 ? permission.substring(start) : permission.substring(start, dot);
+            if (dot < 0) {
+                if (segment.equals("*")) {
+                    current.wildcard = value;
+                    return true;
+                }
+                current.child(segment).value = value;
+                return false;
+            }
+            current = current.child(segment);
+            start = dot + 1;
+        }
+    }
+
+    /**
+     * Walks the trie for a node, tracking the most specific wildcard on the way.
+     *
+     * @param permission The lowercase permission node
+     * @return The resolved value, or null if nothing matches
+     */
+    private Boolean compute(String permission) {
+        Boolean best = root.wildcard;
+        Node current = root;
+        int start = 0;
+        while (true) {
+            int dot = permission.indexOf('.', start);
+            String segment = dot < 0 ? permission.substring(start) : permission.substring(start, dot);
+            Node next = current.children == null ? null : current.children.get(segment);
+            if (next == null) {
+                return best;
+            }
+            current = next;
+            if (dot < 0) {
+                return current.value != null ? current.value : best;
+            }
+            if (current.wildcard != null) {
+                best = current.wildcard;
+            }
+            start = dot + 1;
+        }
+    }
+
+    /**
+     * A single segment of a permission node.
+     */
+    private static final class Node {
+        private Map<String, Node> children;
+        private Boolean value;
+        private Boolean wildcard;
+
+        private Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+}
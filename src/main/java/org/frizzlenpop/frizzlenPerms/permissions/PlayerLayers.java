@@ -0,0 +1,185 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.frizzlenpop.frizzlenPerms.models.PlayerData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parsed permission layers of a single player, kept between recalculations so that
+ * a context change, such as switching worlds, only swaps the contextual layers instead of
+ * re-reading the player data. Layers are applied on top of the shared rank permissions in
+ * the order personal, contextual, temporary.
+ * The overlay of the player's own nodes is cached per context set, so returning to a
+ * world or gamemode the player was in before does not rebuild it.
+ */
+final class PlayerLayers {
+
+    private final List<String> ranks;
+    private final NodeDictionary dictionary;
+    private final NodeSet personal;
+    private final ContextLayers contextual;
+    private final NodeSet temporary;
+    private final long validUntil;
+    private final Map<ContextSet, Overlay> overlays = new ConcurrentHashMap<>();
+
+    private PlayerLayers(List<String> ranks, NodeDictionary dictionary, NodeSet personal, ContextLayers contextual,
+                         NodeSet temporary, long validUntil) {
+        this.ranks = ranks;
+        this.dictionary = dictionary;
+        this.personal = personal;
+        this.contextual = contextual;
+        this.temporary = temporary;
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * Parses the layers of a player.
+     *
+     * @param playerData The player data
+     * @param activeRanks The ranks the player currently holds
+     * @param currentTime The current time in milliseconds
+     * @param dictionary The dictionary to intern permission nodes in
+     * @return The parsed layers
+     */
+    static PlayerLayers from(PlayerData playerData, List<String> activeRanks, long currentTime, NodeDictionary dictionary) {
+        long validUntil = Long.MAX_VALUE;
+
+        NodeSet personal = NodeSet.parse(playerData.getPermissions(), dictionary);
+
+        ContextLayers contextual = ContextLayers.parse(playerData.getWorldPermissions(), dictionary);
+
+        // Only unexpired temporary permissions, the layers are stale once the first one expires
+        List<String> unexpired = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : playerData.getTemporaryPermissions().entrySet()) {
+            if (entry.getValue() > currentTime) {
+                unexpired.add(entry.getKey());
+                validUntil = Math.min(validUntil, entry.getValue());
+            }
+        }
+        NodeSet temporary = NodeSet.parse(unexpired, dictionary);
+        for (long expiration : playerData.getTemporaryRanks().values()) {
+            if (expiration > currentTime) {
+                validUntil = Math.min(validUntil, expiration);
+            }
+        }
+
+        return new PlayerLayers(List.copyOf(activeRanks), dictionary, personal, contextual, temporary, validUntil);
+    }
+
+    /**
+     * Gets the ranks the player held when the layers were parsed.
+     *
+     * @return The names of the active ranks
+     */
+    List<String> getRanks() {
+        return ranks;
+    }
+
+    /**
+     * Gets the time the first temporary rank or permission in the layers expires.
+     *
+     * @return The time in milliseconds, or Long.MAX_VALUE if nothing expires
+     */
+    long getValidUntil() {
+        return validUntil;
+    }
+
+    /**
+     * Checks if the layers are still accurate, i.e. no temporary rank or permission expired since.
+     *
+     * @param currentTime The current time in milliseconds
+     * @return Whether the layers can still be used
+     */
+    boolean isValid(long currentTime) {
+        return currentTime < validUntil;
+    }
+
+    /**
+     * Checks if the player has any permissions of their own in a set of contexts.
+     *
+     * @param contexts The contexts
+     * @return Whether any layer adds nodes on top of the ranks
+     */
+    boolean hasPersonalPermissions(ContextSet contexts) {
+        return !personal.isEmpty() || !temporary.isEmpty() || contextual.appliesTo(contexts);
+    }
+
+    /**
+     * Resolves the layers for a set of contexts on top of the shared rank permissions.
+     * Overlays of exact nodes are layered on the shared result without copying it. Overlays
+     * with wildcards are merged and expanded once per context set and shared result.
+     *
+     * @param shared The shared rank permissions for the same contexts
+     * @param contexts The contexts
+     * @param registeredNodes The permission nodes registered on the server, to expand wildcards against
+     * @return The resolved permissions
+     */
+    ResolvedPermissions resolve(ResolvedPermissions shared, ContextSet contexts, Collection<String> registeredNodes) {
+        Overlay overlay = overlays.computeIfAbsent(contexts, this::buildOverlay);
+        if (!overlay.wildcards) {
+            return new ResolvedPermissions(shared, overlay.nodes);
+        }
+
+        // Wildcards in the overlay change how the shared nodes expand, so merge the whole set
+        Expanded expanded = overlay.expanded;
+        if (expanded != null && expanded.shared == shared) {
+            return expanded.resolved;
+        }
+        Map<String, Boolean> resolved = new LinkedHashMap<>(shared.getPermissions());
+        resolved.putAll(overlay.nodes);
+        PermissionTrie trie = new PermissionTrie(resolved);
+        ResolvedPermissions result = new ResolvedPermissions(resolved, trie.expand(resolved, registeredNodes), trie);
+        overlay.expanded = new Expanded(shared, result);
+        return result;
+    }
+
+    /**
+     * Builds the overlay of the player's own nodes for a set of contexts.
+     *
+     * @param contexts The contexts
+     * @return The overlay
+     */
+    private Overlay buildOverlay(ContextSet contexts) {
+        Map<String, Boolean> nodes = new LinkedHashMap<>();
+        personal.writeTo(nodes, dictionary);
+        contextual.writeTo(nodes, contexts, dictionary);
+        temporary.writeTo(nodes, dictionary);
+        boolean wildcards = false;
+        for (String node : nodes.keySet()) {
+            wildcards |= node.equals("*") || node.endsWith(".*");
+        }
+        return new Overlay(nodes, wildcards);
+    }
+
+    /**
+     * The player's own nodes in one set of contexts.
+     */
+    private static final class Overlay {
+        private final Map<String, Boolean> nodes;
+        private final boolean wildcards;
+        private volatile Expanded expanded;
+
+        private Overlay(Map<String, Boolean> nodes, boolean wildcards) {
+            this.nodes = nodes;
+            this.wildcards = wildcards;
+        }
+    }
+
+    /**
+     * An overlay with wildcards merged into and expanded with a shared result.
+     */
+    private static final class Expanded {
+        private final ResolvedPermissions shared;
+        private final ResolvedPermissions resolved;
+
+        private Expanded(ResolvedPermissions shared, ResolvedPermissions resolved) {
+            this.shared = shared;
+            this.resolved = resolved;
+        }
+    }
+}
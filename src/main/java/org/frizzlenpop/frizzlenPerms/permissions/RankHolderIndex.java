@@ -0,0 +1,96 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A live index from rank name to the online players holding the rank,
+ * either directly or through inheritance.
+ */
+public class RankHolderIndex {
+
+    private final Map<String, Set<UUID>> holders = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> ranksByPlayer = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the ranks an online player holds, replacing any previous entry.
+     *
+     * @param uuid The UUID of the player
+     * @param rankNames The names of the ranks held, including inherited ranks
+     */
+    public synchronized void update(UUID uuid, Set<String> rankNames) {
+        Set<String> next = new HashSet<>();
+        for (String rankName : rankNames) {
+            next.add(rankName.toLowerCase());
+        }
+
+        Set<String> previous = ranksByPlayer.put(uuid, next);
+        if (previous != null) {
+            for (String rankName : previous) {
+                if (!next.contains(rankName)) {
+                    removeHolder(rankName, uuid);
+                }
+            }
+        }
+        for (String rankName : next) {
+            holders.computeIfAbsent(rankName, key -> ConcurrentHashMap.newKeySet()).add(uuid);
+        }
+    }
+
+    /**
+     * Removes a player from the index, typically when they quit.
+     *
+     * @param uuid The UUID of the player
+     */
+    public synchronized void remove(UUID uuid) {
+        Set<String> previous = ranksByPlayer.remove(uuid);
+        if (previous != null) {
+            for (String rankName : previous) {
+                removeHolder(rankName, uuid);
+            }
+        }
+    }
+
+    /**
+     * Gets the online players holding a rank, directly or through inheritance.
+     *
+     * @param rankName The name of the rank
+     * @return An unmodifiable snapshot of the holders' UUIDs
+     */
+    public Set<UUID> getHolders(String rankName) {
+        if (rankName == null) {
+            return Collections.emptySet();
+        }
+
+        Set<UUID> result = holders.get(rankName.toLowerCase());
+        return result == null ? Collections.emptySet() : Set.copyOf(result);
+    }
+
+    /**
+     * Clears the index.
+     */
+    public synchronized void clear() {
+        holders.clear();
+        ranksByPlayer.clear();
+    }
+
+    /**
+     * Removes a single player from the holders of a rank.
+     *
+     * @param rankName The lowercase name of the rank
+     * @param uuid The UUID of the player
+     */
+    private void removeHolder(String rankName, UUID uuid) {
+        Set<UUID> set = holders.get(rankName);
+        if (set != null) {
+            set.remove(uuid);
+            if (set.isEmpty()) {
+                holders.remove(rankName);
+            }
+        }
+    }
+}
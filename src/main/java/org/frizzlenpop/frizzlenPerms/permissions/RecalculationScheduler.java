@@ -0,0 +1,252 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.frizzlenpop.frizzlenPerms.FrizzlenPerms;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Spreads permission recalculations of many players over several ticks.
+ * A recalculation starts on the main thread by capturing the player's contexts and handing
+ * them to the resolver threads; the resolved result comes back here to be applied.
+ * Resolved results are applied and queued players are started on the main thread until the
+ * per-tick time budget is used up, and a player that is already queued is not queued twice.
+ * Players marked dirty are all started at the beginning of the next tick, once each,
+ * no matter how many changes were made to them in between.
+ * Ticks with work first refresh the registered permission nodes, once for every setup of
+ * the tick, and that time counts against the budget.
+ */
+public class RecalculationScheduler {
+
+    private final FrizzlenPerms plugin;
+    private final PermissionManager permissionManager;
+    private final Queue<UUID> queue = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> applies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private volatile boolean nodeRefreshRequested;
+    private volatile long budgetNanos;
+    private BukkitTask task;
+
+    /**
+     * Creates a new RecalculationScheduler.
+     *
+     * @param plugin The plugin instance
+     * @param permissionManager The permission manager that performs the recalculations
+     */
+    public RecalculationScheduler(FrizzlenPerms plugin, PermissionManager permissionManager) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
+        this.permissionManager = Objects.requireNonNull(permissionManager, "PermissionManager cannot be null");
+    }
+
+    /**
+     * Starts processing the queue every tick.
+     */
+    public void start() {
+        if (task != null) {
+            task.cancel();
+        }
+
+        budgetNanos = TimeUnit.MICROSECONDS.toNanos(
+                Math.max(100, plugin.getConfigManager().getRecalculationBudgetMicros()));
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+    }
+
+    /**
+     * Stops processing and drops every queued player.
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        queued.clear();
+        dirty.clear();
+        applies.clear();
+    }
+
+    /**
+     * Queues a player for recalculation.
+     *
+     * @param uuid The UUID of the player
+     * @return True if the player was queued, false if already queued
+     */
+    public boolean schedule(UUID uuid) {
+        if (uuid == null) {
+            return false;
+        }
+
+        requested.incrementAndGet();
+        if (!queued.add(uuid)) {
+            return false;
+        }
+        queue.add(uuid);
+        return true;
+    }
+
+    /**
+     * Marks a player for recalculation at the start of the next tick.
+     * Safe to call from any thread.
+     *
+     * @param uuid The UUID of the player
+     * @return True if the player was marked, false if already marked this tick
+     */
+    public boolean markDirty(UUID uuid) {
+        if (uuid == null) {
+            return false;
+        }
+
+        requested.incrementAndGet();
+        return dirty.add(uuid);
+    }
+
+    /**
+     * Queues the main-thread part of a recalculation, applying a resolved result, to run
+     * within the per-tick time budget. Safe to call from any thread.
+     *
+     * @param apply The apply step
+     */
+    public void submitApply(Runnable apply) {
+        applies.add(Objects.requireNonNull(apply, "Apply cannot be null"));
+    }
+
+    /**
+     * Requests a refresh of the registered permission nodes on the next tick, even if no
+     * player needs recalculating, after plugins were enabled or disabled.
+     * Safe to call from any thread.
+     */
+    public void requestNodeRefresh() {
+        nodeRefreshRequested = true;
+    }
+
+    /**
+     * Queues several players for recalculation.
+     *
+     * @param players The players
+     */
+    public void scheduleAll(Collection<? extends Player> players) {
+        for (Player player : players) {
+            schedule(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Gets the number of players waiting for recalculation or for their result to be applied.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queued.size() + dirty.size() + applies.size();
+    }
+
+    /**
+     * Gets the number of recalculations requested since startup, including coalesced ones.
+     *
+     * @return The number of requested recalculations
+     */
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    /**
+     * Gets the number of recalculations actually performed since startup.
+     *
+     * @return The number of executed recalculations
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * Refreshes the registered permission nodes if a refresh was requested, starts every dirty
+     * player, then applies resolved results and starts queued players until the time budget of
+     * this tick is used up.
+     * At least one result is applied and one queued player started per tick so both queues
+     * always drain.
+     */
+    private void tick() {
+        if (!nodeRefreshRequested && dirty.isEmpty() && applies.isEmpty() && queue.isEmpty()) {
+            return;
+        }
+
+        // Reading the registered permissions copies them, so only after plugins were enabled or disabled
+        long refreshNanos = 0;
+        if (nodeRefreshRequested) {
+            nodeRefreshRequested = false;
+            long refreshStart = System.nanoTime();
+            permissionManager.refreshRegisteredPermissionNodes();
+            refreshNanos = System.nanoTime() - refreshStart;
+            permissionManager.getSetupTimings().recordRefresh(refreshNanos);
+        }
+
+        if (!dirty.isEmpty()) {
+            for (Iterator<UUID> iterator = dirty.iterator(); iterator.hasNext(); ) {
+                UUID uuid = iterator.next();
+                // Unmark first so changes made during the recalculation mark the player again
+                iterator.remove();
+                // A queued player is covered by this recalculation
+                queued.remove(uuid);
+                recalculate(uuid);
+            }
+        }
+
+        if (applies.isEmpty() && queue.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + budgetNanos - refreshNanos;
+        
+        // Applying is what costs main-thread time, so results go first
+        Runnable apply;
+        while ((apply = applies.poll()) != null) {
+            try {
+                apply.run();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to apply recalculated permissions", e);
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        
+        UUID uuid;
+        while ((uuid = queue.poll()) != null) {
+            // Skip entries already handled as dirty players
+            if (!queued.remove(uuid)) {
+                continue;
+            }
+            recalculate(uuid);
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Starts recalculating a player if they are still online.
+     *
+     * @param uuid The UUID of the player
+     */
+    private void recalculate(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null && player.isOnline()) {
+            executed.incrementAndGet();
+            permissionManager.setupPermissions(player);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The immutable result of resolving a player's permissions.
+ * A result can be layered: a small overlay of the player's own exact nodes on top of a
+ * shared rank result. Layered results reuse the shared trie and only build their merged
+ * maps when they are first asked for, so swapping the overlay costs the size of the overlay.
+ */
+public final class ResolvedPermissions {
+
+    private final ResolvedPermissions base;
+    private final Map<String, Boolean> overlay;
+    private final Map<String, Boolean> overlayLookup;
+    private final PermissionTrie trie;
+    private volatile Map<String, Boolean> permissions;
+    private volatile Map<String, Boolean> effectivePermissions;
+
+    /**
+     * Creates a new ResolvedPermissions.
+     *
+     * @param permissions The resolved permission nodes, wildcards left as-is
+     * @param effectivePermissions The permissions with wildcards expanded against registered nodes
+     * @param trie The trie built from the resolved permission nodes
+     */
+    ResolvedPermissions(Map<String, Boolean> permissions, Map<String, Boolean> effectivePermissions, PermissionTrie trie) {
+        this.base = null;
+        this.overlay = null;
+        this.overlayLookup = null;
+        this.permissions = Collections.unmodifiableMap(permissions);
+        this.effectivePermissions = Collections.unmodifiableMap(effectivePermissions);
+        this.trie = trie;
+    }
+
+    /**
+     * Creates a layered ResolvedPermissions. The overlay must not contain wildcards, since
+     * those would have to be expanded against the base permissions as well.
+     *
+     * @param base The shared permissions to layer on
+     * @param overlay The exact nodes that override the base
+     */
+    ResolvedPermissions(ResolvedPermissions base, Map<String, Boolean> overlay) {
+        this.base = base.base != null ? base.base : base;
+        this.overlay = Collections.unmodifiableMap(overlay);
+        this.overlayLookup = new HashMap<>(overlay.size() * 2);
+        for (Map.Entry<String, Boolean> entry : overlay.entrySet()) {
+            overlayLookup.put(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        this.trie = this.base.trie;
+    }
+
+    /**
+     * Gets the resolved permission nodes, with wildcards left as-is.
+     *
+     * @return An unmodifiable map of permission nodes to their values
+     */
+    public Map<String, Boolean> getPermissions() {
+        Map<String, Boolean> result = permissions;
+        if (result == null) {
+            result = Collections.unmodifiableMap(merge(base.getPermissions()));
+            permissions = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the permissions to apply to an attachment, with wildcards expanded.
+     *
+     * @return An unmodifiable map of permission nodes to their values
+     */
+    public Map<String, Boolean> getEffectivePermissions() {
+        Map<String, Boolean> result = effectivePermissions;
+        if (result == null) {
+            result = Collections.unmodifiableMap(merge(base.getEffectivePermissions()));
+            effectivePermissions = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the trie used to resolve wildcard checks. For a layered result this is the trie
+     * of the base permissions, the overlay is checked before it.
+     *
+     * @return The permission trie
+     */
+    public PermissionTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * Checks a permission node against these permissions, resolving wildcards.
+     *
+     * @param permission The permission node
+     * @return True if granted, false if negated, or null if not set
+     */
+    public Boolean resolve(String permission) {
+        if (overlayLookup != null && permission != null) {
+            // An exact node always wins over wildcards
+            Boolean value = overlayLookup.get(permission.toLowerCase());
+            if (value != null) {
+                return value;
+            }
+        }
+        return trie.resolve(permission);
+    }
+
+    /**
+     * Gets the result these permissions are layered on.
+     *
+     * @return The base result, or this result if it is not layered
+     */
+    ResolvedPermissions getRoot() {
+        return base != null ? base : this;
+    }
+
+    /**
+     * Gets the nodes this result overrides on its root.
+     *
+     * @return The overlaid nodes and their values, empty if the result is not layered
+     */
+    Map<String, Boolean> getOverlay() {
+        return overlay != null ? overlay : Collections.emptyMap();
+    }
+
+    /**
+     * Lays the overlay over a copy of a base map.
+     *
+     * @param target The base map
+     * @return The merged map
+     */
+    private Map<String, Boolean> merge(Map<String, Boolean> target) {
+        Map<String, Boolean> merged = new LinkedHashMap<>(target);
+        merged.putAll(overlay);
+        return merged;
+    }
+}
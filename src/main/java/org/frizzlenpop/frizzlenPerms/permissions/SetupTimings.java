@@ -0,0 +1,113 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates how long permission setups take, split into the asynchronous
+ * resolve phase and the main-thread apply phase, along with the main-thread refresh
+ * of registered permission nodes that precedes the applies of a tick.
+ */
+public class SetupTimings {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong resolveNanos = new AtomicLong();
+    private final AtomicLong applyNanos = new AtomicLong();
+    private final AtomicLong maxApplyNanos = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshNanos = new AtomicLong();
+    private final AtomicLong maxRefreshNanos = new AtomicLong();
+
+    /**
+     * Records a completed setup.
+     *
+     * @param resolve Time spent resolving permissions off the main thread, in nanoseconds
+     * @param apply Time spent applying them on the main thread, in nanoseconds
+     */
+    public void record(long resolve, long apply) {
+        count.incrementAndGet();
+        resolveNanos.addAndGet(resolve);
+        applyNanos.addAndGet(apply);
+        maxApplyNanos.accumulateAndGet(apply, Math::max);
+    }
+
+    /**
+     * Records a refresh of the registered permission nodes.
+     *
+     * @param refresh Time spent refreshing on the main thread, in nanoseconds
+     */
+    public void recordRefresh(long refresh) {
+        refreshCount.incrementAndGet();
+        refreshNanos.addAndGet(refresh);
+        maxRefreshNanos.accumulateAndGet(refresh, Math::max);
+    }
+
+    /**
+     * Gets the number of completed setups.
+     *
+     * @return The number of setups
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the average time spent resolving permissions off the main thread.
+     *
+     * @return The average in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getAverageResolveNanos() {
+        long setups = count.get();
+        return setups == 0 ? 0 : resolveNanos.get() / setups;
+    }
+
+    /**
+     * Gets the average time spent applying permissions on the main thread.
+     *
+     * @return The average in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getAverageApplyNanos() {
+        long setups = count.get();
+        return setups == 0 ? 0 : applyNanos.get() / setups;
+    }
+
+    /**
+     * Gets the longest time a single apply spent on the main thread.
+     *
+     * @return The maximum in nanoseconds
+     */
+    public long getMaxApplyNanos() {
+        return maxApplyNanos.get();
+    }
+
+    /**
+     * Gets the average time spent refreshing the registered permission nodes on the main thread.
+     *
+     * @return The average in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getAverageRefreshNanos() {
+        long refreshes = refreshCount.get();
+        return refreshes == 0 ? 0 : refreshNanos.get() / refreshes;
+    }
+
+    /**
+     * Gets the longest time a single refresh of the registered permission nodes took.
+     *
+     * @return The maximum in nanoseconds
+     */
+    public long getMaxRefreshNanos() {
+        return maxRefreshNanos.get();
+    }
+
+    /**
+     * Clears all recorded timings.
+     */
+    public void reset() {
+        count.set(0);
+        resolveNanos.set(0);
+        applyNanos.set(0);
+        maxApplyNanos.set(0);
+        refreshCount.set(0);
+        refreshNanos.set(0);
+        maxRefreshNanos.set(0);
+    }
+}
@@ -0,0 +1,184 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Canonicalizes resolved rank permissions so that every player holding the same
+ * set of ranks in the same contexts shares a single immutable permission map and wildcard trie.
+ */
+public class SharedPermissionCache {
+
+    private final CompiledRankRegistry compiledRanks;
+    private final NodeDictionary dictionary;
+    private final Supplier<Collection<String>> registeredNodes;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates a new SharedPermissionCache.
+     *
+     * @param compiledRanks The compiled rank registry
+     * @param dictionary The dictionary the compiled node IDs belong to
+     * @param registeredNodes Supplies the permission nodes registered on the server, used to expand wildcards
+     */
+    public SharedPermissionCache(CompiledRankRegistry compiledRanks, NodeDictionary dictionary,
+                                 Supplier<Collection<String>> registeredNodes) {
+        this.compiledRanks = Objects.requireNonNull(compiledRanks, "CompiledRankRegistry cannot be null");
+        this.dictionary = Objects.requireNonNull(dictionary, "NodeDictionary cannot be null");
+        this.registeredNodes = Objects.requireNonNull(registeredNodes, "Registered nodes supplier cannot be null");
+    }
+
+    /**
+     * Gets the shared permission map for a combination of ranks in a set of contexts.
+     *
+     * @param rankNames The names of the ranks held, in any order
+     * @param contexts The contexts, such as the world and gamemode
+     * @return The resolved permissions shared by all callers with the same combination
+     */
+    public ResolvedPermissions get(Collection<String> rankNames, ContextSet contexts) {
+        Set<String> sorted = new TreeSet<>();
+        for (String rankName : rankNames) {
+            if (rankName != null) {
+                sorted.add(rankName.toLowerCase());
+            }
+        }
+
+        Key key = new Key(List.copyOf(sorted), Objects.requireNonNull(contexts, "Contexts cannot be null"));
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            long startGeneration = generation.get();
+            entry = build(key);
+            // Only publish if nothing was invalidated while building
+            if (generation.get() == startGeneration) {
+                Entry existing = entries.putIfAbsent(key, entry);
+                if (existing != null) {
+                    entry = existing;
+                }
+            }
+        }
+        return entry.permissions;
+    }
+
+    /**
+     * Invalidates every shared set that depends on a rank, directly or through inheritance.
+     *
+     * @param rankName The name of the changed rank
+     */
+    public void invalidate(String rankName) {
+        if (rankName == null) {
+            return;
+        }
+
+        generation.incrementAndGet();
+        String key = rankName.toLowerCase();
+        entries.values().removeIf(entry -> entry.lineage.contains(key));
+    }
+
+    /**
+     * Invalidates every shared set.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of distinct shared sets currently cached.
+     *
+     * @return The number of cached sets
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Builds the shared permission map for a key.
+     *
+     * @param key The cache key
+     * @return The built entry
+     */
+    private Entry build(Key key) {
+        List<CompiledRank> ranks = new ArrayList<>();
+        Set<String> lineage = new HashSet<>(key.ranks);
+        for (String rankName : key.ranks) {
+            CompiledRank compiledRank = compiledRanks.get(rankName);
+            if (compiledRank != null) {
+                ranks.add(compiledRank);
+                lineage.addAll(compiledRank.getLineage());
+            }
+        }
+        ranks.sort(Comparator.comparingInt(CompiledRank::getWeight));
+
+        // Merge as bitsets, heavier ranks last so they win conflicts
+        NodeSet nodes = new NodeSet();
+        for (CompiledRank rank : ranks) {
+            nodes.overlay(rank.getNodes());
+        }
+
+        // Precompiled context layers of the ranks themselves
+        for (CompiledRank rank : ranks) {
+            rank.getContextLayers().applyTo(nodes, key.contexts);
+        }
+        Map<String, Boolean> permissions = nodes.toMap(dictionary);
+
+        PermissionTrie trie = new PermissionTrie(permissions);
+        Map<String, Boolean> effective = trie.expand(permissions, registeredNodes.get());
+        return new Entry(new ResolvedPermissions(permissions, effective, trie), lineage);
+    }
+
+    /**
+     * A canonical combination of ranks and contexts.
+     */
+    private static final class Key {
+        private final List<String> ranks;
+        private final ContextSet contexts;
+        private final int hash;
+
+        private Key(List<String> ranks, ContextSet contexts) {
+            this.ranks = ranks;
+            this.contexts = contexts;
+            this.hash = Objects.hash(ranks, contexts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return ranks.equals(other.ranks) && contexts.equals(other.contexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cached shared permissions and the ranks they were built from.
+     */
+    private static final class Entry {
+        private final ResolvedPermissions permissions;
+        private final Set<String> lineage;
+
+        private Entry(ResolvedPermissions permissions, Set<String> lineage) {
+            this.permissions = permissions;
+            this.lineage = lineage;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.frizzlenpop.frizzlenPerms.permissions;
+
+import java.util.UUID;
+
+/**
+ * A fixed set of monitor objects selected by player UUID, so work on different
+ * players rarely contends while work on the same player is still serialized.
+ */
+public final class StripedLock {
+
+    private final Object[] stripes;
+    private final int mask;
+
+    /**
+     * Creates a new StripedLock.
+     *
+     * @param minimumStripes The minimum number of stripes, rounded up to a power of two
+     */
+    public StripedLock(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new Object[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Gets the lock object guarding a player.
+     *
+     * @param uuid The UUID of the player
+     * @return The monitor to synchronize on
+     */
+    public Object get(UUID uuid) {
+        int hash = uuid.hashCode();
+        // Spread the high bits so UUIDs differing only there land on different stripes
+        hash ^= (hash >>> 16);
+        return stripes[hash & mask];
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return The number of stripes
+     */
+    public int size() {
+        return stripes.length;
+    }
+}
@@ -13,7 +13,6 @@ import org.frizzlenpop.frizzlenPerms.permissions.PermissionManager;
 import org.frizzlenpop.frizzlenPerms.utils.TimeUtils;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,7 +25,6 @@ public class RankManager {
     private final ConfigManager configManager;
     private final PermissionManager permissionManager;
     private final AuditManager auditManager;
-    private final Map<String, Rank> rankCache;
     private volatile String defaultRankName;
     private final Object rankLock = new Object();
     
@@ -46,7 +44,6 @@ public class RankManager {
         this.configManager = Objects.requireNonNull(configManager, "ConfigManager cannot be null");
         this.permissionManager = Objects.requireNonNull(permissionManager, "PermissionManager cannot be null");
         this.auditManager = Objects.requireNonNull(auditManager, "AuditManager cannot be null");
-        this.rankCache = new ConcurrentHashMap<>();
     }
     
     /**
@@ -116,10 +113,9 @@ public class RankManager {
      * @param weight The weight of the rank
      */
     private void createRankIfNotExists(String name, String displayName, String prefix, int weight) {
-        if (getRank(name) == null) {
+        if (getRankSnapshot(name) == null) {
             Rank rank = new Rank(name, displayName, prefix, "", "§f", weight, null);
             dataManager.saveRank(rank);
-            rankCache.put(name.toLowerCase(), rank);
             plugin.getLogger().info("Created rank: " + name);
         }
     }
@@ -145,7 +141,7 @@ public class RankManager {
             return false;
         }
         
-        Rank rank = getRank(rankName);
+        Rank rank = getRankSnapshot(rankName);
         if (rank == null) {
             plugin.getLogger().warning("Rank not found: " + rankName);
             return false;
@@ -193,7 +189,7 @@ public class RankManager {
             return false;
         }
         
-        Rank rank = dataManager.getRank(rankName);
+        Rank rank = dataManager.getRankSnapshot(rankName);
         if (rank == null) {
             plugin.getLogger().warning("Rank not found: " + rankName);
             return false;
@@ -295,7 +291,7 @@ public class RankManager {
             return false;
         }
         
-        Rank rank = dataManager.getRank(rankName);
+        Rank rank = dataManager.getRankSnapshot(rankName);
         if (rank == null) {
             plugin.getLogger().warning("Rank not found: " + rankName);
             return false;
@@ -312,11 +308,15 @@ public class RankManager {
             return false;
         }
         
-        // Add the rank
+        // Add the rank, remembering what the grant added so it expires on its own
         if (asPrimary) {
-            playerData.setPrimaryRank(rankName);
-        } else {
+            if (!rankName.equals(playerData.getPrimaryRank())) {
+                playerData.setPrimaryRank(rankName);
+                playerData.markTemporaryRankGrant(rankName, true);
+            }
+        } else if (!playerData.getSecondaryRanks().contains(rankName)) {
             playerData.addSecondaryRank(rankName);
+            playerData.markTemporaryRankGrant(rankName, false);
         }
         
         // Add to temporary ranks
@@ -366,15 +366,8 @@ public class RankManager {
             return false;
         }
         
-        // Remove the temporary rank
-        playerData.removeTemporaryRank(rankName);
-        
-        // Remove from primary or secondary ranks
-        if (rankName.equals(playerData.getPrimaryRank())) {
-            playerData.setPrimaryRank(defaultRankName);
-        } else {
-            playerData.removeSecondaryRank(rankName);
-        }
+        // Remove the temporary rank and whatever rank its grant added
+        playerData.revokeTemporaryRank(rankName, defaultRankName);
         
         dataManager.savePlayerData(playerData);
         
@@ -410,14 +403,13 @@ public class RankManager {
     public Rank createRank(String name, String displayName, String prefix, int weight, Player actor) {
         synchronized (rankLock) {
             // Check if rank already exists
-            if (getRank(name) != null) {
+            if (getRankSnapshot(name) != null) {
                 return null;
             }
 
             // Create new rank
             Rank rank = new Rank(name, displayName, prefix, "", "§f", weight, null);
             dataManager.saveRank(rank);
-            rankCache.put(name.toLowerCase(), rank);
 
             // Log action
             auditManager.logAction(
@@ -446,13 +438,12 @@ public class RankManager {
 
         synchronized (rankLock) {
             // Check if rank already exists
-            if (getRank(rank.getName()) != null) {
+            if (getRankSnapshot(rank.getName()) != null) {
                 return false;
             }
 
             // Save rank
             dataManager.saveRank(rank);
-            rankCache.put(rank.getName().toLowerCase(), rank);
 
             return true;
         }
@@ -468,7 +459,7 @@ public class RankManager {
     public boolean deleteRank(String name, Player actor) {
         synchronized (rankLock) {
             // Check if rank exists
-            Rank rank = getRank(name);
+            Rank rank = getRankSnapshot(name);
             if (rank == null) {
                 return false;
             }
@@ -480,7 +471,6 @@ public class RankManager {
 
             // Delete rank
             dataManager.deleteRank(name);
-            rankCache.remove(name.toLowerCase());
 
             // Update players
             updatePlayersAfterRankDeletion(name);
@@ -505,8 +495,8 @@ public class RankManager {
      * @param rankName The name of the deleted rank
      */
     private void updatePlayersAfterRankDeletion(String rankName) {
-        plugin.getServer().getOnlinePlayers().forEach(player -> {
-            PlayerData playerData = plugin.getDataManager().getPlayerData(player.getUniqueId());
+        for (UUID uuid : permissionManager.getOnlineHolders(rankName)) {
+            PlayerData playerData = plugin.getDataManager().getPlayerData(uuid);
             if (playerData != null) {
                 boolean updated = false;
 
@@ -517,17 +507,18 @@ public class RankManager {
                 }
 
                 // Check secondary ranks
-                if (playerData.getSecondaryRanks().remove(rankName)) {
+                if (playerData.removeSecondaryRank(rankName)) {
                     updated = true;
                 }
 
                 // Save if updated
                 if (updated) {
                     plugin.getDataManager().savePlayerData(playerData);
-                    permissionManager.calculateAndApplyPermissions(player);
                 }
             }
-        });
+            // Holders through inheritance lose the rank's permissions too
+            permissionManager.scheduleRecalculation(uuid);
+        }
     }
     
     /**
@@ -546,7 +537,7 @@ public class RankManager {
             }
 
             // Get current default rank
-            Rank currentDefault = getDefaultRank();
+            Rank currentDefault = dataManager.getRank(defaultRankName);
             if (currentDefault != null) {
                 currentDefault.setDefault(false);
                 dataManager.saveRank(currentDefault);
@@ -661,13 +652,7 @@ public class RankManager {
      * @param rankName The name of the changed rank
      */
     private void updatePlayersAfterRankChange(String rankName) {
-        plugin.getServer().getOnlinePlayers().forEach(player -> {
-            PlayerData playerData = plugin.getDataManager().getPlayerData(player.getUniqueId());
-            if (playerData != null && (rankName.equals(playerData.getPrimaryRank()) || 
-                                     playerData.getSecondaryRanks().contains(rankName))) {
-                permissionManager.calculateAndApplyPermissions(player);
-            }
-        });
+        permissionManager.scheduleRankHolders(rankName);
     }
     
     /**
@@ -706,44 +691,42 @@ public class RankManager {
     }
     
     /**
-     * Gets the default rank.
+     * Gets the read-only snapshot of the default rank.
      *
      * @return The default rank
      */
     public Rank getDefaultRank() {
-        return dataManager.getRank(defaultRankName);
+        return dataManager.getRankSnapshot(defaultRankName);
     }
     
     /**
-     * Gets a rank by name.
+     * Gets an editable copy of a rank by name. Changes take effect once the rank is saved.
+     * Callers that only read the rank should use {@link #getRankSnapshot(String)}.
      *
      * @param name The name of the rank
-     * @return The rank, or null if not found
+     * @return A copy of the rank, or null if not found
      */
     public Rank getRank(String name) {
-        if (name == null) {
-            return null;
-        }
-        
-        Rank rank = rankCache.get(name.toLowerCase());
-        if (rank == null) {
-            synchronized (rankLock) {
-                rank = dataManager.getRank(name.toLowerCase());
-                if (rank != null) {
-                    rankCache.put(name.toLowerCase(), rank);
-                }
-            }
-        }
-        return rank;
+        return dataManager.getRank(name);
+    }
+    
+    /**
+     * Gets the read-only snapshot of a rank by name, without copying it.
+     *
+     * @param name The name of the rank
+     * @return The read-only rank, or null if not found
+     */
+    public Rank getRankSnapshot(String name) {
+        return dataManager.getRankSnapshot(name);
     }
     
     /**
-     * Gets all ranks from the cache.
+     * Gets all ranks from the rank registry.
      *
-     * @return A collection of all ranks
+     * @return An unmodifiable collection of read-only ranks
      */
     public Collection<Rank> getRanks() {
-        return rankCache.values();
+        return dataManager.getAllRanks().values();
     }
     
     /**
@@ -934,7 +917,7 @@ public class RankManager {
             return false;
         }
         
-        Rank rank = dataManager.getRank(rankName);
+        Rank rank = dataManager.getRankSnapshot(rankName);
         if (rank == null) {
             plugin.getLogger().warning("Rank not found: " + rankName);
             return false;
@@ -985,7 +968,7 @@ public class RankManager {
     public boolean addInheritance(String rankName, String inheritedRankName, Player actor) {
         // Check if ranks exist
         Rank rank = dataManager.getRank(rankName);
-        Rank inheritedRank = dataManager.getRank(inheritedRankName);
+        Rank inheritedRank = dataManager.getRankSnapshot(inheritedRankName);
         
         if (rank == null || inheritedRank == null) {
             plugin.getLogger().warning("One or both ranks not found: " + rankName + ", " + inheritedRankName);
@@ -1031,7 +1014,7 @@ public class RankManager {
     public boolean removeInheritance(String rankName, String inheritedRankName, Player actor) {
         // Check if ranks exist
         Rank rank = dataManager.getRank(rankName);
-        Rank inheritedRank = dataManager.getRank(inheritedRankName);
+        Rank inheritedRank = dataManager.getRankSnapshot(inheritedRankName);
         
         if (rank == null || inheritedRank == null) {
             plugin.getLogger().warning("One or both ranks not found: " + rankName + ", " + inheritedRankName);
@@ -1067,39 +1050,13 @@ public class RankManager {
     
     /**
      * Checks if adding an inheritance would create a circular dependency.
+     * Only the ranks that already inherit from the inheriting rank are searched.
      *
      * @param rankName The name of the rank that will inherit
      * @param inheritedRankName The name of the rank to be inherited
      * @return True if circular inheritance would be created
      */
     private boolean hasCircularInheritance(String rankName, String inheritedRankName) {
-        Set<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-        
-        // Start with the rank to be inherited
-        queue.add(inheritedRankName);
-        visited.add(inheritedRankName);
-        
-        while (!queue.isEmpty()) {
-            String currentRank = queue.poll();
-            Rank rank = dataManager.getRank(currentRank);
-            
-            if (rank != null) {
-                for (String inherited : rank.getInheritance()) {
-                    // If we find the original rank, there's a cycle
-                    if (inherited.equals(rankName)) {
-                        return true;
-                    }
-                    
-                    // If we haven't visited this rank yet, add it to the queue
-                    if (!visited.contains(inherited)) {
-                        queue.add(inherited);
-                        visited.add(inherited);
-                    }
-                }
-            }
-        }
-        
-        return false;
+        return permissionManager.getInheritanceGraph().wouldCreateCycle(rankName, inheritedRankName);
     }
 } 
\ No newline at end of file